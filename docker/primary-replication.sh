@@ -0,0 +1,7 @@
+#!/bin/sh
+# Runs once, when the primary's data directory is initialized: a role the replica streams WAL with.
+set -e
+psql -v ON_ERROR_STOP=1 --username "$POSTGRES_USER" --dbname "$POSTGRES_DB" <<-SQL
+    CREATE ROLE replicator WITH REPLICATION LOGIN PASSWORD 'replicator';
+SQL
+echo "host replication replicator all md5" >> "$PGDATA/pg_hba.conf"
@@ -0,0 +1,11 @@
+#!/bin/sh
+# Clones the primary on first start and follows it as a hot standby.
+set -e
+if [ ! -s "$PGDATA/PG_VERSION" ]; then
+    until PGPASSWORD=replicator pg_basebackup -h db -U replicator -D "$PGDATA" -R -X stream; do
+        echo "Waiting for the primary..."
+        sleep 1
+    done
+    chmod 700 "$PGDATA"
+fi
+exec postgres
@@ -0,0 +1,225 @@
+package com.example.picheTest.admission;
+
+import com.example.picheTest.config.AdmissionProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides, before a request touches the database, whether it may run. An account gets a token bucket and a cap
+ * on its requests in flight, so a client flooding one account is refused instead of queueing on that account's
+ * row locks and pool connections in front of everybody else; all requests together get a concurrency limit
+ * that follows their latency (see {@link AdaptiveLimit}). Refusals throw {@link TooManyRequestsException}.
+ */
+@Component
+public class AccountAdmission implements SchedulingConfigurer {
+    private static final Permit NONE = new Permit(null, new String[0], false);
+
+    private final AdmissionProperties properties;
+    private final AdaptiveLimit limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<String, Integer> accountsInFlight = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder accountLimited = new LongAdder();
+    private final LongAdder globalLimited = new LongAdder();
+
+    public AccountAdmission(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.limit = new AdaptiveLimit(properties.getInitialLimit(), properties.getMinLimit(),
+                properties.getMaxLimit(), properties.getLatencyTolerance(), properties.getSmoothing(),
+                properties.getWindow());
+        counter(meterRegistry, admitted, "admitted");
+        counter(meterRegistry, rateLimited, "account_rate");
+        counter(meterRegistry, accountLimited, "account_concurrency");
+        counter(meterRegistry, globalLimited, "global_limit");
+        Gauge.builder("account.admission.limit", limit, AdaptiveLimit::current)
+                .description("Current global concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("account.admission.in_flight", inFlight, AtomicInteger::get)
+                .description("Admitted requests still running")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        if (properties.isEnabled() && properties.getPerAccountRate() > 0) {
+            registrar.addFixedDelayTask(this::prune, properties.getPruneInterval());
+        }
+    }
+
+    /**
+     * Admits a request under the global limit and, when {@code accountNumber} is not null, that account's
+     * limits. Closing the permit feeds the request's latency back into the global limit.
+     */
+    public Permit acquire(String accountNumber) {
+        if (!properties.isEnabled()) {
+            return NONE;
+        }
+        String[] accounts = accountNumber == null ? new String[0] : new String[]{accountNumber};
+        acquireAccounts(accounts);
+        int current = inFlight.incrementAndGet();
+        if (current > limit.current()) {
+            inFlight.decrementAndGet();
+            releaseAccounts(accounts, accounts.length);
+            globalLimited.increment();
+            throw new TooManyRequestsException("Server is at its concurrency limit", retryAfterSeconds());
+        }
+        admitted.increment();
+        return new Permit(this, accounts, true);
+    }
+
+    /**
+     * Admits a request that already holds a global permit under the limits of every given account, e.g. both
+     * sides of a transfer, whose account numbers are only known once the body has been read.
+     */
+    public Permit acquireAccounts(String first, String second) {
+        if (!properties.isEnabled()) {
+            return NONE;
+        }
+        String[] accounts = first == null || first.equals(second) ? new String[]{second}
+                : second == null ? new String[]{first} : new String[]{first, second};
+        if (accounts[0] == null) {
+            return NONE;
+        }
+        acquireAccounts(accounts);
+        return new Permit(this, accounts, false);
+    }
+
+    void prune() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket ->
+                bucket.isFull(now, properties.getPerAccountRate(), properties.getPerAccountBurst()));
+    }
+
+    private void acquireAccounts(String[] accounts) {
+        if (properties.getPerAccountRate() > 0) {
+            long now = System.nanoTime();
+            for (String account : accounts) {
+                long waitNanos = buckets
+                        .computeIfAbsent(account, key -> new TokenBucket(properties.getPerAccountBurst(), now))
+                        .tryConsume(now, properties.getPerAccountRate(), properties.getPerAccountBurst());
+                if (waitNanos > 0) {
+                    rateLimited.increment();
+                    throw new TooManyRequestsException("Too many requests for account " + account,
+                            Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+                }
+            }
+        }
+        int perAccount = properties.getPerAccountConcurrency();
+        if (perAccount <= 0) {
+            return;
+        }
+        for (int i = 0; i < accounts.length; i++) {
+            boolean[] acquired = {false};
+            accountsInFlight.compute(accounts[i], (key, count) -> {
+                int running = count == null ? 0 : count;
+                if (running >= perAccount) {
+                    return count;
+                }
+                acquired[0] = true;
+                return running + 1;
+            });
+            if (!acquired[0]) {
+                releaseAccounts(accounts, i);
+                accountLimited.increment();
+                throw new TooManyRequestsException("Too many concurrent requests for account " + accounts[i],
+                        retryAfterSeconds());
+            }
+        }
+    }
+
+    private void releaseAccounts(String[] accounts, int acquired) {
+        if (properties.getPerAccountConcurrency() <= 0) {
+            return;
+        }
+        for (int i = 0; i < acquired; i++) {
+            accountsInFlight.computeIfPresent(accounts[i], (key, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    private void release(Permit permit) {
+        releaseAccounts(permit.accounts, permit.accounts.length);
+        if (permit.global) {
+            limit.sample(System.nanoTime() - permit.startNanos, inFlight.getAndDecrement());
+        }
+    }
+
+    private long retryAfterSeconds() {
+        return Math.max(1, properties.getRetryAfter().toSeconds());
+    }
+
+    private static void counter(MeterRegistry meterRegistry, LongAdder count, String result) {
+        FunctionCounter.builder("account.admission.requests", count, LongAdder::sum)
+                .description("Requests admitted or refused by admission control")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Held while an admitted request runs; closing it more than once has no further effect.
+     */
+    public static final class Permit implements AutoCloseable {
+        private final AccountAdmission admission;
+        private final String[] accounts;
+        private final boolean global;
+        private final long startNanos = System.nanoTime();
+        private boolean closed;
+
+        private Permit(AccountAdmission admission, String[] accounts, boolean global) {
+            this.admission = admission;
+            this.accounts = accounts;
+            this.global = global;
+        }
+
+        @Override
+        public void close() {
+            if (admission != null && !closed) {
+                closed = true;
+                admission.release(this);
+            }
+        }
+    }
+
+    private static final class TokenBucket {
+        private double tokens;
+        private long refilledAt;
+
+        private TokenBucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.refilledAt = now;
+        }
+
+        /**
+         * Takes a token and returns 0, or returns how long until one is available.
+         */
+        synchronized long tryConsume(long now, double rate, int burst) {
+            refill(now, rate, burst);
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            return (long) ((1 - tokens) / rate * 1e9);
+        }
+
+        synchronized boolean isFull(long now, double rate, int burst) {
+            refill(now, rate, burst);
+            return tokens >= burst;
+        }
+
+        private void refill(long now, double rate, int burst) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * rate / 1e9);
+            refilledAt = now;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.picheTest.admission;
+
+/**
+ * Concurrency limit driven by latency, after the gradient limiter of Netflix's concurrency-limits: each window's
+ * average latency is compared with a slow moving average of the previous windows. While it stays within the
+ * tolerance the limit grows by about its square root per window; past it the limit shrinks in proportion, down
+ * to half per window.
+ */
+final class AdaptiveLimit {
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final int window;
+
+    private volatile int limit;
+    private double estimate;
+    private double longLatency;
+    private long windowNanos;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing, int window) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.window = window;
+        this.limit = initialLimit;
+        this.estimate = initialLimit;
+    }
+
+    int current() {
+        return limit;
+    }
+
+    synchronized void sample(long latencyNanos, int inFlight) {
+        windowNanos += latencyNanos;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+        if (++windowSamples < window) {
+            return;
+        }
+        double shortLatency = (double) windowNanos / windowSamples;
+        int maxInFlight = windowMaxInFlight;
+        windowNanos = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+
+        longLatency = longLatency == 0 ? shortLatency : longLatency + (shortLatency - longLatency) / 20;
+        // after a long overload the average has crept up; let it fall back quickly once latency recovers
+        if (longLatency > 2 * shortLatency) {
+            longLatency *= 0.95;
+        }
+        // nothing learned about the limit while far from reaching it
+        if (maxInFlight < estimate / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longLatency / shortLatency));
+        double next = estimate * gradient + Math.sqrt(estimate);
+        estimate = Math.max(minLimit, Math.min(maxLimit, estimate * (1 - smoothing) + next * smoothing));
+        limit = (int) estimate;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.picheTest.admission;
+
+import lombok.Getter;
+
+/**
+ * Answered with 429 and a Retry-After header. Thrown for every refused request of a flood, so it carries no
+ * stack trace.
+ */
+@Getter
+public class TooManyRequestsException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -1,11 +1,22 @@
 package com.example.picheTest.api;
 
+import com.example.picheTest.admission.AccountAdmission;
+import com.example.picheTest.events.TransactionEventStream;
+import com.example.picheTest.model.StatementFormat;
 import com.example.picheTest.model.request.AccountCreateRQ;
 import com.example.picheTest.model.request.DepositRQ;
 import com.example.picheTest.model.request.TransferRQ;
 import com.example.picheTest.model.request.WithdrawRQ;
+import com.example.picheTest.model.response.BalanceRS;
+import com.example.picheTest.model.response.BulkImportRS;
+import com.example.picheTest.model.response.TransactionEventRS;
+import com.example.picheTest.model.response.TransferResultRS;
 import com.example.picheTest.repository.entity.Account;
+import com.example.picheTest.repository.entity.TransactionHistory;
+import com.example.picheTest.repository.entity.TransactionType;
+import com.example.picheTest.service.AccountImporter;
 import com.example.picheTest.service.AccountService;
+import com.example.picheTest.service.TransactionHistoryCursor;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -14,9 +25,17 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -24,21 +43,59 @@ import java.util.List;
 @AllArgsConstructor
 @Tag(name = "Account Management", description = "Operations related to bank accounts")
 class AccountController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private AccountService service;
+    private AccountImporter importer;
+    private TransactionEventStream eventStream;
+    private AccountAdmission admission;
 
     @GetMapping
-    @Operation(summary = "List all accounts")
+    @Operation(summary = "List accounts, one page at a time, ordered by id")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved accounts",
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved accounts; pass X-Next-Cursor as cursor for the next page",
                     content = @Content(schema = @Schema(implementation = Account.class))),
-            @ApiResponse(responseCode = "204", description = "No accounts found")
+            @ApiResponse(responseCode = "204", description = "No accounts found"),
+            @ApiResponse(responseCode = "422", description = "Invalid page size")
     })
-    public ResponseEntity<List<Account>> getAllAccounts() {
-        List<Account> accounts = service.getAllAccounts();
+    public ResponseEntity<List<Account>> getAllAccounts(@RequestParam(required = false) Long cursor,
+                                                        @RequestParam(required = false) Integer limit) {
+        List<Account> accounts = service.getAccounts(cursor, limit);
         if (accounts.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
-        return ResponseEntity.ok(accounts);
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, String.valueOf(accounts.get(accounts.size() - 1).getId()))
+                .body(accounts);
+    }
+
+    @GetMapping(params = "format=ndjson")
+    @Operation(summary = "Stream all accounts as newline-delimited JSON")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "One account per line")
+    })
+    public ResponseEntity<StreamingResponseBody> streamAccounts() {
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(service::streamAccounts);
+    }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream committed deposits, withdrawals and transfers as server-sent events")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Events in offset order per shard; the SSE id is the position to resume after",
+                    content = @Content(schema = @Schema(implementation = TransactionEventRS.class))),
+            @ApiResponse(responseCode = "404", description = "Account not found"),
+            @ApiResponse(responseCode = "422", description = "Invalid offset")
+    })
+    public SseEmitter streamEvents(
+            @RequestParam(name = "account", required = false) List<String> accountNumbers,
+            @RequestParam(required = false) String after,
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        return eventStream.subscribe(accountNumbers == null ? List.of() : accountNumbers,
+                lastEventId != null ? lastEventId : after);
     }
 
     @GetMapping("/{accountNumber}")
@@ -52,6 +109,66 @@ class AccountController {
         return ResponseEntity.ok().body(service.getAccount(accountNumber));
     }
 
+    @GetMapping("/{accountNumber}/balance")
+    @Operation(summary = "Get an account's balance, now or as of a point in time")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the balance",
+                    content = @Content(schema = @Schema(implementation = BalanceRS.class))),
+            @ApiResponse(responseCode = "404", description = "Account not found")
+    })
+    public ResponseEntity<BalanceRS> getBalance(
+            @PathVariable String accountNumber,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+        return ResponseEntity.ok().body(service.getBalance(accountNumber, asOf));
+    }
+
+    @GetMapping("/{accountNumber}/transactions")
+    @Operation(summary = "List an account's transactions, newest first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved transactions; pass X-Next-Cursor as cursor for the next page",
+                    content = @Content(schema = @Schema(implementation = TransactionHistory.class))),
+            @ApiResponse(responseCode = "204", description = "No transactions found"),
+            @ApiResponse(responseCode = "404", description = "Account not found"),
+            @ApiResponse(responseCode = "422", description = "Invalid filter, cursor or page size")
+    })
+    public ResponseEntity<List<TransactionHistory>> getTransactions(
+            @PathVariable String accountNumber,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) TransactionType type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        List<TransactionHistory> transactions = service.getTransactions(accountNumber, from, to, type, cursor, limit);
+        if (transactions.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, TransactionHistoryCursor.encode(transactions.get(transactions.size() - 1)))
+                .body(transactions);
+    }
+
+    @GetMapping("/{accountNumber}/statement")
+    @Operation(summary = "Export an account's transactions in a date range, oldest first, as CSV or NDJSON")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statement streamed, one transaction per line"),
+            @ApiResponse(responseCode = "404", description = "Account not found"),
+            @ApiResponse(responseCode = "422", description = "Invalid date range or format")
+    })
+    public ResponseEntity<StreamingResponseBody> exportStatement(
+            @PathVariable String accountNumber,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "csv") String format) {
+        StatementFormat statementFormat = StatementFormat.of(format);
+        long accountId = service.getStatementAccount(accountNumber, from, to).getId();
+        return ResponseEntity.ok()
+                .contentType(statementFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("statement-" + accountNumber + "." + statementFormat.getExtension())
+                        .build().toString())
+                .body(outputStream -> service.exportStatement(accountId, from, to, statementFormat, outputStream));
+    }
+
     @PostMapping
     @Operation(summary = "Create a new account")
     @ApiResponses(value = {
@@ -63,16 +180,33 @@ class AccountController {
         return ResponseEntity.status(HttpStatus.CREATED).body(service.createAccount(accountCreateRQ));
     }
 
+    @PostMapping(value = "/bulk", consumes = {"text/csv", "application/x-ndjson"})
+    @Operation(summary = "Create many accounts from a CSV (accountNumber,balance) or NDJSON stream")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import committed; see the report for duplicates and invalid records",
+                    content = @Content(schema = @Schema(implementation = BulkImportRS.class))),
+            @ApiResponse(responseCode = "422", description = "Malformed NDJSON, nothing was imported")
+    })
+    public ResponseEntity<BulkImportRS> importAccounts(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                       InputStream body) {
+        StatementFormat format = StatementFormat.CSV.getMediaType().isCompatibleWith(contentType)
+                ? StatementFormat.CSV : StatementFormat.NDJSON;
+        return ResponseEntity.ok().body(importer.importAccounts(body, format));
+    }
+
     @PostMapping("/{accountNumber}/deposit")
     @Operation(summary = "Deposit funds into an account")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully deposited funds",
                     content = @Content(schema = @Schema(implementation = Account.class))),
-            @ApiResponse(responseCode = "422", description = "Invalid deposit request"),
-            @ApiResponse(responseCode = "404", description = "Account not found")
+            @ApiResponse(responseCode = "422", description = "Invalid deposit request, or Idempotency-Key reused for another request"),
+            @ApiResponse(responseCode = "404", description = "Account not found"),
+            @ApiResponse(responseCode = "409", description = "A request with the same Idempotency-Key is still running, see Retry-After"),
+            @ApiResponse(responseCode = "429", description = "Too many requests for the account, see Retry-After")
     })
-    public ResponseEntity<Account> deposit(@PathVariable String accountNumber, @RequestBody DepositRQ depositRQ) {
-        return ResponseEntity.ok().body(service.deposit(accountNumber, depositRQ));
+    public ResponseEntity<Account> deposit(@PathVariable String accountNumber, @RequestBody DepositRQ depositRQ,
+                                           @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return ResponseEntity.ok().body(service.deposit(accountNumber, depositRQ, idempotencyKey));
     }
 
     @PostMapping("/{accountNumber}/withdraw")
@@ -80,11 +214,14 @@ class AccountController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully withdrew funds",
                     content = @Content(schema = @Schema(implementation = Account.class))),
-            @ApiResponse(responseCode = "422", description = "Invalid withdraw request"),
-            @ApiResponse(responseCode = "404", description = "Account not found")
+            @ApiResponse(responseCode = "422", description = "Invalid withdraw request, or Idempotency-Key reused for another request"),
+            @ApiResponse(responseCode = "404", description = "Account not found"),
+            @ApiResponse(responseCode = "409", description = "A request with the same Idempotency-Key is still running, see Retry-After"),
+            @ApiResponse(responseCode = "429", description = "Too many requests for the account, see Retry-After")
     })
-    public ResponseEntity<Account> withdraw(@PathVariable String accountNumber, @RequestBody WithdrawRQ withdrawRQ) {
-        return ResponseEntity.ok().body(service.withdraw(accountNumber, withdrawRQ));
+    public ResponseEntity<Account> withdraw(@PathVariable String accountNumber, @RequestBody WithdrawRQ withdrawRQ,
+                                            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return ResponseEntity.ok().body(service.withdraw(accountNumber, withdrawRQ, idempotencyKey));
     }
 
     @PostMapping("/transfer")
@@ -92,11 +229,28 @@ class AccountController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully transferred funds",
                     content = @Content(schema = @Schema(implementation = Boolean.class))),
-            @ApiResponse(responseCode = "422", description = "Invalid transfer request"),
-            @ApiResponse(responseCode = "404", description = "One or more accounts not found")
+            @ApiResponse(responseCode = "422", description = "Invalid transfer request, or Idempotency-Key reused for another request"),
+            @ApiResponse(responseCode = "404", description = "One or more accounts not found"),
+            @ApiResponse(responseCode = "409", description = "A request with the same Idempotency-Key is still running, see Retry-After"),
+            @ApiResponse(responseCode = "429", description = "Too many requests for one of the accounts, see Retry-After")
+    })
+    public ResponseEntity<Boolean> transfer(@RequestBody TransferRQ transferRQ,
+                                            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        try (AccountAdmission.Permit ignored = admission.acquireAccounts(transferRQ.getFromAccountNumber(),
+                transferRQ.getToAccountNumber())) {
+            return ResponseEntity.ok().body(service.transfer(transferRQ, idempotencyKey));
+        }
+    }
+
+    @PostMapping("/transfers/batch")
+    @Operation(summary = "Apply a batch of transfers and report the outcome of each one")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see per-item results",
+                    content = @Content(schema = @Schema(implementation = TransferResultRS.class))),
+            @ApiResponse(responseCode = "422", description = "Empty or oversized batch")
     })
-    public ResponseEntity<Boolean> transfer(@RequestBody TransferRQ transferRQ) {
-        return ResponseEntity.ok().body(service.transfer(transferRQ));
+    public ResponseEntity<List<TransferResultRS>> transferBatch(@RequestBody List<TransferRQ> transfers) {
+        return ResponseEntity.ok().body(service.transferBatch(transfers));
     }
 }
 
@@ -0,0 +1,57 @@
+package com.example.picheTest.api;
+
+import com.example.picheTest.admission.AccountAdmission;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.util.UriUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs {@link AccountAdmission} ahead of the database bulkhead, so a refused request costs neither a permit nor
+ * a connection. The account is taken from the path; transfers name theirs in the body, which
+ * {@link AccountController} admits once it has been read.
+ */
+public class AdmissionInterceptor implements AsyncHandlerInterceptor {
+    private static final String PERMIT = AdmissionInterceptor.class.getName() + ".PERMIT";
+    private static final Pattern ACCOUNT_SEGMENT =
+            Pattern.compile("^/accounts/(?!(?:transfer|transfers|bulk|events)(?:/|$))([^/]+)");
+
+    private final AccountAdmission admission;
+
+    public AdmissionInterceptor(AccountAdmission admission) {
+        this.admission = admission;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+        Matcher matcher = ACCOUNT_SEGMENT.matcher(request.getRequestURI().substring(request.getContextPath().length()));
+        String accountNumber = matcher.find() ? UriUtils.decode(matcher.group(1), StandardCharsets.UTF_8) : null;
+        request.setAttribute(PERMIT, admission.acquire(accountNumber));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        release(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        release(request);
+    }
+
+    private void release(HttpServletRequest request) {
+        if (request.getAttribute(PERMIT) instanceof AccountAdmission.Permit permit) {
+            request.removeAttribute(PERMIT);
+            permit.close();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.picheTest.api;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the requests that run their JDBC round trips at the same time. With virtual threads nothing else limits
+ * how many requests reach the service layer, so without it thousands of them would queue inside the connection
+ * pool; here they wait on a fair semaphore sized to the pool, and give up with 503 after the acquire timeout.
+ */
+public class DatabaseBulkhead implements AsyncHandlerInterceptor {
+    private static final String PERMIT = DatabaseBulkhead.class.getName() + ".PERMIT";
+
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+
+    public DatabaseBulkhead(int permits, Duration acquireTimeout) {
+        this.permits = new Semaphore(permits, true);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws InterruptedException {
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+        if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            return false;
+        }
+        request.setAttribute(PERMIT, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        release(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        release(request);
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    private void release(HttpServletRequest request) {
+        if (request.getAttribute(PERMIT) != null) {
+            request.removeAttribute(PERMIT);
+            permits.release();
+        }
+    }
+}
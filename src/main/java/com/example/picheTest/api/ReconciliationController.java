@@ -0,0 +1,61 @@
+package com.example.picheTest.api;
+
+import com.example.picheTest.model.response.ReconciliationRS;
+import com.example.picheTest.reconciliation.ReconciliationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/reconciliations")
+@AllArgsConstructor
+@Tag(name = "Reconciliation", description = "Checks of every balance against its transaction history")
+class ReconciliationController {
+    private ReconciliationService service;
+
+    @PostMapping
+    @Operation(summary = "Start a reconciliation run in the background")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Run started; poll its report",
+                    content = @Content(schema = @Schema(implementation = ReconciliationRS.class))),
+            @ApiResponse(responseCode = "422", description = "No accounts"),
+            @ApiResponse(responseCode = "500", description = "Another run is running")
+    })
+    public ResponseEntity<ReconciliationRS> start() {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(service.start());
+    }
+
+    @PostMapping("/{id}/resume")
+    @Operation(summary = "Resume a failed or abandoned run from its last checked chunk")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Run resumed",
+                    content = @Content(schema = @Schema(implementation = ReconciliationRS.class))),
+            @ApiResponse(responseCode = "404", description = "Run not found"),
+            @ApiResponse(responseCode = "422", description = "Run already completed")
+    })
+    public ResponseEntity<ReconciliationRS> resume(@PathVariable long id) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(service.resume(id));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Progress and mismatch report of a run")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Report",
+                    content = @Content(schema = @Schema(implementation = ReconciliationRS.class))),
+            @ApiResponse(responseCode = "404", description = "Run not found")
+    })
+    public ResponseEntity<ReconciliationRS> getReport(@PathVariable long id) {
+        return ResponseEntity.ok().body(service.getReport(id));
+    }
+}
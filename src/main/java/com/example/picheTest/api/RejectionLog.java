@@ -0,0 +1,53 @@
+package com.example.picheTest.api;
+
+import com.example.picheTest.error.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logs at most {@code logsPerSecond} rejections of each {@link ErrorCode} per second and counts the others, so a
+ * burst of identical 4xx answers costs a counter increment each rather than a log line each.
+ */
+@Slf4j
+final class RejectionLog {
+    private final int logsPerSecond;
+    private final Window[] windows = new Window[ErrorCode.values().length];
+
+    RejectionLog(int logsPerSecond) {
+        this.logsPerSecond = logsPerSecond;
+        for (int i = 0; i < windows.length; i++) {
+            windows[i] = new Window();
+        }
+    }
+
+    void log(ErrorCode code, String message) {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        Window window = windows[code.ordinal()];
+        long second = System.currentTimeMillis() / 1000;
+        long current = window.second.get();
+        if (current != second && window.second.compareAndSet(current, second)) {
+            window.logged.set(0);
+        }
+        if (window.logged.incrementAndGet() > logsPerSecond) {
+            window.suppressed.increment();
+            return;
+        }
+        long suppressed = window.suppressed.sumThenReset();
+        if (suppressed > 0) {
+            log.info("{}: {} ({} similar not logged)", code, message, suppressed);
+        } else {
+            log.info("{}: {}", code, message);
+        }
+    }
+
+    private static final class Window {
+        final AtomicLong second = new AtomicLong();
+        final AtomicInteger logged = new AtomicInteger();
+        final LongAdder suppressed = new LongAdder();
+    }
+}
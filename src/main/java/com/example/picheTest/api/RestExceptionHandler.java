@@ -1,34 +1,81 @@
 package com.example.picheTest.api;
 
+import com.example.picheTest.admission.TooManyRequestsException;
+import com.example.picheTest.config.ErrorLogProperties;
+import com.example.picheTest.error.AccountNotFoundException;
+import com.example.picheTest.error.BusinessException;
+import com.example.picheTest.error.ErrorCode;
+import com.example.picheTest.error.RequestInProgressException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.webjars.NotFoundException;
 
+/**
+ * Answers with the exception's message as the body and its {@link ErrorCode} in the {@code X-Error-Code} header.
+ * Only unexpected failures are logged with their stack trace; rejections are logged through {@link RejectionLog}.
+ */
 @Slf4j
 @ControllerAdvice
 public class RestExceptionHandler {
+    static final String ERROR_CODE_HEADER = "X-Error-Code";
+
+    private final RejectionLog rejectionLog;
+
+    public RestExceptionHandler(ErrorLogProperties properties) {
+        this.rejectionLog = new RejectionLog(properties.getLogsPerSecond());
+    }
 
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<String> handleRuntimeException(RuntimeException e) {
         log.error("", e);
-        return ResponseEntity.internalServerError()
-                .body(e.getMessage());
+        return respond(HttpStatus.INTERNAL_SERVER_ERROR, ErrorCode.INTERNAL_ERROR, e.getMessage());
     }
 
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<String> handleIllegalArgumentException(IllegalArgumentException e) {
-        log.error("", e);
-        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
-                .body(e.getMessage());
+        return reject(HttpStatus.UNPROCESSABLE_ENTITY, ErrorCode.INVALID_REQUEST, e.getMessage());
+    }
+
+    @ExceptionHandler(BusinessException.class)
+    public ResponseEntity<String> handleBusinessException(BusinessException e) {
+        return reject(HttpStatus.UNPROCESSABLE_ENTITY, e.getCode(), e.getMessage());
     }
 
     @ExceptionHandler(NotFoundException.class)
     public ResponseEntity<String> handleNotFoundException(NotFoundException e) {
-        log.error("", e);
-        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+        ErrorCode code = e instanceof AccountNotFoundException notFound ? notFound.getCode() : ErrorCode.NOT_FOUND;
+        return reject(HttpStatus.NOT_FOUND, code, e.getMessage());
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<String> handleTooManyRequestsException(TooManyRequestsException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(ERROR_CODE_HEADER, ErrorCode.TOO_MANY_REQUESTS.name())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
+
+    @ExceptionHandler(RequestInProgressException.class)
+    public ResponseEntity<String> handleRequestInProgressException(RequestInProgressException e) {
+        rejectionLog.log(e.getCode(), e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(ERROR_CODE_HEADER, e.getCode().name())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
                 .body(e.getMessage());
     }
+
+    private ResponseEntity<String> reject(HttpStatus status, ErrorCode code, String message) {
+        rejectionLog.log(code, message);
+        return respond(status, code, message);
+    }
+
+    private static ResponseEntity<String> respond(HttpStatus status, ErrorCode code, String message) {
+        return ResponseEntity.status(status)
+                .header(ERROR_CODE_HEADER, code.name())
+                .body(message);
+    }
 }
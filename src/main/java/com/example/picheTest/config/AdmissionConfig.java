@@ -0,0 +1,24 @@
+package com.example.picheTest.config;
+
+import com.example.picheTest.admission.AccountAdmission;
+import com.example.picheTest.api.AdmissionInterceptor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class AdmissionConfig implements WebMvcConfigurer {
+    private final AccountAdmission admission;
+
+    public AdmissionConfig(AccountAdmission admission) {
+        this.admission = admission;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AdmissionInterceptor(admission))
+                .addPathPatterns("/accounts", "/accounts/**")
+                .order(Ordered.HIGHEST_PRECEDENCE);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.picheTest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "account.admission")
+public class AdmissionProperties {
+    private boolean enabled = true;
+
+    /**
+     * Requests allowed to work on the same account at once; 0 means unlimited.
+     */
+    private int perAccountConcurrency = 4;
+
+    /**
+     * Sustained requests per second allowed per account; 0 disables the token buckets.
+     */
+    private double perAccountRate = 0;
+
+    /**
+     * Requests an idle account may send at once before {@code per-account-rate} applies.
+     */
+    private int perAccountBurst = 50;
+
+    /**
+     * Starting point of the global concurrency limit, which then follows observed latency between
+     * {@code min-limit} and {@code max-limit}.
+     */
+    private int initialLimit = 100;
+
+    private int minLimit = 10;
+
+    private int maxLimit = 1000;
+
+    /**
+     * How far the recent latency may rise above the long-term average before the global limit shrinks.
+     */
+    private double latencyTolerance = 2.0;
+
+    /**
+     * Completed requests per limit adjustment.
+     */
+    private int window = 100;
+
+    /**
+     * Fraction of each adjustment applied to the global limit.
+     */
+    private double smoothing = 0.2;
+
+    /**
+     * Retry-After of requests refused by a concurrency limit.
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    /**
+     * How often the token buckets of idle accounts are dropped.
+     */
+    private Duration pruneInterval = Duration.ofMinutes(1);
+}
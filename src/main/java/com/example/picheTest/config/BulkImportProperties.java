@@ -0,0 +1,13 @@
+package com.example.picheTest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "account.bulk")
+public class BulkImportProperties {
+    /**
+     * Most duplicate account numbers and invalid record numbers listed in an import report; all are counted.
+     */
+    private int maxReported = 1000;
+}
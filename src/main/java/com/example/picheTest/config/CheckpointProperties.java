@@ -0,0 +1,23 @@
+package com.example.picheTest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "account.checkpoints")
+public class CheckpointProperties {
+    private boolean enabled = true;
+
+    /**
+     * Time between checkpoint runs; a point-in-time query replays at most about this much history per account.
+     */
+    private Duration interval = Duration.ofMinutes(5);
+
+    /**
+     * How long a run waits for the transactions in progress at its cutoff to finish before it gives up until the
+     * next interval.
+     */
+    private Duration waitTimeout = Duration.ofMinutes(1);
+}
@@ -0,0 +1,21 @@
+package com.example.picheTest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "account.concurrency")
+public class ConcurrencyProperties {
+    /**
+     * Requests allowed to work against the database at once when running on virtual threads; 0 means the
+     * connection pool size.
+     */
+    private int permits = 0;
+
+    /**
+     * How long a request waits for a permit before it is answered with 503.
+     */
+    private Duration acquireTimeout = Duration.ofSeconds(5);
+}
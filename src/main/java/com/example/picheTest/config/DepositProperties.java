@@ -0,0 +1,19 @@
+package com.example.picheTest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "account.deposit")
+public class DepositProperties {
+    /**
+     * Merge concurrent deposits to the same account into one balance update; ignored by the ledger engine,
+     * which batches on its own.
+     */
+    private boolean combining = false;
+
+    /**
+     * Most deposits merged into one database transaction.
+     */
+    private int maxCombined = 256;
+}
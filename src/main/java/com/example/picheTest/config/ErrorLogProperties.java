@@ -0,0 +1,14 @@
+package com.example.picheTest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "account.errors")
+public class ErrorLogProperties {
+    /**
+     * Rejected requests logged per second and error code; the rest are only counted and reported with the next
+     * line that is logged.
+     */
+    private int logsPerSecond = 10;
+}
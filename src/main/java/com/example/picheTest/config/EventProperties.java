@@ -0,0 +1,38 @@
+package com.example.picheTest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "account.events")
+public class EventProperties {
+    /**
+     * Time between relay runs, which number new outbox rows and push them to this instance's subscribers.
+     */
+    private Duration relayInterval = Duration.ofMillis(100);
+
+    /**
+     * Outbox rows numbered, pushed or replayed per round trip.
+     */
+    private int batchSize = 1000;
+
+    /**
+     * Events queued per subscriber. A subscriber that falls this far behind stops receiving pushes and reads
+     * from the outbox at its own pace until it has caught up.
+     */
+    private int subscriberBuffer = 1024;
+
+    private int maxSubscribers = 500;
+
+    /**
+     * Idle time after which a comment line is sent, so dead connections are noticed and proxies keep them open.
+     */
+    private Duration heartbeat = Duration.ofSeconds(15);
+
+    /**
+     * Numbered events kept for resuming subscribers; older ones are deleted by the relay.
+     */
+    private long retained = 10_000_000;
+}
@@ -0,0 +1,33 @@
+package com.example.picheTest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.time.Period;
+import java.time.temporal.ChronoUnit;
+
+@Data
+@ConfigurationProperties(prefix = "account.history")
+public class HistoryPartitionProperties {
+    /**
+     * Range of one {@code transaction_history} partition: DAYS, WEEKS or MONTHS. Changing it only affects
+     * partitions created afterwards.
+     */
+    private ChronoUnit partitionUnit = ChronoUnit.MONTHS;
+
+    /**
+     * Partitions kept created beyond the current one.
+     */
+    private int premake = 3;
+
+    /**
+     * Age past which a partition is archived and dropped; zero keeps history forever. Point-in-time balances
+     * before the archived range are no longer available.
+     */
+    private Period retention = Period.ofMonths(24);
+
+    private String archiveDirectory = "archive";
+
+    private Duration maintenanceInterval = Duration.ofHours(1);
+}
@@ -0,0 +1,18 @@
+package com.example.picheTest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "account.id-cache")
+public class IdCacheProperties {
+    /**
+     * Entries kept, rounded up to a power of two; 0 disables the cache. Each entry takes 17 bytes.
+     */
+    private int capacity = 262_144;
+
+    /**
+     * Entries per set; a set is scanned linearly and evicts with its own CLOCK hand.
+     */
+    private int ways = 8;
+}
@@ -0,0 +1,27 @@
+package com.example.picheTest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "account.idempotency")
+public class IdempotencyProperties {
+    /**
+     * Recent results kept in memory; older ones are read back from {@code idempotency_keys}.
+     */
+    private int capacity = 100_000;
+
+    /**
+     * How long a key is honoured; older rows are deleted.
+     */
+    private Duration retention = Duration.ofHours(24);
+
+    private Duration pruneInterval = Duration.ofHours(1);
+
+    /**
+     * How long a duplicate waits for the attempt in progress before it is refused.
+     */
+    private Duration waitTimeout = Duration.ofSeconds(10);
+}
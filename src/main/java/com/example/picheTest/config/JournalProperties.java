@@ -0,0 +1,32 @@
+package com.example.picheTest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "account.journal")
+public class JournalProperties {
+    /**
+     * Write history through the local journal instead of inserting it in the request transaction.
+     */
+    private boolean enabled = false;
+
+    private Path directory = Path.of("journal");
+
+    /**
+     * Most history rows that may be journaled but not yet written to the database.
+     */
+    private int capacity = 20_000;
+
+    /**
+     * How long a committing transaction waits for journal capacity before it is rolled back.
+     */
+    private Duration offerTimeout = Duration.ofSeconds(1);
+
+    private int batchSize = 1_000;
+
+    private long segmentSize = 64L * 1024 * 1024;
+}
@@ -0,0 +1,30 @@
+package com.example.picheTest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "account.ledger")
+public class LedgerProperties {
+    /**
+     * Number of shards, each owned by one writer thread; 0 means one per available processor.
+     */
+    private int shards = 0;
+
+    /**
+     * Commands each shard can have queued; rounded up to a power of two.
+     */
+    private int ringCapacity = 8192;
+
+    /**
+     * Most commands a shard applies and persists in one database transaction.
+     */
+    private int batchSize = 512;
+
+    /**
+     * How long a request waits for room in a full shard ring, and then for its batch to be persisted.
+     */
+    private Duration timeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,17 @@
+package com.example.picheTest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "account.pagination")
+public class PaginationProperties {
+    private int defaultPageSize = 100;
+
+    private int maxPageSize = 1000;
+
+    /**
+     * Rows fetched per round trip by the server-side cursors behind the streaming endpoints.
+     */
+    private int streamFetchSize = 1000;
+}
@@ -0,0 +1,43 @@
+package com.example.picheTest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "account.reconciliation")
+public class ReconciliationProperties {
+    /**
+     * When the nightly run starts; {@code -} disables it, leaving only runs started over HTTP.
+     */
+    private String cron = "0 0 2 * * *";
+
+    /**
+     * Account ids per chunk. A chunk is checked in one snapshot, holding one long per id, and is the unit of
+     * progress a resumed run skips.
+     */
+    private int chunkSize = 10_000;
+
+    /**
+     * Chunks checked at the same time, each holding a database connection while it runs.
+     */
+    private int parallelism = 4;
+
+    /**
+     * History rows fetched per round trip.
+     */
+    private int fetchSize = 10_000;
+
+    /**
+     * Rows read per second across all chunks; 0 means unthrottled.
+     */
+    private long maxRowsPerSecond = 500_000;
+
+    /**
+     * A running run whose heartbeat is older than this is considered abandoned, and the next start resumes it.
+     */
+    private Duration lease = Duration.ofMinutes(5);
+
+    private int maxReported = 1000;
+}
@@ -0,0 +1,54 @@
+package com.example.picheTest.config;
+
+import com.example.picheTest.replica.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Active with {@code account.replica.enabled=true}. Connections are handed out lazily, so by the time one is
+ * really needed the transaction has marked it read-only or not: read-only transactions (Spring Data finders,
+ * the streaming exports) then run on the replica, everything else on the primary.
+ */
+@Configuration
+@ConditionalOnProperty("account.replica.enabled")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource, ReplicaProperties properties,
+                                                             MeterRegistry meterRegistry) {
+        HikariDataSource replica = new HikariDataSource();
+        replica.setPoolName("replica");
+        replica.setJdbcUrl(properties.getUrl());
+        replica.setUsername(properties.getUsername());
+        replica.setPassword(properties.getPassword());
+        replica.setMaximumPoolSize(properties.getMaximumPoolSize());
+        replica.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+        replica.setReadOnly(true);
+        // a replica that is down at startup must not stop the service, it is just skipped
+        replica.setInitializationFailTimeout(-1);
+        return new ReplicaRoutingDataSource(primaryDataSource, replica, properties, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaRoutingDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaRoutingDataSource);
+        return dataSource;
+    }
+}
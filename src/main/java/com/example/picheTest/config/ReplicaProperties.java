@@ -0,0 +1,45 @@
+package com.example.picheTest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "account.replica")
+public class ReplicaProperties {
+    /**
+     * Send read-only transactions to the replica below; everything else keeps using {@code spring.datasource}.
+     */
+    private boolean enabled = false;
+
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    private int maximumPoolSize = 10;
+
+    /**
+     * How long a read waits for a replica connection before it falls back to the primary.
+     */
+    private Duration connectionTimeout = Duration.ofSeconds(1);
+
+    /**
+     * After a write to an account, reads of that account go to the primary for this long.
+     */
+    private Duration readYourWrites = Duration.ofSeconds(5);
+
+    /**
+     * Replication lag above which reads go to the primary until the replica catches up.
+     */
+    private Duration maxLag = Duration.ofSeconds(10);
+
+    private Duration lagCheckInterval = Duration.ofSeconds(5);
+
+    /**
+     * How long reads stay on the primary after the replica failed to hand out a connection.
+     */
+    private Duration retryAfter = Duration.ofSeconds(30);
+}
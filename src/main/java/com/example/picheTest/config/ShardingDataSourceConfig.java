@@ -0,0 +1,59 @@
+package com.example.picheTest.config;
+
+import com.example.picheTest.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Active with {@code account.sharding.enabled=true}. Every connection, JPA's included, comes from the shard the
+ * calling thread is routed to by {@link com.example.picheTest.sharding.ShardRouter}.
+ */
+@Configuration
+@ConditionalOnProperty("account.sharding.enabled")
+public class ShardingDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource shardZeroDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public ShardRoutingDataSource dataSource(HikariDataSource shardZeroDataSource, ShardingProperties properties,
+                                             ReplicaProperties replicaProperties, JournalProperties journalProperties,
+                                             @Value("${account.transfer.engine:atomic}") String engine) {
+        if (replicaProperties.isEnabled()) {
+            throw new IllegalStateException("account.sharding and account.replica cannot be enabled together");
+        }
+        if ("ledger".equals(engine)) {
+            throw new IllegalStateException("The ledger engine keeps one database's balances and cannot be sharded");
+        }
+        if (journalProperties.isEnabled()) {
+            throw new IllegalStateException("The journal writes history outside the request's shard and cannot be sharded");
+        }
+        List<HikariDataSource> shards = new ArrayList<>();
+        for (ShardingProperties.Shard shard : properties.getShards()) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("shard-" + (shards.size() + 1));
+            dataSource.setJdbcUrl(shard.getUrl());
+            dataSource.setUsername(shard.getUsername());
+            dataSource.setPassword(shard.getPassword());
+            dataSource.setMaximumPoolSize(properties.getMaximumPoolSize());
+            dataSource.setDataSourceProperties(shardZeroDataSource.getDataSourceProperties());
+            shards.add(dataSource);
+        }
+        ShardRoutingDataSource dataSource = new ShardRoutingDataSource(shardZeroDataSource, shards);
+        dataSource.assignIdRanges();
+        return dataSource;
+    }
+}
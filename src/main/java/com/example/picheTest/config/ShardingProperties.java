@@ -0,0 +1,41 @@
+package com.example.picheTest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "account.sharding")
+public class ShardingProperties {
+    /**
+     * Spread accounts over {@code spring.datasource} as shard 0 and the {@link #shards} below as shards 1..n.
+     * The shard count must not change once accounts exist: an account's shard is a hash of its number.
+     */
+    private boolean enabled = false;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    private int maximumPoolSize = 10;
+
+    /**
+     * How often cross-shard transfers left unfinished by a failure are completed.
+     */
+    private Duration recoveryInterval = Duration.ofSeconds(30);
+
+    /**
+     * Cross-shard transfers younger than this are left to the request that started them.
+     */
+    private Duration recoveryDelay = Duration.ofSeconds(30);
+
+    @Data
+    public static class Shard {
+        private String url;
+
+        private String username;
+
+        private String password;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.picheTest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "account.slots")
+public class SlotProperties {
+    /**
+     * Accounts to split up front: account number to number of balance slots.
+     */
+    private Map<String, Integer> split = new HashMap<>();
+
+    /**
+     * Split accounts on their own once their row lock is contended.
+     */
+    private boolean autoSplit = false;
+
+    /**
+     * Slots given to an automatically split account.
+     */
+    private int autoSlots = 8;
+
+    /**
+     * A lock wait at least this long counts as contention.
+     */
+    private Duration contendedWait = Duration.ofMillis(20);
+
+    /**
+     * Contended waits within one window that make an account split.
+     */
+    private int contendedWaitsToSplit = 50;
+
+    private Duration window = Duration.ofMinutes(1);
+}
@@ -0,0 +1,32 @@
+package com.example.picheTest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "account.transfer")
+public class TransferProperties {
+    /**
+     * {@code atomic} (guarded updates under ordered row locks), {@code serializable} (legacy read-modify-write) or
+     * {@code ledger} (in-memory shards, see {@code LedgerEngine}).
+     */
+    private String engine = "atomic";
+
+    private int maxAttempts = 5;
+
+    private Duration initialBackoff = Duration.ofMillis(5);
+
+    private Duration maxBackoff = Duration.ofMillis(200);
+
+    /**
+     * Largest number of transfers accepted by one batch request.
+     */
+    private int maxBatchSize = 10_000;
+
+    /**
+     * Number of batch items applied per database transaction.
+     */
+    private int batchChunkSize = 500;
+}
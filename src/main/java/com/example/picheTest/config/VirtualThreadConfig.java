@@ -0,0 +1,40 @@
+package com.example.picheTest.config;
+
+import com.example.picheTest.api.DatabaseBulkhead;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Active with {@code spring.threads.virtual.enabled=true}, which makes Tomcat run every request, and so every
+ * {@code AccountService} call, on its own virtual thread.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig implements WebMvcConfigurer {
+    private final DatabaseBulkhead bulkhead;
+
+    public VirtualThreadConfig(DataSource dataSource, ConcurrencyProperties properties,
+                               MeterRegistry meterRegistry) throws SQLException {
+        int permits = properties.getPermits() > 0
+                ? properties.getPermits()
+                : dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+        this.bulkhead = new DatabaseBulkhead(permits, properties.getAcquireTimeout());
+        Gauge.builder("account.bulkhead.available", bulkhead, DatabaseBulkhead::availablePermits)
+                .description("Free database permits of the virtual-thread bulkhead")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(bulkhead).addPathPatterns("/accounts", "/accounts/**");
+    }
+}
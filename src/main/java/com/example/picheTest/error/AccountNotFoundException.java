@@ -0,0 +1,22 @@
+package com.example.picheTest.error;
+
+import org.webjars.NotFoundException;
+
+/**
+ * Stackless like {@link BusinessException}, but a {@link NotFoundException} so that it is still answered with 404.
+ */
+public class AccountNotFoundException extends NotFoundException {
+
+    public AccountNotFoundException(String accountNumber) {
+        super("Account with account number " + accountNumber + " not found");
+    }
+
+    public ErrorCode getCode() {
+        return ErrorCode.ACCOUNT_NOT_FOUND;
+    }
+
+    @Override
+    public Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.picheTest.error;
+
+import lombok.Getter;
+
+/**
+ * A request refused for a business reason, such as an overdraft. Rejections like these are ordinary outcomes that
+ * can arrive many times a second, so no stack trace is captured for them.
+ */
+@Getter
+public abstract class BusinessException extends IllegalArgumentException {
+    private final ErrorCode code;
+
+    protected BusinessException(ErrorCode code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    @Override
+    public Throwable fillInStackTrace() {
+        return this;
+    }
+}
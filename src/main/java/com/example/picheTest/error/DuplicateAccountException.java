@@ -0,0 +1,8 @@
+package com.example.picheTest.error;
+
+public class DuplicateAccountException extends BusinessException {
+
+    public DuplicateAccountException(String accountNumber) {
+        super(ErrorCode.DUPLICATE_ACCOUNT, "Account number already exists: " + accountNumber);
+    }
+}
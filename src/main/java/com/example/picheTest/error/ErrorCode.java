@@ -0,0 +1,15 @@
+package com.example.picheTest.error;
+
+/**
+ * Machine-readable reason of an error response, sent in the {@code X-Error-Code} header next to the message.
+ */
+public enum ErrorCode {
+    ACCOUNT_NOT_FOUND,
+    NOT_FOUND,
+    INSUFFICIENT_BALANCE,
+    DUPLICATE_ACCOUNT,
+    INVALID_REQUEST,
+    TOO_MANY_REQUESTS,
+    REQUEST_IN_PROGRESS,
+    INTERNAL_ERROR
+}
@@ -0,0 +1,8 @@
+package com.example.picheTest.error;
+
+public class InsufficientBalanceException extends BusinessException {
+
+    public InsufficientBalanceException(String accountNumber) {
+        super(ErrorCode.INSUFFICIENT_BALANCE, "Account " + accountNumber + " does not have sufficient balance");
+    }
+}
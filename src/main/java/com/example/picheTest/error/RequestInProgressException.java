@@ -0,0 +1,21 @@
+package com.example.picheTest.error;
+
+import lombok.Getter;
+
+/**
+ * A duplicate of a request that is still running; answered with 409 and a Retry-After header, so that clients can
+ * tell it from a request that is wrong. Stackless like {@link BusinessException}.
+ */
+@Getter
+public class RequestInProgressException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public RequestInProgressException(String message, long retryAfterSeconds) {
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public ErrorCode getCode() {
+        return ErrorCode.REQUEST_IN_PROGRESS;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.picheTest.events;
+
+import com.example.picheTest.model.response.TransactionEventRS;
+import com.example.picheTest.repository.TransactionEventRepository;
+import com.example.picheTest.sharding.ShardRouter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One subscriber's position in the event stream. The relay pushes events into a bounded queue without ever
+ * blocking; when the queue is full the subscriber is marked behind and its queue is abandoned, and it replays
+ * from the outbox, one page at a time as fast as its connection drains, until it has caught up. A slow consumer
+ * thus costs at most one queue of memory and never holds up the relay or other subscribers.
+ * <p>
+ * Offsets are numbered per shard, so the position is one offset per shard, written as {@code 12.40.7} (just
+ * {@code 12} without sharding). Events of one shard arrive in offset order; events of different shards are not
+ * ordered against each other.
+ */
+public class EventSubscription {
+    private final TransactionEventRepository repository;
+    private final ShardRouter shards;
+    private final Set<Long> accountIds;
+    private final BlockingQueue<Relayed> queue;
+    private final int pageSize;
+    private final long heartbeatNanos;
+    private final long[] positions;
+    private volatile boolean behind;
+    private volatile boolean closed;
+
+    EventSubscription(TransactionEventRepository repository, ShardRouter shards, Set<Long> accountIds, long[] after,
+                      long[] current, int buffer, int pageSize, Duration heartbeat) {
+        this.repository = repository;
+        this.shards = shards;
+        this.accountIds = accountIds;
+        this.queue = new ArrayBlockingQueue<>(buffer);
+        this.pageSize = pageSize;
+        this.heartbeatNanos = heartbeat.toNanos();
+        this.behind = after != null;
+        this.positions = (after != null ? after : current).clone();
+    }
+
+    /**
+     * Parses a position written by {@link #position()}.
+     */
+    static long[] parsePosition(String value, int shards) {
+        String[] parts = value.split("\\.", -1);
+        if (parts.length != shards) {
+            throw new IllegalArgumentException("Offset must have one number per shard, " + shards + " in all");
+        }
+        long[] positions = new long[shards];
+        for (int shard = 0; shard < shards; shard++) {
+            try {
+                positions[shard] = Long.parseLong(parts[shard]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Offset must be numeric");
+            }
+            if (positions[shard] < 0) {
+                throw new IllegalArgumentException("Offset must not be negative");
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Called by the relay only. Returns {@code false} when the event overflowed the queue.
+     */
+    boolean offer(int shard, TransactionEventRS event) {
+        if (behind || !matches(event)) {
+            return true;
+        }
+        if (queue.offer(new Relayed(shard, event))) {
+            return true;
+        }
+        behind = true;
+        return false;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * Delivers events in offset order until the subscription is closed or the sink fails.
+     */
+    public void run(Sink sink) throws IOException, InterruptedException {
+        while (!closed) {
+            if (behind) {
+                behind = false;
+                queue.clear();
+                catchUp(sink);
+                continue;
+            }
+            Relayed relayed = queue.poll(heartbeatNanos, TimeUnit.NANOSECONDS);
+            if (relayed == null) {
+                sink.heartbeat();
+            } else if (relayed.event().getOffset() > positions[relayed.shard()]) {
+                positions[relayed.shard()] = relayed.event().getOffset();
+                sink.send(relayed.event(), position());
+            }
+        }
+    }
+
+    private void catchUp(Sink sink) throws IOException {
+        for (int shard = 0; shard < positions.length && !closed; shard++) {
+            int current = shard;
+            List<TransactionEventRS> page;
+            do {
+                page = shards.on(current, () -> accountIds.isEmpty()
+                        ? repository.findAfter(positions[current], pageSize)
+                        : repository.findAfter(positions[current], accountIds, pageSize));
+                for (TransactionEventRS event : page) {
+                    positions[current] = event.getOffset();
+                    sink.send(event, position());
+                }
+            } while (page.size() == pageSize && !closed);
+        }
+    }
+
+    /**
+     * The offsets delivered so far, one per shard, to resume after.
+     */
+    private String position() {
+        StringBuilder position = new StringBuilder().append(positions[0]);
+        for (int shard = 1; shard < positions.length; shard++) {
+            position.append('.').append(positions[shard]);
+        }
+        return position.toString();
+    }
+
+    private boolean matches(TransactionEventRS event) {
+        return accountIds.isEmpty()
+                || (event.getAccountIdFrom() != null && accountIds.contains(event.getAccountIdFrom()))
+                || (event.getAccountIdTo() != null && accountIds.contains(event.getAccountIdTo()));
+    }
+
+    record Relayed(int shard, TransactionEventRS event) {
+    }
+
+    public interface Sink {
+        /**
+         * Sends the event along with the position to resume after it.
+         */
+        void send(TransactionEventRS event, String position) throws IOException;
+
+        void heartbeat() throws IOException;
+    }
+}
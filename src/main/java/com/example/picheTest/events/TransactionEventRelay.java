@@ -0,0 +1,137 @@
+package com.example.picheTest.events;
+
+import com.example.picheTest.config.EventProperties;
+import com.example.picheTest.model.response.TransactionEventRS;
+import com.example.picheTest.repository.TransactionEventRepository;
+import com.example.picheTest.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Moves outbox rows to subscribers. Every run, the instance that gets the lock numbers the rows committed since
+ * the previous run and prunes old ones; then every instance reads the rows numbered since it last looked and
+ * pushes them to its own subscribers. Each shard has its own outbox and offsets, so all of this happens per shard.
+ */
+@Slf4j
+@Component
+public class TransactionEventRelay implements SchedulingConfigurer {
+    /**
+     * Numbering rounds per run, so a backlog is worked off without one run holding the lock indefinitely.
+     */
+    private static final int MAX_ROUNDS = 10;
+
+    private final TransactionEventRepository repository;
+    private final ShardRouter shards;
+    private final EventProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final List<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Counter overflows;
+    private final long[] positions;
+
+    public TransactionEventRelay(TransactionEventRepository repository, ShardRouter shards, EventProperties properties,
+                                 PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.shards = shards;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.positions = new long[shards.count()];
+        shards.forEach(shard -> positions[shard] = repository.lastOffset());
+        Gauge.builder("account.events.subscribers", subscriptions, List::size)
+                .description("Open transaction event streams")
+                .register(meterRegistry);
+        this.overflows = Counter.builder("account.events.overflows")
+                .description("Times a subscriber fell a full buffer behind and was switched to replaying from the outbox")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(this::run, properties.getRelayInterval());
+    }
+
+    void run() {
+        try {
+            relay();
+        } catch (RuntimeException e) {
+            log.warn("Transaction event relay failed, retrying next interval", e);
+        }
+    }
+
+    /**
+     * One relay run; returns the number of events pushed to this instance's subscribers.
+     */
+    public int relay() {
+        shards.forEach(shard -> transactionTemplate.executeWithoutResult(status -> {
+            if (!repository.tryLock()) {
+                return;
+            }
+            int rounds = 0;
+            while (repository.assignOffsets(properties.getBatchSize()) == properties.getBatchSize() && ++rounds < MAX_ROUNDS) {
+                log.debug("Numbered a full batch of transaction events on shard {}, continuing", shard);
+            }
+            repository.prune(properties.getRetained());
+        }));
+        return dispatch();
+    }
+
+    /**
+     * Subscribes after the given offsets, one per shard, or from now when they are {@code null}; an empty set of
+     * account ids means every account.
+     */
+    public synchronized EventSubscription subscribe(Set<Long> accountIds, long[] after) {
+        subscriptions.removeIf(EventSubscription::isClosed);
+        if (subscriptions.size() >= properties.getMaxSubscribers()) {
+            throw new IllegalStateException("Too many event subscribers, try again later");
+        }
+        EventSubscription subscription = new EventSubscription(repository, shards, accountIds, after, positions,
+                properties.getSubscriberBuffer(), properties.getBatchSize(), properties.getHeartbeat());
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Synchronized with {@link #subscribe}, so a new subscription either gets an event pushed or starts after it.
+     */
+    private synchronized int dispatch() {
+        subscriptions.removeIf(EventSubscription::isClosed);
+        if (subscriptions.isEmpty()) {
+            shards.forEach(shard -> positions[shard] = repository.lastOffset());
+            return 0;
+        }
+        int dispatched = 0;
+        for (int shard = 0; shard < positions.length; shard++) {
+            int current = shard;
+            dispatched += shards.on(shard, () -> dispatch(current));
+        }
+        return dispatched;
+    }
+
+    private int dispatch(int shard) {
+        int dispatched = 0;
+        List<TransactionEventRS> events;
+        do {
+            events = repository.findAfter(positions[shard], properties.getBatchSize());
+            for (TransactionEventRS event : events) {
+                for (EventSubscription subscription : subscriptions) {
+                    if (!subscription.offer(shard, event)) {
+                        overflows.increment();
+                    }
+                }
+                positions[shard] = event.getOffset();
+            }
+            dispatched += events.size();
+        } while (events.size() == properties.getBatchSize());
+        return dispatched;
+    }
+}
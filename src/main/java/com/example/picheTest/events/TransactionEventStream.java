@@ -0,0 +1,89 @@
+package com.example.picheTest.events;
+
+import com.example.picheTest.error.AccountNotFoundException;
+import com.example.picheTest.model.response.TransactionEventRS;
+import com.example.picheTest.repository.AccountRepository;
+import com.example.picheTest.sharding.ShardRouter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves {@link EventSubscription}s as server-sent events, each event carrying the subscription's position after
+ * it as the SSE id so a client reconnecting with {@code Last-Event-ID} resumes where it stopped. Every stream is written by its own
+ * virtual thread, which blocks on the socket when the client reads slowly and on the queue when it is idle.
+ */
+@Slf4j
+@Component
+public class TransactionEventStream {
+    private final TransactionEventRelay relay;
+    private final AccountRepository accountRepository;
+    private final ShardRouter shards;
+    private final ExecutorService writers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("event-stream-", 0).factory());
+
+    public TransactionEventStream(TransactionEventRelay relay, AccountRepository accountRepository, ShardRouter shards) {
+        this.relay = relay;
+        this.accountRepository = accountRepository;
+        this.shards = shards;
+    }
+
+    public SseEmitter subscribe(List<String> accountNumbers, String after) {
+        long[] positions = after == null ? null : EventSubscription.parsePosition(after, shards.count());
+        Set<Long> accountIds = new HashSet<>();
+        for (String accountNumber : accountNumbers) {
+            accountIds.add(shards.onAccount(accountNumber, () -> accountRepository.findByAccountNumber(accountNumber))
+                    .orElseThrow(() -> new AccountNotFoundException(accountNumber))
+                    .getId());
+        }
+        EventSubscription subscription = relay.subscribe(accountIds, positions);
+        SseEmitter emitter = new SseEmitter(0L);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        writers.execute(() -> {
+            try {
+                subscription.run(new EmitterSink(emitter));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Event stream closed: {}", e.getMessage());
+                subscription.close();
+            } catch (InterruptedException e) {
+                subscription.close();
+                emitter.complete();
+            } catch (RuntimeException e) {
+                subscription.close();
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    @PreDestroy
+    public void close() {
+        writers.shutdownNow();
+    }
+
+    private record EmitterSink(SseEmitter emitter) implements EventSubscription.Sink {
+        @Override
+        public void send(TransactionEventRS event, String position) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(position)
+                    .data(event, MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+        }
+    }
+}
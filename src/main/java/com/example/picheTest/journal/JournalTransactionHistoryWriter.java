@@ -0,0 +1,259 @@
+package com.example.picheTest.journal;
+
+import com.example.picheTest.config.JournalProperties;
+import com.example.picheTest.repository.TransactionHistoryJdbcRepository;
+import com.example.picheTest.repository.entity.TransactionHistory;
+import com.example.picheTest.service.TransactionHistoryWriter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind history. When the balance transaction is about to commit, its rows get ids and are appended
+ * to the local {@link TransactionJournal} together with the database transaction id, and fsynced (shared with
+ * concurrent committers). After the commit they are queued for a background writer that inserts them in large
+ * batches. A rollback appends abort markers and fsyncs them instead. On startup, journaled rows that never
+ * reached the database are replayed before any request is served; replays are idempotent because rows keep their
+ * journaled ids.
+ * <p>
+ * A crash can come between the journal fsync and the database commit, or before the abort markers are written.
+ * Recovery therefore asks the database whether each row's transaction committed, and drops the rows of
+ * transactions that aborted.
+ * <p>
+ * Backpressure: each journaled row holds one of {@code capacity} permits until it reaches the database. A
+ * commit that cannot get its permits within {@code offer-timeout} fails, and its transaction rolls back.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "account.journal.enabled", havingValue = "true")
+public class JournalTransactionHistoryWriter implements TransactionHistoryWriter {
+    private final TransactionHistoryJdbcRepository jdbcRepository;
+    private final JournalProperties properties;
+    private final TransactionJournal journal;
+    private final Semaphore capacity;
+    private final BlockingQueue<Entry> queue;
+    private final Thread writer;
+    private long nextId;
+    private long lastId;
+    private volatile boolean running = true;
+
+    public JournalTransactionHistoryWriter(TransactionHistoryJdbcRepository jdbcRepository, JournalProperties properties) throws IOException {
+        this.jdbcRepository = jdbcRepository;
+        this.properties = properties;
+        this.journal = new TransactionJournal(properties.getDirectory(), properties.getSegmentSize());
+        this.capacity = new Semaphore(properties.getCapacity(), true);
+        this.queue = new ArrayBlockingQueue<>(properties.getCapacity());
+
+        List<TransactionHistory> pending = committed(journal.recover());
+        for (int from = 0; from < pending.size(); from += properties.getBatchSize()) {
+            jdbcRepository.insertAll(pending.subList(from, Math.min(from + properties.getBatchSize(), pending.size())));
+        }
+        if (!pending.isEmpty()) {
+            log.info("Replayed {} journaled history rows", pending.size());
+        }
+        journal.reset();
+
+        this.writer = new Thread(this::drain, "history-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void record(TransactionHistory history) {
+        recordAll(List.of(history));
+    }
+
+    @Override
+    public void recordAll(List<TransactionHistory> history) {
+        if (history.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Entry> entries = append(history, 0);
+            journal.awaitDurable(entries.get(entries.size() - 1).position);
+            queue.addAll(entries);
+            return;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new Pending();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.rows.addAll(history);
+    }
+
+    private List<Entry> append(List<TransactionHistory> history, long transactionId) {
+        try {
+            if (!capacity.tryAcquire(history.size(), properties.getOfferTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Transaction journal is saturated, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for transaction journal capacity", e);
+        }
+        List<Entry> entries = new ArrayList<>(history.size());
+        try {
+            for (TransactionHistory row : history) {
+                row.setId(nextId());
+                entries.add(new Entry(row, journal.append(row, transactionId)));
+            }
+        } catch (RuntimeException e) {
+            abort(entries);
+            capacity.release(history.size() - entries.size());
+            throw e;
+        }
+        return entries;
+    }
+
+    private void abort(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        TransactionJournal.Position last = null;
+        for (Entry entry : entries) {
+            last = journal.abort(entry.history);
+        }
+        journal.awaitDurable(last);
+        for (Entry entry : entries) {
+            journal.released(entry.position);
+        }
+        capacity.release(entries.size());
+    }
+
+    /**
+     * The recovered rows whose transaction committed. Waits for transactions that are still in progress, e.g.
+     * a commit sent just before the crash, and keeps the rows of any that have not finished by then.
+     */
+    private List<TransactionHistory> committed(List<TransactionJournal.Journaled> journaled) {
+        Set<Long> undecided = new HashSet<>();
+        journaled.forEach(row -> {
+            if (row.transactionId() != 0) {
+                undecided.add(row.transactionId());
+            }
+        });
+        Set<Long> aborted = new HashSet<>();
+        long deadline = System.nanoTime() + properties.getOfferTimeout().toNanos() * 10;
+        while (!undecided.isEmpty()) {
+            jdbcRepository.transactionOutcomes(undecided).forEach((transactionId, committed) -> {
+                undecided.remove(transactionId);
+                if (!committed) {
+                    aborted.add(transactionId);
+                }
+            });
+            if (undecided.isEmpty() || System.nanoTime() > deadline) {
+                break;
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (!undecided.isEmpty()) {
+            log.warn("Transactions {} are still in progress; replaying their journaled history", undecided);
+        }
+        if (!aborted.isEmpty()) {
+            log.info("Dropping journaled history of {} rolled back transactions", aborted.size());
+        }
+        List<TransactionHistory> rows = new ArrayList<>(journaled.size());
+        for (TransactionJournal.Journaled row : journaled) {
+            if (!aborted.contains(row.transactionId())) {
+                rows.add(row.history());
+            }
+        }
+        return rows;
+    }
+
+    private synchronized long nextId() {
+        if (nextId == 0 || nextId > lastId) {
+            lastId = jdbcRepository.reserveIdBlock();
+            nextId = lastId - TransactionHistoryJdbcRepository.ID_BLOCK_SIZE + 1;
+        }
+        return nextId++;
+    }
+
+    private void drain() {
+        List<Entry> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, properties.getBatchSize() - 1);
+                flush(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void flush(List<Entry> batch) throws InterruptedException {
+        List<TransactionHistory> rows = new ArrayList<>(batch.size());
+        batch.forEach(entry -> rows.add(entry.history));
+        long backoff = 10;
+        while (true) {
+            try {
+                jdbcRepository.insertAll(rows);
+                break;
+            } catch (RuntimeException e) {
+                log.warn("Could not write {} journaled history rows, retrying in {} ms", rows.size(), backoff, e);
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, 5_000);
+            }
+        }
+        for (Entry entry : batch) {
+            journal.released(entry.position);
+        }
+        capacity.release(batch.size());
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException, IOException {
+        running = false;
+        writer.join(properties.getOfferTimeout().toMillis() * 10);
+        journal.close();
+    }
+
+    private record Entry(TransactionHistory history, TransactionJournal.Position position) {
+    }
+
+    private final class Pending implements TransactionSynchronization {
+        private final List<TransactionHistory> rows = new ArrayList<>();
+        private List<Entry> entries = List.of();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            entries = append(rows, jdbcRepository.currentTransactionId());
+            journal.awaitDurable(entries.get(entries.size() - 1).position);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(JournalTransactionHistoryWriter.this);
+            if (status == STATUS_ROLLED_BACK) {
+                abort(entries);
+            } else {
+                queue.addAll(entries);
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.picheTest.journal;
+
+import com.example.picheTest.repository.entity.TransactionHistory;
+import com.example.picheTest.repository.entity.TransactionType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, checksummed log of history rows split into numbered segment files. Appends are serialized;
+ * {@link #awaitDurable} lets one caller fsync on behalf of everybody who appended before it (group commit).
+ * Segments are deleted oldest first, once every row in them has reached the database or been aborted, so an
+ * abort marker never outlives the row it cancels. Each row carries the database transaction id it was written
+ * in (0 for none), so that recovery can ask the database whether that transaction committed.
+ */
+@Slf4j
+class TransactionJournal implements AutoCloseable {
+    private static final byte RECORD = 1;
+    private static final byte ABORT = 2;
+    private static final long NULL_ID = Long.MIN_VALUE;
+    static final int ENTRY_SIZE = 1 + 8 + 8 + 8 + 8 + 8 + 1 + 8 + 4;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE);
+    private final CRC32 crc = new CRC32();
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private Segment current;
+
+    TransactionJournal(Path directory, long segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Reads every existing segment and returns the rows that were journaled and not aborted, oldest first.
+     * A torn or corrupt tail entry ends the scan of its segment.
+     */
+    List<Journaled> recover() throws IOException {
+        Files.createDirectories(directory);
+        Map<Long, Journaled> records = new LinkedHashMap<>();
+        Set<Long> aborted = new HashSet<>();
+        for (Path path : segmentPaths()) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+                while (true) {
+                    entry.clear();
+                    if (readFully(channel, entry) < ENTRY_SIZE || !checksumMatches(entry)) {
+                        break;
+                    }
+                    entry.flip();
+                    byte kind = entry.get();
+                    long transactionId = entry.getLong();
+                    TransactionHistory history = decode(entry);
+                    if (kind == RECORD) {
+                        records.put(history.getId(), new Journaled(history, transactionId));
+                    } else {
+                        aborted.add(history.getId());
+                    }
+                }
+            }
+        }
+        aborted.forEach(records::remove);
+        return new ArrayList<>(records.values());
+    }
+
+    /**
+     * Deletes the segments read by {@link #recover()} and opens a fresh one for appends.
+     */
+    void reset() throws IOException {
+        for (Path path : segmentPaths()) {
+            Files.delete(path);
+        }
+        current = new Segment(directory.resolve(segmentName(0)));
+        segments.add(current);
+    }
+
+    Position append(TransactionHistory history, long transactionId) {
+        return write(RECORD, transactionId, history, true);
+    }
+
+    /**
+     * Appends an abort marker; pass its position to {@link #awaitDurable} before relying on it.
+     */
+    Position abort(TransactionHistory history) {
+        return write(ABORT, 0, history, false);
+    }
+
+    void awaitDurable(Position position) {
+        position.segment.sync(position.end);
+    }
+
+    void released(Position position) {
+        if (position.segment.outstanding.decrementAndGet() == 0) {
+            appendLock.lock();
+            try {
+                prune();
+            } finally {
+                appendLock.unlock();
+            }
+        }
+    }
+
+    private Position write(byte kind, long transactionId, TransactionHistory history, boolean outstanding) {
+        appendLock.lock();
+        try {
+            if (current.size >= segmentSize) {
+                roll();
+            }
+            buffer.clear();
+            buffer.put(kind);
+            buffer.putLong(transactionId);
+            encode(history, buffer);
+            crc.reset();
+            crc.update(buffer.array(), 0, buffer.position());
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                current.channel.write(buffer);
+            }
+            current.size += ENTRY_SIZE;
+            if (outstanding) {
+                current.outstanding.incrementAndGet();
+            }
+            return new Position(current, current.size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the transaction journal", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void roll() throws IOException {
+        Segment previous = current;
+        previous.sync(previous.size);
+        current = new Segment(directory.resolve(segmentName(previous.sequence() + 1)));
+        segments.add(current);
+        prune();
+    }
+
+    private void prune() {
+        while (segments.peekFirst() != current && segments.peekFirst().outstanding.get() == 0) {
+            segments.pollFirst().delete();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (current != null) {
+            current.channel.close();
+        }
+    }
+
+    private List<Path> segmentPaths() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".journal")).sorted().toList();
+        }
+    }
+
+    private static String segmentName(long sequence) {
+        return "%020d.journal".formatted(sequence);
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer entry) throws IOException {
+        while (entry.hasRemaining()) {
+            if (channel.read(entry) < 0) {
+                break;
+            }
+        }
+        return entry.position();
+    }
+
+    private boolean checksumMatches(ByteBuffer entry) {
+        crc.reset();
+        crc.update(entry.array(), 0, ENTRY_SIZE - 4);
+        return (int) crc.getValue() == entry.getInt(ENTRY_SIZE - 4);
+    }
+
+    private static void encode(TransactionHistory history, ByteBuffer buffer) {
+        buffer.putLong(history.getId());
+        buffer.putLong(history.getAccountIdFrom() == null ? NULL_ID : history.getAccountIdFrom());
+        buffer.putLong(history.getAccountIdTo() == null ? NULL_ID : history.getAccountIdTo());
+        buffer.putLong(history.getAmountCents());
+        buffer.put((byte) history.getTransactionType().ordinal());
+        LocalDateTime createdAt = history.getCreatedAt();
+        buffer.putLong(createdAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + createdAt.getNano() / 1_000);
+    }
+
+    private static TransactionHistory decode(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        long from = buffer.getLong();
+        long to = buffer.getLong();
+        long amount = buffer.getLong();
+        TransactionType type = TransactionType.values()[buffer.get()];
+        long micros = buffer.getLong();
+        LocalDateTime createdAt = LocalDateTime.ofEpochSecond(
+                Math.floorDiv(micros, 1_000_000), (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+        return new TransactionHistory(id, from == NULL_ID ? null : from, to == NULL_ID ? null : to, amount, type, createdAt);
+    }
+
+    record Position(Segment segment, long end) {
+    }
+
+    record Journaled(TransactionHistory history, long transactionId) {
+    }
+
+    static final class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final ReentrantLock syncLock = new ReentrantLock();
+        private volatile long durable;
+        private long size;
+
+        Segment(Path path) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        }
+
+        long sequence() {
+            String name = path.getFileName().toString();
+            return Long.parseLong(name.substring(0, name.indexOf('.')));
+        }
+
+        void sync(long position) {
+            if (durable >= position) {
+                return;
+            }
+            syncLock.lock();
+            try {
+                if (durable >= position) {
+                    return;
+                }
+                long target = channel.position();
+                channel.force(false);
+                durable = target;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not sync the transaction journal", e);
+            } finally {
+                syncLock.unlock();
+            }
+        }
+
+        void delete() {
+            try {
+                channel.close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Could not delete journal segment {}", path, e);
+            }
+        }
+    }
+}
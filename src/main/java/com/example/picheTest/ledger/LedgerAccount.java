@@ -0,0 +1,31 @@
+package com.example.picheTest.ledger;
+
+import com.example.picheTest.repository.entity.Account;
+
+/**
+ * In-memory account state, read and written only by the writer thread of the owning shard.
+ */
+final class LedgerAccount {
+    final long id;
+    final String accountNumber;
+    long balance;
+    /**
+     * Change applied by the batch being persisted, undone if that batch fails.
+     */
+    long pendingDelta;
+    boolean inBatch;
+
+    LedgerAccount(long id, String accountNumber, long balance) {
+        this.id = id;
+        this.accountNumber = accountNumber;
+        this.balance = balance;
+    }
+
+    Account toAccount() {
+        Account account = new Account();
+        account.setId(id);
+        account.setAccountNumber(accountNumber);
+        account.setBalanceCents(balance);
+        return account;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.picheTest.ledger;
+
+import com.example.picheTest.repository.entity.Account;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Work queued to the shard that owns the (first) account of the command.
+ */
+sealed interface LedgerCommand {
+
+    record Deposit(String accountNumber, long amount, CompletableFuture<Account> result) implements LedgerCommand {
+    }
+
+    record Withdraw(String accountNumber, long amount, CompletableFuture<Account> result) implements LedgerCommand {
+    }
+
+    /**
+     * Queued to the shard owning {@code fromAccountNumber}, which decides alone whether the transfer happens.
+     */
+    record Transfer(String fromAccountNumber, String toAccountNumber, long amount,
+                    CompletableFuture<Boolean> result) implements LedgerCommand {
+    }
+
+    /**
+     * An account created after the shards were loaded.
+     */
+    record Register(long id, String accountNumber, long balance, CompletableFuture<Void> result) implements LedgerCommand {
+    }
+}
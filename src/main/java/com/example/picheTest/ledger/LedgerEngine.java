@@ -0,0 +1,218 @@
+package com.example.picheTest.ledger;
+
+import com.example.picheTest.config.LedgerProperties;
+import com.example.picheTest.metrics.AccountMetrics;
+import com.example.picheTest.model.Money;
+import com.example.picheTest.model.request.TransferRQ;
+import com.example.picheTest.model.response.TransferResultRS;
+import com.example.picheTest.repository.AccountJdbcRepository;
+import com.example.picheTest.repository.TransactionHistoryJdbcRepository;
+import com.example.picheTest.repository.entity.Account;
+import com.example.picheTest.repository.entity.TransactionHistory;
+import com.example.picheTest.service.BalanceEngine;
+import com.example.picheTest.service.BatchTransferProcessor;
+import com.example.picheTest.service.TransferEngine;
+import com.example.picheTest.service.TransientRetry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Balances held in memory, partitioned by account number over {@link LedgerShard}s with one writer thread each.
+ * Selected with {@code account.transfer.engine=ledger}; it then serves deposits, withdrawals, transfers and
+ * batches, while reads keep going to the database, which holds every acknowledged change.
+ * <p>
+ * Each shard batch commits its balance deltas and history rows in one transaction, so {@code accounts} is
+ * always the fold of {@code transaction_history} and a restart rebuilds the shards from {@code accounts}
+ * alone. Accounts must only change through this engine while it runs.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "account.transfer.engine", havingValue = "ledger")
+public class LedgerEngine implements TransferEngine, BalanceEngine, BatchTransferProcessor {
+    private final AccountJdbcRepository accountJdbcRepository;
+    private final TransactionHistoryJdbcRepository historyJdbcRepository;
+    private final TransientRetry retry;
+    private final TransactionTemplate transactionTemplate;
+    private final long timeoutNanos;
+    private final LedgerShard[] shards;
+    private final Map<String, Long> accountIds = new ConcurrentHashMap<>();
+
+    public LedgerEngine(AccountJdbcRepository accountJdbcRepository, TransactionHistoryJdbcRepository historyJdbcRepository,
+                        TransientRetry retry, AccountMetrics metrics, LedgerProperties properties,
+                        PlatformTransactionManager transactionManager) {
+        this.accountJdbcRepository = accountJdbcRepository;
+        this.historyJdbcRepository = historyJdbcRepository;
+        this.retry = retry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.timeoutNanos = properties.getTimeout().toNanos();
+
+        int shardCount = properties.getShards() > 0 ? properties.getShards() : Runtime.getRuntime().availableProcessors();
+        this.shards = new LedgerShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new LedgerShard(this, i, properties.getRingCapacity(), properties.getBatchSize(), metrics);
+        }
+
+        // not read-only: with a replica configured that would load possibly stale balances from it
+        transactionTemplate.executeWithoutResult(status -> accountJdbcRepository.streamAll(rs -> {
+            String accountNumber = rs.getString("account_number");
+            long id = rs.getLong("id");
+            shardOf(accountNumber).load(id, accountNumber, Money.ofDecimal(rs.getBigDecimal("balance")));
+            accountIds.put(accountNumber, id);
+        }));
+        log.info("Loaded {} accounts into {} ledger shards", accountIds.size(), shardCount);
+
+        for (LedgerShard shard : shards) {
+            shard.start();
+        }
+    }
+
+    @Override
+    public Account deposit(String accountNumber, long amount) {
+        CompletableFuture<Account> result = new CompletableFuture<>();
+        submit(accountNumber, new LedgerCommand.Deposit(accountNumber, amount, result));
+        return await(result);
+    }
+
+    @Override
+    public Account withdraw(String accountNumber, long amount) {
+        CompletableFuture<Account> result = new CompletableFuture<>();
+        submit(accountNumber, new LedgerCommand.Withdraw(accountNumber, amount, result));
+        return await(result);
+    }
+
+    @Override
+    public boolean transfer(TransferRQ transferRQ) {
+        return await(submitTransfer(transferRQ));
+    }
+
+    @Override
+    public List<TransferResultRS> process(List<TransferRQ> transfers, Consumer<TransferRQ> validator) {
+        List<CompletableFuture<Boolean>> pending = new ArrayList<>(transfers.size());
+        for (TransferRQ transfer : transfers) {
+            try {
+                validator.accept(transfer);
+                pending.add(submitTransfer(transfer));
+            } catch (IllegalArgumentException e) {
+                pending.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        List<TransferResultRS> results = new ArrayList<>(transfers.size());
+        for (int i = 0; i < pending.size(); i++) {
+            try {
+                await(pending.get(i));
+                results.add(TransferResultRS.succeeded(i));
+            } catch (IllegalArgumentException e) {
+                results.add(TransferResultRS.failed(i, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void accountCreated(Account account) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        submit(account.getAccountNumber(),
+                new LedgerCommand.Register(account.getId(), account.getAccountNumber(), account.getBalanceCents(), result));
+        await(result);
+        accountIds.put(account.getAccountNumber(), account.getId());
+    }
+
+    @Override
+    public void accountsCreated(long fromId, long toId) {
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> accountJdbcRepository.streamRange(fromId, toId, rs -> {
+            String accountNumber = rs.getString("account_number");
+            long id = rs.getLong("id");
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            // registering an account again is a no-op, so accounts created concurrently may be in the range
+            submit(accountNumber, new LedgerCommand.Register(id, accountNumber, Money.ofDecimal(rs.getBigDecimal("balance")), result));
+            pending.add(result);
+            accountIds.put(accountNumber, id);
+        }));
+        pending.forEach(this::await);
+    }
+
+    LedgerShard shardOf(String accountNumber) {
+        int hash = accountNumber.hashCode();
+        return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+    }
+
+    Long accountId(String accountNumber) {
+        return accountIds.get(accountNumber);
+    }
+
+    void persist(SortedMap<Long, Long> deltas, List<TransactionHistory> history) {
+        retry.execute(() -> transactionTemplate.execute(status -> {
+            accountJdbcRepository.addToBalances(deltas);
+            historyJdbcRepository.insertAll(history);
+            return null;
+        }));
+    }
+
+    long reserveHistoryIds() {
+        return historyJdbcRepository.reserveIdBlock();
+    }
+
+    int historyIdBlockSize() {
+        return TransactionHistoryJdbcRepository.ID_BLOCK_SIZE;
+    }
+
+    private CompletableFuture<Boolean> submitTransfer(TransferRQ transferRQ) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        submit(transferRQ.getFromAccountNumber(), new LedgerCommand.Transfer(transferRQ.getFromAccountNumber(),
+                transferRQ.getToAccountNumber(), Money.ofDecimal(transferRQ.getAmount()), result));
+        return result;
+    }
+
+    private void submit(String accountNumber, LedgerCommand command) {
+        LedgerShard shard = shardOf(accountNumber);
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (!shard.offer(command)) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("Ledger is saturated, try again later");
+            }
+            LockSupport.parkNanos(50_000);
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> result) {
+        try {
+            return result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Ledger did not confirm the operation in time; its outcome is unknown");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the ledger", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        for (LedgerShard shard : shards) {
+            shard.stop();
+        }
+    }
+}
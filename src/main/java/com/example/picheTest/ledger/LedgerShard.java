@@ -0,0 +1,266 @@
+package com.example.picheTest.ledger;
+
+import com.example.picheTest.error.AccountNotFoundException;
+import com.example.picheTest.error.InsufficientBalanceException;
+import com.example.picheTest.metrics.AccountMetrics;
+import com.example.picheTest.model.Money;
+import com.example.picheTest.repository.entity.TransactionHistory;
+import com.example.picheTest.repository.entity.TransactionType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One partition of the ledger. Its writer thread is the only one touching the partition's balances: it takes
+ * commands from the ring in arrival order, applies them in memory, persists up to {@code batchSize} of them in
+ * one database transaction and only then completes their futures.
+ * <p>
+ * A transfer is decided by the shard owning the debited account. Its batch writes the debit, the credit and the
+ * history row together; once that commits, the credit is handed to the shard owning the credited account, which
+ * only updates its in-memory balance. In-memory balances therefore never run ahead of committed credits, and a
+ * debit can only be approved against money that is already in the database.
+ */
+@Slf4j
+final class LedgerShard implements Runnable {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final LedgerEngine ledger;
+    private final int batchSize;
+    private final AccountMetrics metrics;
+    private final MpscRingBuffer<LedgerCommand> ring;
+    private final ConcurrentLinkedQueue<Credit> credits = new ConcurrentLinkedQueue<>();
+    private final Map<String, LedgerAccount> accounts = new HashMap<>();
+    private final Thread writer;
+    private volatile boolean parked;
+    private volatile boolean running = true;
+
+    private final TreeMap<Long, Long> deltas = new TreeMap<>();
+    private final List<LedgerAccount> touched = new ArrayList<>();
+    private final List<TransactionHistory> history = new ArrayList<>();
+    private final List<Completion> completions = new ArrayList<>();
+    private final List<Credit> outgoing = new ArrayList<>();
+    private long nextHistoryId;
+    private long lastHistoryId;
+
+    LedgerShard(LedgerEngine ledger, int index, int ringCapacity, int batchSize, AccountMetrics metrics) {
+        this.ledger = ledger;
+        this.batchSize = batchSize;
+        this.metrics = metrics;
+        this.ring = new MpscRingBuffer<>(ringCapacity);
+        this.writer = new Thread(this, "ledger-shard-" + index);
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Only before {@link #start()}.
+     */
+    void load(long id, String accountNumber, long balance) {
+        accounts.put(accountNumber, new LedgerAccount(id, accountNumber, balance));
+    }
+
+    void start() {
+        writer.start();
+    }
+
+    void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join();
+    }
+
+    boolean offer(LedgerCommand command) {
+        if (!ring.offer(command)) {
+            return false;
+        }
+        if (parked) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    private void credit(Credit credit) {
+        credits.add(credit);
+        if (parked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running || !ring.isEmpty()) {
+            Credit credit;
+            while ((credit = credits.poll()) != null) {
+                LedgerAccount account = accounts.get(credit.accountNumber());
+                if (account == null) {
+                    log.error("Dropped in-memory credit of {} to unknown account {}", credit.amount(), credit.accountNumber());
+                    continue;
+                }
+                account.balance += credit.amount();
+            }
+            int applied = 0;
+            LedgerCommand command;
+            while (applied < batchSize && (command = ring.poll()) != null) {
+                try {
+                    apply(command);
+                } catch (RuntimeException e) {
+                    fail(command, e);
+                }
+                applied++;
+            }
+            if (applied == 0) {
+                parked = true;
+                if (ring.isEmpty() && credits.isEmpty() && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                parked = false;
+                continue;
+            }
+            flush();
+        }
+    }
+
+    private void apply(LedgerCommand command) {
+        switch (command) {
+            case LedgerCommand.Deposit deposit -> {
+                LedgerAccount account = find(deposit.accountNumber());
+                change(account, Money.add(account.balance, deposit.amount()));
+                record(null, account.id, TransactionType.DEPOSIT, deposit.amount());
+                completions.add(new Completion(deposit.result(), account.toAccount()));
+            }
+            case LedgerCommand.Withdraw withdraw -> {
+                LedgerAccount account = find(withdraw.accountNumber());
+                requireCovered(account, withdraw.amount());
+                change(account, Money.subtract(account.balance, withdraw.amount()));
+                record(account.id, null, TransactionType.WITHDRAW, withdraw.amount());
+                completions.add(new Completion(withdraw.result(), account.toAccount()));
+            }
+            case LedgerCommand.Transfer transfer -> {
+                LedgerAccount from = find(transfer.fromAccountNumber());
+                LedgerAccount to = accounts.get(transfer.toAccountNumber());
+                Long toId = to != null ? Long.valueOf(to.id) : ledger.accountId(transfer.toAccountNumber());
+                if (toId == null) {
+                    throw notFound(transfer.toAccountNumber());
+                }
+                requireCovered(from, transfer.amount());
+                change(from, Money.subtract(from.balance, transfer.amount()));
+                if (to != null) {
+                    change(to, Money.add(to.balance, transfer.amount()));
+                } else {
+                    deltas.merge(toId, transfer.amount(), Long::sum);
+                    outgoing.add(new Credit(transfer.toAccountNumber(), transfer.amount()));
+                }
+                record(from.id, toId, TransactionType.TRANSFER, transfer.amount());
+                completions.add(new Completion(transfer.result(), Boolean.TRUE));
+            }
+            case LedgerCommand.Register register -> {
+                accounts.putIfAbsent(register.accountNumber(),
+                        new LedgerAccount(register.id(), register.accountNumber(), register.balance()));
+                register.result().complete(null);
+            }
+        }
+    }
+
+    private void flush() {
+        if (!deltas.isEmpty()) {
+            try {
+                ledger.persist(deltas, history);
+            } catch (RuntimeException e) {
+                log.error("Could not persist a ledger batch of {} commands", completions.size(), e);
+                for (LedgerAccount account : touched) {
+                    account.balance -= account.pendingDelta;
+                }
+                IllegalStateException failure = new IllegalStateException("Ledger batch could not be persisted", e);
+                completions.forEach(completion -> completion.future().completeExceptionally(failure));
+                outgoing.clear();
+                clear();
+                return;
+            }
+        }
+        completions.forEach(Completion::complete);
+        for (Credit credit : outgoing) {
+            ledger.shardOf(credit.accountNumber()).credit(credit);
+        }
+        clear();
+    }
+
+    private void clear() {
+        for (LedgerAccount account : touched) {
+            account.pendingDelta = 0;
+            account.inBatch = false;
+        }
+        touched.clear();
+        deltas.clear();
+        history.clear();
+        completions.clear();
+        outgoing.clear();
+    }
+
+    private void change(LedgerAccount account, long balance) {
+        long delta = balance - account.balance;
+        if (!account.inBatch) {
+            account.inBatch = true;
+            touched.add(account);
+        }
+        account.balance = balance;
+        account.pendingDelta += delta;
+        deltas.merge(account.id, delta, Long::sum);
+    }
+
+    private void record(Long from, Long to, TransactionType type, long amount) {
+        if (nextHistoryId == 0 || nextHistoryId > lastHistoryId) {
+            lastHistoryId = ledger.reserveHistoryIds();
+            nextHistoryId = lastHistoryId - ledger.historyIdBlockSize() + 1;
+        }
+        TransactionHistory row = TransactionHistory.of(from, to, type, amount);
+        row.setId(nextHistoryId++);
+        history.add(row);
+    }
+
+    private LedgerAccount find(String accountNumber) {
+        LedgerAccount account = accounts.get(accountNumber);
+        if (account == null) {
+            throw notFound(accountNumber);
+        }
+        return account;
+    }
+
+    private AccountNotFoundException notFound(String accountNumber) {
+        metrics.rejected(AccountMetrics.Rejection.NOT_FOUND);
+        return new AccountNotFoundException(accountNumber);
+    }
+
+    private void requireCovered(LedgerAccount account, long amount) {
+        if (!Money.covers(account.balance, amount)) {
+            metrics.rejected(AccountMetrics.Rejection.INSUFFICIENT_BALANCE);
+            throw new InsufficientBalanceException(account.accountNumber);
+        }
+    }
+
+    private static void fail(LedgerCommand command, RuntimeException e) {
+        CompletableFuture<?> future = switch (command) {
+            case LedgerCommand.Deposit deposit -> deposit.result();
+            case LedgerCommand.Withdraw withdraw -> withdraw.result();
+            case LedgerCommand.Transfer transfer -> transfer.result();
+            case LedgerCommand.Register register -> register.result();
+        };
+        future.completeExceptionally(e);
+    }
+
+    private record Credit(String accountNumber, long amount) {
+    }
+
+    private record Completion(CompletableFuture<?> future, Object value) {
+        @SuppressWarnings("unchecked")
+        void complete() {
+            ((CompletableFuture<Object>) future).complete(value);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.picheTest.ledger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer. Every slot carries a sequence number:
+ * a producer claims a position with one CAS on the tail and publishes the element by advancing the slot
+ * sequence, and the consumer, the only thread moving the head, frees the slot for the next lap the same way.
+ */
+final class MpscRingBuffer<E> {
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    MpscRingBuffer(int capacity) {
+        int size = 1 << (32 - Integer.numberOfLeadingZeros(Math.max(2, capacity) - 1));
+        elements = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Returns {@code false} when the ring is full.
+     */
+    boolean offer(E element) {
+        long position;
+        int index;
+        while (true) {
+            position = tail.get();
+            index = (int) position & mask;
+            long available = sequences.get(index) - position;
+            if (available == 0 && tail.compareAndSet(position, position + 1)) {
+                break;
+            }
+            if (available < 0) {
+                return false;
+            }
+        }
+        elements.lazySet(index, element);
+        sequences.set(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Consumer only; returns {@code null} when nothing is published yet.
+     */
+    E poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        E element = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.set(index, head + mask + 1);
+        head++;
+        return element;
+    }
+
+    /**
+     * Consumer only.
+     */
+    boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+}
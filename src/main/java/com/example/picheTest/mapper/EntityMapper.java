@@ -10,5 +10,7 @@ public interface EntityMapper {
 
     @Mapping(target = "accountNumber", source = "accountNumber")
     @Mapping(target = "balance", source = "balance")
+    @Mapping(target = "balanceCents", ignore = true)
+    @Mapping(target = "slots", ignore = true)
     Account toAccount(AccountCreateRQ entity);
 }
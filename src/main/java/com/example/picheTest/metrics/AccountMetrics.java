@@ -0,0 +1,117 @@
+package com.example.picheTest.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Business meters of the account service. Every meter is registered up front and kept in a field, so recording
+ * on the request path is a lookup-free increment that allocates nothing.
+ */
+@Component
+public class AccountMetrics {
+    private final Counter[] rejections;
+    private final Counter[] retries;
+    private final Counter retriesExhausted;
+    private final Timer retryBackoff;
+    private final Timer lockWait;
+    private final DistributionSummary combinedDeposits;
+    private final Counter importedAccounts;
+
+    public AccountMetrics(MeterRegistry registry) {
+        rejections = new Counter[Rejection.values().length];
+        for (Rejection rejection : Rejection.values()) {
+            rejections[rejection.ordinal()] = Counter.builder("account.rejections")
+                    .description("Requests refused for a business reason")
+                    .tag("reason", rejection.tag)
+                    .register(registry);
+        }
+        retries = new Counter[RetryCause.values().length];
+        for (RetryCause cause : RetryCause.values()) {
+            retries[cause.ordinal()] = Counter.builder("account.transaction.retries")
+                    .description("Transactions re-run after a transient database conflict")
+                    .tag("cause", cause.tag)
+                    .register(registry);
+        }
+        retriesExhausted = Counter.builder("account.transaction.retries.exhausted")
+                .description("Transactions that still failed after the last attempt")
+                .register(registry);
+        retryBackoff = Timer.builder("account.transaction.retry.backoff")
+                .description("Time spent sleeping between attempts")
+                .publishPercentileHistogram()
+                .register(registry);
+        lockWait = Timer.builder("account.lock.wait")
+                .description("Time spent acquiring row locks on accounts")
+                .publishPercentileHistogram()
+                .register(registry);
+        combinedDeposits = DistributionSummary.builder("account.deposit.combined")
+                .description("Deposits applied by one combined balance update")
+                .register(registry);
+        importedAccounts = Counter.builder("account.bulk.imported")
+                .description("Accounts created by bulk imports")
+                .register(registry);
+    }
+
+    public void rejected(Rejection rejection) {
+        rejections[rejection.ordinal()].increment();
+    }
+
+    public void rejected(Rejection rejection, long count) {
+        rejections[rejection.ordinal()].increment(count);
+    }
+
+    public void retried(RetryCause cause, long backoffMillis) {
+        retries[cause.ordinal()].increment();
+        retryBackoff.record(backoffMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void retriesExhausted() {
+        retriesExhausted.increment();
+    }
+
+    /**
+     * Records the wait since {@code startNanos} and returns it.
+     */
+    public long lockWait(long startNanos) {
+        long waited = System.nanoTime() - startNanos;
+        lockWait.record(waited, TimeUnit.NANOSECONDS);
+        return waited;
+    }
+
+    public void combinedDeposits(int count) {
+        combinedDeposits.record(count);
+    }
+
+    public void importedAccounts(long count) {
+        importedAccounts.increment(count);
+    }
+
+    public enum Rejection {
+        INSUFFICIENT_BALANCE("insufficient_balance"),
+        NOT_FOUND("not_found"),
+        DUPLICATE_ACCOUNT("duplicate_account");
+
+        private final String tag;
+
+        Rejection(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    public enum RetryCause {
+        SERIALIZATION_FAILURE("serialization_failure"),
+        DEADLOCK("deadlock"),
+        LOCK_TIMEOUT("lock_timeout"),
+        OTHER("other");
+
+        private final String tag;
+
+        RetryCause(String tag) {
+            this.tag = tag;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.picheTest.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money as a {@code long} count of cents. Every column and amount in this service is {@code NUMERIC(15, 2)},
+ * so any valid value fits, and arithmetic stays on primitives with overflow checks against the column range.
+ * {@link BigDecimal} is only used at the JSON and JDBC boundaries.
+ */
+public final class Money {
+    /**
+     * Largest magnitude a {@code NUMERIC(15, 2)} column can hold, in cents.
+     */
+    public static final long MAX_CENTS = 999_999_999_999_999L;
+
+    private Money() {
+    }
+
+    public static long ofDecimal(BigDecimal amount) {
+        try {
+            return checkRange(amount.setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount must have at most two decimal places and at most 13 integer digits");
+        }
+    }
+
+    public static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public static long add(long cents, long amount) {
+        return checkRange(Math.addExact(cents, amount));
+    }
+
+    public static long subtract(long cents, long amount) {
+        return checkRange(Math.subtractExact(cents, amount));
+    }
+
+    public static boolean covers(long balance, long amount) {
+        return balance >= amount;
+    }
+
+    private static long checkRange(long cents) {
+        if (cents > MAX_CENTS || cents < -MAX_CENTS) {
+            throw new IllegalArgumentException("Amount exceeds the supported range");
+        }
+        return cents;
+    }
+}
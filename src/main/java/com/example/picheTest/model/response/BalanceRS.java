@@ -0,0 +1,17 @@
+package com.example.picheTest.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceRS {
+    private String accountNumber;
+    private LocalDateTime asOf;
+    private BigDecimal balance;
+}
@@ -0,0 +1,27 @@
+package com.example.picheTest.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportRS {
+    private long received;
+    private long created;
+    private long duplicates;
+    /**
+     * Account numbers of the first duplicate records, in input order, up to {@code account.bulk.max-reported}.
+     */
+    private List<String> duplicateAccountNumbers;
+    private long invalid;
+    /**
+     * 1-based record numbers of the first invalid records, up to {@code account.bulk.max-reported}.
+     */
+    private List<Long> invalidRecords;
+    private long elapsedMillis;
+    private long rowsPerSecond;
+}
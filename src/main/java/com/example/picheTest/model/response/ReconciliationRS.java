@@ -0,0 +1,41 @@
+package com.example.picheTest.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationRS {
+    private long id;
+    /**
+     * RUNNING, COMPLETED or FAILED; a failed run can be resumed.
+     */
+    private String status;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+    private int chunks;
+    private int chunksChecked;
+    private long accountsChecked;
+    private long historyRows;
+    private long mismatchCount;
+    /**
+     * The first mismatches by account id, up to {@code account.reconciliation.max-reported}.
+     */
+    private List<Mismatch> mismatches;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Mismatch {
+        private String accountNumber;
+        private BigDecimal balance;
+        private BigDecimal historyBalance;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.picheTest.model.response;
+
+import com.example.picheTest.repository.entity.TransactionType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionEventRS {
+    private long offset;
+    private long transactionId;
+    private TransactionType transactionType;
+    private String fromAccountNumber;
+    private String toAccountNumber;
+    private BigDecimal amount;
+    private LocalDateTime createdAt;
+
+    @JsonIgnore
+    private Long accountIdFrom;
+
+    @JsonIgnore
+    private Long accountIdTo;
+}
@@ -0,0 +1,22 @@
+package com.example.picheTest.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferResultRS {
+    private int index;
+    private boolean success;
+    private String error;
+
+    public static TransferResultRS succeeded(int index) {
+        return new TransferResultRS(index, true, null);
+    }
+
+    public static TransferResultRS failed(int index, String error) {
+        return new TransferResultRS(index, false, error);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.picheTest.reconciliation;
+
+import com.example.picheTest.model.Money;
+import com.example.picheTest.repository.ReconciliationRepository;
+import com.example.picheTest.repository.ReconciliationRepository.Mismatch;
+import com.example.picheTest.repository.ReconciliationRepository.Run;
+import com.example.picheTest.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Checks that every balance equals the net sum of its history, one chunk of account ids at a time. The chunks of
+ * a run are split recursively over a fork/join pool. A chunk is read in one REPEATABLE READ read-only snapshot:
+ * its credits and debits are streamed into a {@code long} per account id, then its balances are streamed and
+ * compared. Nothing is grouped or sorted by the database, and with read-only routing the reads go to the replica.
+ * With sharding a chunk lies within one shard's id range and is read on that shard.
+ * <p>
+ * Each checked chunk is recorded with its mismatches in its own transaction on shard 0, which is the checkpoint a
+ * resumed run continues from.
+ */
+@Slf4j
+@Component
+public class Reconciler {
+    private static final int THROTTLE_BLOCK = 1000;
+
+    private final ReconciliationRepository repository;
+    private final ShardRouter shards;
+    private final TransactionTemplate snapshot;
+    private final TransactionTemplate transactionTemplate;
+
+    public Reconciler(ReconciliationRepository repository, ShardRouter shards, PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.shards = shards;
+        this.snapshot = new TransactionTemplate(transactionManager);
+        this.snapshot.setReadOnly(true);
+        this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Checks the chunks of the run not recorded yet. Returns the number checked by this call.
+     */
+    public int reconcile(Run run, int parallelism, long maxRowsPerSecond) {
+        Set<Integer> done = repository.completedChunks(run.id());
+        RowThrottle throttle = new RowThrottle(maxRowsPerSecond);
+        ChunkRange all = new ChunkRange(run, done, throttle, 0, run.chunks());
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(all);
+            return all.checked;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void check(Run run, int chunk, RowThrottle throttle) {
+        int shard = 0;
+        int shardChunk = chunk;
+        while (shardChunk >= run.chunks(shard)) {
+            shardChunk -= run.chunks(shard++);
+        }
+        long fromId = run.fromIds()[shard] + (long) shardChunk * run.chunkSize();
+        long toId = Math.min(fromId + run.chunkSize() - 1, run.toIds()[shard]);
+        long[] net = new long[(int) (toId - fromId + 1)];
+        long[] rows = new long[1];
+        List<Mismatch> mismatches = new ArrayList<>();
+        int[] accounts = new int[1];
+        shards.on(shard, () -> snapshot.execute(status -> {
+            repository.streamCredits(fromId, toId, rs -> {
+                net[(int) (rs.getLong(1) - fromId)] += Money.ofDecimal(rs.getBigDecimal(2));
+                throttle(++rows[0], throttle);
+            });
+            repository.streamDebits(fromId, toId, rs -> {
+                net[(int) (rs.getLong(1) - fromId)] -= Money.ofDecimal(rs.getBigDecimal(2));
+                throttle(++rows[0], throttle);
+            });
+            repository.streamBalances(fromId, toId, rs -> {
+                long id = rs.getLong(1);
+                long balance = Money.ofDecimal(rs.getBigDecimal(3));
+                if (balance != net[(int) (id - fromId)]) {
+                    mismatches.add(new Mismatch(id, rs.getString(2), balance, net[(int) (id - fromId)]));
+                }
+                accounts[0]++;
+                throttle(++rows[0], throttle);
+            });
+            return null;
+        }));
+        transactionTemplate.executeWithoutResult(status ->
+                repository.recordChunk(run.id(), chunk, accounts[0], rows[0], mismatches, LocalDateTime.now()));
+        if (!mismatches.isEmpty()) {
+            log.warn("Reconciliation run {}: {} mismatches in account ids {}..{}", run.id(), mismatches.size(), fromId, toId);
+        }
+    }
+
+    private static void throttle(long rows, RowThrottle throttle) {
+        if (rows % THROTTLE_BLOCK == 0) {
+            throttle.acquire(THROTTLE_BLOCK);
+        }
+    }
+
+    private final class ChunkRange extends RecursiveAction {
+        private final Run run;
+        private final Set<Integer> done;
+        private final RowThrottle throttle;
+        private final int from;
+        private final int to;
+        private int checked;
+
+        private ChunkRange(Run run, Set<Integer> done, RowThrottle throttle, int from, int to) {
+            this.run = run;
+            this.done = done;
+            this.throttle = throttle;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                if (!done.contains(from)) {
+                    check(run, from, throttle);
+                    checked = 1;
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            ChunkRange left = new ChunkRange(run, done, throttle, from, middle);
+            ChunkRange right = new ChunkRange(run, done, throttle, middle, to);
+            invokeAll(left, right);
+            checked = left.checked + right.checked;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.picheTest.reconciliation;
+
+import com.example.picheTest.config.ReconciliationProperties;
+import com.example.picheTest.model.Money;
+import com.example.picheTest.model.response.ReconciliationRS;
+import com.example.picheTest.repository.ReconciliationRepository;
+import com.example.picheTest.repository.ReconciliationRepository.Mismatch;
+import com.example.picheTest.repository.ReconciliationRepository.Run;
+import com.example.picheTest.repository.ReconciliationRepository.Summary;
+import com.example.picheTest.sharding.ShardRouter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Service;
+import org.webjars.NotFoundException;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Starts, resumes and reports reconciliation runs, nightly on {@code account.reconciliation.cron} and on request.
+ * At most one run is running across instances; one whose owner stopped renewing its heartbeat is taken over by
+ * the next start. Runs execute in the background, one at a time per instance. Before a run completes, each
+ * mismatch is checked again on its own, which drops differences that were only history still on its way to the
+ * table (with the journal) when the chunk was read.
+ */
+@Slf4j
+@Service
+public class ReconciliationService implements SchedulingConfigurer {
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private final ReconciliationRepository repository;
+    private final ShardRouter shards;
+    private final Reconciler reconciler;
+    private final ReconciliationProperties properties;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reconciliation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ReconciliationService(ReconciliationRepository repository, ShardRouter shards, Reconciler reconciler,
+                                 ReconciliationProperties properties) {
+        this.repository = repository;
+        this.shards = shards;
+        this.reconciler = reconciler;
+        this.properties = properties;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        if (!ScheduledTaskRegistrar.CRON_DISABLED.equals(properties.getCron())) {
+            registrar.addCronTask(this::startScheduled, properties.getCron());
+        }
+    }
+
+    void startScheduled() {
+        try {
+            start();
+        } catch (RuntimeException e) {
+            log.warn("Nightly reconciliation not started: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Starts a run over all current accounts, or takes over an abandoned one.
+     */
+    public synchronized ReconciliationRS start() {
+        Run running = repository.findRunning();
+        if (running != null) {
+            return takeOver(running);
+        }
+        long[] fromIds = new long[shards.count()];
+        long[] toIds = new long[shards.count()];
+        boolean[] any = {false};
+        shards.forEach(shard -> {
+            long[] range = repository.accountIdRange();
+            fromIds[shard] = range == null ? ShardRouter.firstId(shard) : range[0];
+            toIds[shard] = range == null ? fromIds[shard] - 1 : range[1];
+            any[0] |= range != null;
+        });
+        if (!any[0]) {
+            throw new IllegalArgumentException("There are no accounts to reconcile");
+        }
+        long runId;
+        try {
+            runId = repository.createRun(fromIds, toIds, properties.getChunkSize(), LocalDateTime.now());
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("Another reconciliation run has just started");
+        }
+        return submit(repository.findRun(runId));
+    }
+
+    /**
+     * Continues a failed or abandoned run from its last checked chunk.
+     */
+    public synchronized ReconciliationRS resume(long runId) {
+        Run run = findRun(runId);
+        switch (run.status()) {
+            case RUNNING -> {
+                return takeOver(run);
+            }
+            case FAILED -> {
+                try {
+                    if (!repository.reopen(runId, LocalDateTime.now())) {
+                        throw new IllegalStateException("Reconciliation run " + runId + " was resumed concurrently");
+                    }
+                } catch (DataIntegrityViolationException e) {
+                    throw new IllegalStateException("Another reconciliation run is running");
+                }
+                return submit(repository.findRun(runId));
+            }
+            default -> throw new IllegalArgumentException("Reconciliation run " + runId + " has already completed");
+        }
+    }
+
+    public ReconciliationRS getReport(long runId) {
+        return report(findRun(runId));
+    }
+
+    /**
+     * Runs synchronously; the caller must already own the run.
+     */
+    public void execute(Run run) {
+        try {
+            int checked = reconciler.reconcile(run, properties.getParallelism(), properties.getMaxRowsPerSecond());
+            int cleared = recheck(run.id());
+            repository.finish(run.id(), COMPLETED, null, LocalDateTime.now());
+            Summary summary = repository.summarize(run.id());
+            log.info("Reconciliation run {} completed: {} chunks checked now, {} accounts, {} mismatches ({} cleared on recheck)",
+                    run.id(), checked, summary.accounts(), summary.mismatches(), cleared);
+        } catch (RuntimeException e) {
+            log.error("Reconciliation run {} failed; it can be resumed", run.id(), e);
+            repository.finish(run.id(), FAILED, e.toString(), LocalDateTime.now());
+        }
+    }
+
+    private int recheck(long runId) {
+        int cleared = 0;
+        for (Mismatch mismatch : repository.findMismatches(runId, Integer.MAX_VALUE)) {
+            Mismatch now = shards.on(ShardRouter.shardOfId(mismatch.accountId()),
+                    () -> repository.compare(mismatch.accountId()));
+            if (now == null || now.matches()) {
+                repository.deleteMismatch(runId, mismatch.accountId());
+                cleared++;
+            }
+        }
+        return cleared;
+    }
+
+    private ReconciliationRS takeOver(Run run) {
+        LocalDateTime now = LocalDateTime.now();
+        if (!repository.claim(run.id(), now.minus(properties.getLease()), now)) {
+            throw new IllegalStateException("Reconciliation run " + run.id() + " is already running");
+        }
+        log.info("Taking over abandoned reconciliation run {}", run.id());
+        return submit(run);
+    }
+
+    private ReconciliationRS submit(Run run) {
+        executor.execute(() -> execute(run));
+        return report(run);
+    }
+
+    private Run findRun(long runId) {
+        Run run = repository.findRun(runId);
+        if (run == null) {
+            throw new NotFoundException("Reconciliation run " + runId + " not found");
+        }
+        return run;
+    }
+
+    private ReconciliationRS report(Run run) {
+        Summary summary = repository.summarize(run.id());
+        return new ReconciliationRS(run.id(), run.status(), run.startedAt(), run.finishedAt(), run.error(),
+                run.chunks(), summary.chunks(), summary.accounts(), summary.historyRows(), summary.mismatches(),
+                repository.findMismatches(run.id(), properties.getMaxReported()).stream()
+                        .map(mismatch -> new ReconciliationRS.Mismatch(mismatch.accountNumber(),
+                                Money.toDecimal(mismatch.balance()), Money.toDecimal(mismatch.historyBalance())))
+                        .toList());
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.picheTest.reconciliation;
+
+/**
+ * Token bucket over rows read, shared by all workers of a run. A caller reserves its rows and then sleeps until
+ * the bucket would have refilled that far, so bursts are spread out rather than rejected.
+ */
+class RowThrottle {
+    private final double nanosPerRow;
+    private long nextFree = System.nanoTime();
+
+    /**
+     * @param rowsPerSecond 0 for no limit
+     */
+    RowThrottle(long rowsPerSecond) {
+        this.nanosPerRow = rowsPerSecond <= 0 ? 0 : 1_000_000_000.0 / rowsPerSecond;
+    }
+
+    void acquire(long rows) {
+        if (nanosPerRow == 0) {
+            return;
+        }
+        long wait = reserve(rows);
+        if (wait > 0) {
+            try {
+                Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while throttled", e);
+            }
+        }
+    }
+
+    private synchronized long reserve(long rows) {
+        long now = System.nanoTime();
+        // an idle bucket holds at most one second of rows
+        long start = Math.max(nextFree, now - 1_000_000_000L);
+        nextFree = start + (long) (rows * nanosPerRow);
+        return start - now;
+    }
+}
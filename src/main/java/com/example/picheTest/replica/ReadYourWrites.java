@@ -0,0 +1,82 @@
+package com.example.picheTest.replica;
+
+import com.example.picheTest.config.ReplicaProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Staleness policy for replica reads: an account written through this instance is read from the primary until
+ * {@code account.replica.read-your-writes} has passed, so a client never reads back an older balance than the one
+ * it was just given. Writes through other instances are not seen; the replica lag bound covers those.
+ */
+@Component
+public class ReadYourWrites {
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+    private static final int PURGE_EVERY = 4096;
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final Map<String, Long> writtenUntil = new ConcurrentHashMap<>();
+    private int writes;
+
+    public ReadYourWrites(ReplicaProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.windowNanos = properties.getReadYourWrites().toNanos();
+    }
+
+    public void wrote(String accountNumber) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        writtenUntil.put(accountNumber, now + windowNanos);
+        // a racy count is fine, it only spaces out the purges
+        if (++writes % PURGE_EVERY == 0) {
+            writtenUntil.values().removeIf(until -> until - now < 0);
+        }
+    }
+
+    public boolean isRecent(String accountNumber) {
+        if (!enabled) {
+            return false;
+        }
+        Long until = writtenUntil.get(accountNumber);
+        return until != null && until - System.nanoTime() > 0;
+    }
+
+    public boolean anyRecent(Collection<String> accountNumbers) {
+        for (String accountNumber : accountNumbers) {
+            if (isRecent(accountNumber)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs the read on the primary when the account was written recently, and wherever read-only work goes otherwise.
+     */
+    public <T> T read(String accountNumber, Supplier<T> read) {
+        return isRecent(accountNumber) ? onPrimary(read) : read.get();
+    }
+
+    public <T> T onPrimary(Supplier<T> read) {
+        if (!enabled || Boolean.TRUE.equals(PRIMARY_REQUIRED.get())) {
+            return read.get();
+        }
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            PRIMARY_REQUIRED.remove();
+        }
+    }
+
+    static boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY_REQUIRED.get());
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.picheTest.replica;
+
+import com.example.picheTest.config.ReplicaProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Where read-only connections come from: the replica pool while it is reachable, within the lag bound and the
+ * read is not required on the primary by {@link ReadYourWrites}; the primary pool otherwise. A replica that fails
+ * to hand out a connection is skipped for {@code account.replica.retry-after}.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements SchedulingConfigurer, DisposableBean {
+    private static final String LAG_SQL = "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE coalesce(extract(epoch FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    private final DataSource primary;
+    private final HikariDataSource replica;
+    private final ReplicaProperties properties;
+    private volatile long downUntil = System.nanoTime();
+    private volatile long lagMillis;
+
+    public ReplicaRoutingDataSource(DataSource primary, HikariDataSource replica, ReplicaProperties properties,
+                                    MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.properties = properties;
+        Gauge.builder("account.replica.lag", this, source -> source.lagMillis / 1000.0)
+                .description("Replication lag of the read replica, in seconds")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("account.replica.available", this, source -> source.isReplicaUsable() ? 1 : 0)
+                .description("Whether read-only work currently goes to the replica")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (ReadYourWrites.isPrimaryRequired() || !isReplicaUsable()) {
+            return primary.getConnection();
+        }
+        try {
+            return replica.getConnection();
+        } catch (SQLException e) {
+            markDown(e);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new UnsupportedOperationException("Credentials are configured per pool");
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(this::checkLag, properties.getLagCheckInterval());
+    }
+
+    @Override
+    public void destroy() {
+        replica.close();
+    }
+
+    boolean isReplicaUsable() {
+        return System.nanoTime() - downUntil >= 0 && lagMillis <= properties.getMaxLag().toMillis();
+    }
+
+    void checkLag() {
+        if (System.nanoTime() - downUntil < 0) {
+            return;
+        }
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(LAG_SQL)) {
+            rs.next();
+            long lag = rs.getLong(1);
+            if (lag > properties.getMaxLag().toMillis() && lagMillis <= properties.getMaxLag().toMillis()) {
+                log.warn("Replica is {} ms behind, reading from the primary until it catches up", lag);
+            }
+            lagMillis = lag;
+        } catch (SQLException e) {
+            markDown(e);
+        }
+    }
+
+    private void markDown(SQLException e) {
+        boolean wasUp = System.nanoTime() - downUntil >= 0;
+        downUntil = System.nanoTime() + properties.getRetryAfter().toNanos();
+        if (wasUp) {
+            log.warn("Replica unavailable, reading from the primary for {}", properties.getRetryAfter(), e);
+        }
+    }
+}
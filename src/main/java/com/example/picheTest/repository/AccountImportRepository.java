@@ -0,0 +1,134 @@
+package com.example.picheTest.repository;
+
+import com.example.picheTest.model.Money;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Bulk account creation through a per-transaction staging table filled with {@code COPY}. All methods must run in
+ * the same transaction: the staging table is dropped on commit.
+ */
+@Repository
+public class AccountImportRepository {
+    private static final int COPY_CHUNK_CHARS = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AccountImportRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Creates the staging table and streams the rows the producer adds into it with {@code COPY}.
+     */
+    public void stage(Consumer<Sink> producer) {
+        jdbcTemplate.execute("CREATE TEMP TABLE account_import (line BIGINT NOT NULL, account_number VARCHAR(255) NOT NULL, "
+                + "balance NUMERIC(15, 2) NOT NULL, account_id BIGINT) ON COMMIT DROP");
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY account_import (line, account_number, balance) FROM STDIN (FORMAT csv)");
+            try {
+                Sink sink = new Sink(copy);
+                producer.accept(sink);
+                sink.flush();
+                copy.endCopy();
+            } finally {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            }
+            return null;
+        });
+        jdbcTemplate.execute("ANALYZE account_import");
+    }
+
+    /**
+     * Creates the first staged row of every account number not taken yet, with its opening deposit, and marks
+     * the staged rows of each created account with its id.
+     */
+    public void insertStaged(LocalDateTime createdAt) {
+        jdbcTemplate.update("""
+                WITH inserted AS (
+                    INSERT INTO accounts (account_number, balance)
+                    SELECT DISTINCT ON (account_number) account_number, balance
+                    FROM account_import ORDER BY account_number, line
+                    ON CONFLICT (account_number) DO NOTHING
+                    RETURNING id, account_number, balance
+                ), history AS (
+                    INSERT INTO transaction_history (account_id_to, amount, transaction_type, created_at)
+                    SELECT id, balance, 'DEPOSIT', ? FROM inserted
+                )
+                UPDATE account_import i SET account_id = inserted.id
+                FROM inserted WHERE i.account_number = inserted.account_number""", Timestamp.valueOf(createdAt));
+    }
+
+    public Created summarizeCreated() {
+        return jdbcTemplate.queryForObject("SELECT count(DISTINCT account_id), min(account_id), max(account_id) FROM account_import",
+                (rs, rowNum) -> new Created(rs.getLong(1), rs.getLong(2), rs.getLong(3)));
+    }
+
+    /**
+     * Calls back with {@code line} and {@code account_number} of the staged rows that did not create their account,
+     * because it existed already or because an earlier row in the same import created it, in line order.
+     */
+    public void findDuplicates(RowCallbackHandler handler) {
+        jdbcTemplate.query("""
+                SELECT line, account_number FROM (
+                    SELECT line, account_number, account_id,
+                        row_number() OVER (PARTITION BY account_number ORDER BY line) AS occurrence
+                    FROM account_import
+                ) staged
+                WHERE account_id IS NULL OR occurrence > 1
+                ORDER BY line""", handler);
+    }
+
+    /**
+     * Number of accounts created from the staged rows and the range their ids lie in; the ids are 0 when none was.
+     */
+    public record Created(long count, long minId, long maxId) {
+    }
+
+    /**
+     * Buffers rows as CSV and hands them to {@code COPY} in chunks.
+     */
+    public static final class Sink {
+        private final CopyIn copy;
+        private final StringBuilder buffer = new StringBuilder(COPY_CHUNK_CHARS + 512);
+
+        private Sink(CopyIn copy) {
+            this.copy = copy;
+        }
+
+        public void add(long line, String accountNumber, long balanceCents) {
+            buffer.append(line).append(",\"").append(accountNumber.replace("\"", "\"\"")).append("\",")
+                    .append(Money.toDecimal(balanceCents).toPlainString()).append('\n');
+            if (buffer.length() >= COPY_CHUNK_CHARS) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            try {
+                copy.writeToCopy(bytes, 0, bytes.length);
+            } catch (SQLException e) {
+                throw new IllegalStateException("COPY into the import staging table failed", e);
+            }
+            buffer.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.picheTest.repository;
+
+import com.example.picheTest.config.PaginationProperties;
+import com.example.picheTest.model.Money;
+import com.example.picheTest.repository.entity.Account;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Plain JDBC access that must not materialize {@code Account} entities. PostgreSQL only honours the fetch size
+ * inside a transaction, so callers are expected to run the streaming reads in a read-only transaction.
+ */
+@Repository
+public class AccountJdbcRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public AccountJdbcRepository(DataSource dataSource, PaginationProperties properties) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(properties.getStreamFetchSize());
+    }
+
+    public void streamAll(RowCallbackHandler handler) {
+        jdbcTemplate.query("""
+                SELECT a.id, a.account_number, a.balance + coalesce(s.balance, 0) AS balance
+                FROM accounts a
+                LEFT JOIN (SELECT account_id, sum(balance) AS balance FROM account_balance_slots GROUP BY account_id) s
+                    ON s.account_id = a.id
+                ORDER BY a.id""", handler);
+    }
+
+    public void streamRange(long fromId, long toId, RowCallbackHandler handler) {
+        jdbcTemplate.query("SELECT id, account_number, balance FROM accounts WHERE id BETWEEN ? AND ? ORDER BY id",
+                handler, fromId, toId);
+    }
+
+    /**
+     * Adds cents to one balance and returns the account as updated, or {@code null} when there is no such account.
+     */
+    public Account addToBalance(String accountNumber, long cents) {
+        return jdbcTemplate.query("UPDATE accounts SET balance = balance + ? WHERE account_number = ? RETURNING id, balance, slots",
+                updated(accountNumber), Money.toDecimal(cents), accountNumber);
+    }
+
+    /**
+     * Same as {@link #addToBalance(String, long)} through the primary key, for an account that is not split into
+     * balance slots. The account number is still matched, so an id that belongs to another account (a stale cache
+     * entry) or a split account updates nothing and returns {@code null}.
+     */
+    public Account addToBalanceById(long id, String accountNumber, long cents) {
+        return jdbcTemplate.query("""
+                        UPDATE accounts SET balance = balance + ?
+                        WHERE id = ? AND account_number = ? AND slots = 1
+                        RETURNING id, balance, slots""",
+                updated(accountNumber), Money.toDecimal(cents), id, accountNumber);
+    }
+
+    /**
+     * Takes cents from one unsplit balance if it covers them and returns the account as updated, or {@code null}
+     * when the id does not belong to the account number, the account is split or the balance is too low.
+     */
+    public Account subtractFromBalanceById(long id, String accountNumber, long cents) {
+        BigDecimal amount = Money.toDecimal(cents);
+        return jdbcTemplate.query("""
+                        UPDATE accounts SET balance = balance - ?
+                        WHERE id = ? AND account_number = ? AND slots = 1 AND balance >= ?
+                        RETURNING id, balance, slots""",
+                updated(accountNumber), amount, id, accountNumber, amount);
+    }
+
+    /**
+     * Adds each signed amount of cents to its account's balance. Rows are updated in the map's key order, so
+     * concurrent callers passing id-sorted maps always lock in the same order.
+     */
+    public void addToBalances(SortedMap<Long, Long> deltas) {
+        List<Map.Entry<Long, Long>> rows = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate("UPDATE accounts SET balance = balance + ? WHERE id = ?", rows, rows.size(),
+                (ps, row) -> {
+                    ps.setBigDecimal(1, Money.toDecimal(row.getValue()));
+                    ps.setLong(2, row.getKey());
+                });
+    }
+
+    private static ResultSetExtractor<Account> updated(String accountNumber) {
+        return rs -> {
+            if (!rs.next()) {
+                return null;
+            }
+            Account account = new Account();
+            account.setId(rs.getLong("id"));
+            account.setAccountNumber(accountNumber);
+            account.setBalanceCents(Money.ofDecimal(rs.getBigDecimal("balance")));
+            account.setSlots(rs.getInt("slots"));
+            return account;
+        };
+    }
+}
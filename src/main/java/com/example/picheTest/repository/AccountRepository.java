@@ -1,12 +1,50 @@
 package com.example.picheTest.repository;
 
 import com.example.picheTest.repository.entity.Account;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Long> {
     Optional<Account> findByAccountNumber(String paymentId);
+
+    List<Account> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * Locks the given accounts in ascending id order, so concurrent callers never wait on each other in a cycle.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.accountNumber in :accountNumbers order by a.id")
+    List<Account> lockByAccountNumbers(@Param("accountNumbers") Collection<String> accountNumbers);
+
+    /**
+     * Like {@link #lockByAccountNumbers(Collection)}, but accounts split into balance slots are neither locked nor
+     * returned. The split is checked on the row being locked, so a returned account stays unsplit until commit.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.accountNumber in :accountNumbers and a.slots = 1 order by a.id")
+    List<Account> lockUnsplitByAccountNumbers(@Param("accountNumbers") Collection<String> accountNumbers);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.id in :ids and a.slots = 1 order by a.id")
+    List<Account> lockUnsplitByIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "UPDATE accounts SET balance = balance - CAST(:cents AS NUMERIC) / 100 "
+            + "WHERE id = :id AND balance >= CAST(:cents AS NUMERIC) / 100", nativeQuery = true)
+    int debit(@Param("id") Long id, @Param("cents") long cents);
+
+    @Modifying
+    @Query(value = "UPDATE accounts SET balance = balance + CAST(:cents AS NUMERIC) / 100 WHERE id = :id", nativeQuery = true)
+    int credit(@Param("id") Long id, @Param("cents") long cents);
 }
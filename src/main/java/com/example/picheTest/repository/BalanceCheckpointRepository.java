@@ -0,0 +1,129 @@
+package com.example.picheTest.repository;
+
+import com.example.picheTest.model.Money;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Rows of {@code balance_checkpoints}: an account's balance as of a point in time, derived from its history.
+ * History rows that reach the table after a run has passed their time are added to its checkpoints by the
+ * {@code balance_checkpoints_late_history} trigger, in the transaction that inserts them.
+ */
+@Repository
+public class BalanceCheckpointRepository {
+    /**
+     * Signed amount per account of the history rows in {@code (from, to]}, a null {@code from} meaning the beginning.
+     */
+    private static final String MOVEMENTS = """
+            SELECT account_id_to AS account_id, amount AS delta FROM transaction_history
+            WHERE account_id_to IS NOT NULL AND created_at > coalesce(CAST(? AS timestamp), '-infinity') AND created_at <= ?
+            UNION ALL
+            SELECT account_id_from, -amount FROM transaction_history
+            WHERE account_id_from IS NOT NULL AND created_at > coalesce(CAST(? AS timestamp), '-infinity') AND created_at <= ?
+            """;
+
+    /**
+     * Taken exclusively by a checkpoint run and shared by the {@code balance_checkpoints_late_history} trigger.
+     */
+    private static final long LOCK_KEY = 0x62616c636b70L;
+    private static final long CUTOFF_LOCK_KEY = 0x62616c636b71L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BalanceCheckpointRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Transaction-scoped lock so that only one instance takes checkpoints at a time, and so that late history rows
+     * wait for the run to commit before they are added to its checkpoints.
+     */
+    public void lock() {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", rs -> null, LOCK_KEY);
+    }
+
+    /**
+     * Raises the cutoff at or before which inserted history rows count as late; must run in a transaction.
+     */
+    public void announceCutoff(LocalDateTime cutoff) {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", rs -> null, CUTOFF_LOCK_KEY);
+        jdbcTemplate.query("""
+                SELECT setval('balance_checkpoint_cutoff',
+                    greatest(last_value, extract(epoch FROM CAST(? AS timestamp)) * 1000000))
+                FROM balance_checkpoint_cutoff""", rs -> null, Timestamp.valueOf(cutoff));
+    }
+
+    /**
+     * Ids of the transactions in progress right now.
+     */
+    public Set<Long> transactionsInProgress() {
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT txid_snapshot_xip(txid_current_snapshot())", Long.class));
+    }
+
+    /**
+     * Those of the given transactions that are still in progress.
+     */
+    public Set<Long> stillInProgress(Collection<Long> transactionIds) {
+        Set<Long> inProgress = new HashSet<>();
+        jdbcTemplate.query("SELECT id FROM unnest(?) AS id WHERE txid_status(id) = 'in progress'",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", transactionIds.toArray())),
+                (RowCallbackHandler) rs -> inProgress.add(rs.getLong(1)));
+        return inProgress;
+    }
+
+    /**
+     * Time of the latest checkpoint run that found history, or {@code null} before the first one.
+     */
+    public LocalDateTime lastCheckpoint() {
+        Timestamp last = jdbcTemplate.queryForObject("SELECT max(as_of) FROM balance_checkpoints", Timestamp.class);
+        return last == null ? null : last.toLocalDateTime();
+    }
+
+    /**
+     * Checkpoints every account with history in {@code (from, to]} at {@code to}: its previous checkpoint plus
+     * that history. Accounts without new history keep their previous checkpoint, which is still exact.
+     */
+    public int checkpoint(LocalDateTime from, LocalDateTime to) {
+        Timestamp fromTs = from == null ? null : Timestamp.valueOf(from);
+        Timestamp toTs = Timestamp.valueOf(to);
+        return jdbcTemplate.update("""
+                INSERT INTO balance_checkpoints (account_id, as_of, balance)
+                SELECT d.account_id, ?, coalesce(c.balance, 0) + d.delta
+                FROM (SELECT account_id, sum(delta) AS delta FROM (""" + MOVEMENTS + """
+                ) m GROUP BY account_id) d
+                LEFT JOIN LATERAL (
+                    SELECT balance FROM balance_checkpoints
+                    WHERE account_id = d.account_id ORDER BY as_of DESC LIMIT 1
+                ) c ON true
+                ON CONFLICT DO NOTHING""", toTs, fromTs, toTs, fromTs, toTs);
+    }
+
+    /**
+     * Balance of the account as of the given time: the latest checkpoint at or before it plus the history after
+     * that checkpoint, read through the per-direction history indexes.
+     */
+    public long balanceAt(long accountId, LocalDateTime asOf) {
+        Timestamp asOfTs = Timestamp.valueOf(asOf);
+        BigDecimal balance = jdbcTemplate.queryForObject("""
+                WITH c AS (
+                    SELECT as_of, balance FROM balance_checkpoints
+                    WHERE account_id = ? AND as_of <= ? ORDER BY as_of DESC LIMIT 1
+                )
+                SELECT coalesce((SELECT balance FROM c), 0)
+                    + coalesce((SELECT sum(amount) FROM transaction_history WHERE account_id_to = ?
+                        AND created_at > coalesce((SELECT as_of FROM c), '-infinity') AND created_at <= ?), 0)
+                    - coalesce((SELECT sum(amount) FROM transaction_history WHERE account_id_from = ?
+                        AND created_at > coalesce((SELECT as_of FROM c), '-infinity') AND created_at <= ?), 0)
+                """, BigDecimal.class, accountId, asOfTs, accountId, asOfTs, accountId, asOfTs);
+        return Money.ofDecimal(balance);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.picheTest.repository;
+
+import com.example.picheTest.model.Money;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rows of {@code account_balance_slots}. Slot 0 of every account is {@code accounts.balance}; these are slots 1..n-1,
+ * n being {@code accounts.slots}.
+ */
+@Repository
+public class BalanceSlotRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public BalanceSlotRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Raises the account to at least {@code slots} slots (including slot 0) and creates the missing slot rows.
+     * Takes the account's row lock, so the caller must not wait on a transaction holding it.
+     */
+    public void split(long accountId, int slots) {
+        jdbcTemplate.update("UPDATE accounts SET slots = greatest(slots, ?) WHERE id = ?", slots, accountId);
+        jdbcTemplate.update("INSERT INTO account_balance_slots (account_id, slot) "
+                + "SELECT ?, generate_series(1, ?) ON CONFLICT DO NOTHING", accountId, slots - 1);
+    }
+
+    public int credit(long accountId, int slot, long cents) {
+        return jdbcTemplate.update("UPDATE account_balance_slots SET balance = balance + ? WHERE account_id = ? AND slot = ?",
+                Money.toDecimal(cents), accountId, slot);
+    }
+
+    public int debit(long accountId, int slot, long cents) {
+        return jdbcTemplate.update("UPDATE account_balance_slots SET balance = balance - ? "
+                        + "WHERE account_id = ? AND slot = ? AND balance >= ?",
+                Money.toDecimal(cents), accountId, slot, Money.toDecimal(cents));
+    }
+
+    /**
+     * Locks the account row and then, if the row says it is split, its slot rows in slot order; returns the
+     * balances indexed by slot, or an empty array when there is no such account.
+     */
+    public long[] lockAll(long accountId) {
+        long[] home = jdbcTemplate.query("SELECT balance, slots FROM accounts WHERE id = ? FOR UPDATE",
+                rs -> rs.next() ? new long[]{Money.ofDecimal(rs.getBigDecimal(1)), rs.getInt(2)} : null, accountId);
+        if (home == null) {
+            return new long[0];
+        }
+        long[] balances = new long[(int) home[1]];
+        balances[0] = home[0];
+        if (balances.length > 1) {
+            jdbcTemplate.query("SELECT slot, balance FROM account_balance_slots "
+                            + "WHERE account_id = ? ORDER BY slot FOR UPDATE",
+                    (RowCallbackHandler) rs -> balances[rs.getInt(1)] = Money.ofDecimal(rs.getBigDecimal(2)), accountId);
+        }
+        return balances;
+    }
+
+    public void setBalance(long accountId, int slot, long cents) {
+        if (slot == 0) {
+            jdbcTemplate.update("UPDATE accounts SET balance = ? WHERE id = ?", Money.toDecimal(cents), accountId);
+        } else {
+            jdbcTemplate.update("UPDATE account_balance_slots SET balance = ? WHERE account_id = ? AND slot = ?",
+                    Money.toDecimal(cents), accountId, slot);
+        }
+    }
+
+    /**
+     * Balance over all slots of one account, or {@code null} when there is no such account.
+     */
+    public Long total(long accountId) {
+        return jdbcTemplate.query("SELECT a.balance + coalesce((SELECT sum(s.balance) FROM account_balance_slots s "
+                        + "WHERE s.account_id = a.id), 0) FROM accounts a WHERE a.id = ?",
+                rs -> rs.next() ? Money.ofDecimal(rs.getBigDecimal(1)) : null, accountId);
+    }
+
+    /**
+     * Sum of slots 1..n-1 per account; accounts without slots are absent from the result.
+     */
+    public Map<Long, Long> sumSlots(Collection<Long> accountIds) {
+        Map<Long, Long> sums = new HashMap<>();
+        if (accountIds.isEmpty()) {
+            return sums;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(accountIds.size(), "?"));
+        jdbcTemplate.query("SELECT account_id, sum(balance) FROM account_balance_slots "
+                        + "WHERE account_id IN (" + placeholders + ") GROUP BY account_id",
+                (RowCallbackHandler) rs -> sums.put(rs.getLong(1), Money.ofDecimal(rs.getBigDecimal(2))),
+                accountIds.toArray());
+        return sums;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.picheTest.repository;
+
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Partitions of {@code transaction_history} and their archival. Partition and table names are generated by
+ * the caller from dates, never taken from input, so they are safe to splice into DDL.
+ */
+@Repository
+public class HistoryPartitionRepository {
+    private static final long LOCK_KEY = 0x706172746e73L;
+    private static final Pattern BOUNDS = Pattern.compile("FROM \\('([^']+)'\\) TO \\('([^']+)'\\)");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public HistoryPartitionRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Transaction-scoped lock so that only one instance changes partitions at a time.
+     */
+    public boolean tryLock() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY));
+    }
+
+    /**
+     * The range partitions, oldest first; the default partition is not included.
+     */
+    public List<Partition> findPartitions() {
+        List<Partition> partitions = new ArrayList<>();
+        jdbcTemplate.query("""
+                SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) AS bound
+                FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'transaction_history'::regclass""", rs -> {
+            Matcher bounds = BOUNDS.matcher(rs.getString("bound"));
+            if (bounds.find()) {
+                partitions.add(new Partition(rs.getString("relname"),
+                        Timestamp.valueOf(bounds.group(1)).toLocalDateTime(),
+                        Timestamp.valueOf(bounds.group(2)).toLocalDateTime()));
+            }
+        });
+        partitions.sort((a, b) -> a.from().compareTo(b.from()));
+        return partitions;
+    }
+
+    /**
+     * Creates a partition for {@code [from, to)}, moving into it any rows the default partition holds for that
+     * range; attaching the filled table validates it without blocking inserts into other partitions.
+     */
+    public void createPartition(String name, LocalDateTime from, LocalDateTime to) {
+        jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE transaction_history INCLUDING DEFAULTS)");
+        jdbcTemplate.update("""
+                WITH moved AS (
+                    DELETE FROM transaction_history_default WHERE created_at >= ? AND created_at < ? RETURNING *
+                )
+                INSERT INTO\s""" + name + " SELECT * FROM moved", Timestamp.valueOf(from), Timestamp.valueOf(to));
+        jdbcTemplate.execute("ALTER TABLE transaction_history ATTACH PARTITION " + name
+                + " FOR VALUES FROM ('" + Timestamp.valueOf(from) + "') TO ('" + Timestamp.valueOf(to) + "')");
+    }
+
+    /**
+     * Blocks writes to the partition until the end of the transaction, so its archive and its folded balances
+     * see the same rows.
+     */
+    public void lockForArchival(String name) {
+        jdbcTemplate.execute("LOCK TABLE " + name + " IN SHARE MODE");
+    }
+
+    /**
+     * Writes the partition's rows as CSV with a header; returns the number of rows.
+     */
+    public long copyOut(String name, OutputStream out) {
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyOut(
+                        "COPY (SELECT * FROM " + name + " ORDER BY created_at, id) TO STDOUT (FORMAT csv, HEADER)", out);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not write archive of " + name, e);
+            }
+        });
+    }
+
+    /**
+     * Adds the partition's net history per account to {@code archived_balances}.
+     */
+    public void foldIntoArchivedBalances(String name) {
+        jdbcTemplate.update("""
+                INSERT INTO archived_balances (account_id, balance)
+                SELECT account_id, sum(delta) FROM (
+                    SELECT account_id_to AS account_id, amount AS delta FROM\s""" + name + """
+                     WHERE account_id_to IS NOT NULL
+                    UNION ALL
+                    SELECT account_id_from, -amount FROM\s""" + name + """
+                     WHERE account_id_from IS NOT NULL
+                ) m GROUP BY account_id
+                ON CONFLICT (account_id) DO UPDATE SET balance = archived_balances.balance + excluded.balance""");
+    }
+
+    /**
+     * Records the archive, then detaches and drops the partition.
+     */
+    public void dropArchived(Partition partition, long rows, String file, LocalDateTime now) {
+        jdbcTemplate.update("""
+                INSERT INTO history_archives (partition_name, range_from, range_to, row_count, file, archived_at)
+                VALUES (?, ?, ?, ?, ?, ?)""", partition.name(), Timestamp.valueOf(partition.from()),
+                Timestamp.valueOf(partition.to()), rows, file, Timestamp.valueOf(now));
+        jdbcTemplate.execute("ALTER TABLE transaction_history DETACH PARTITION " + partition.name());
+        jdbcTemplate.execute("DROP TABLE " + partition.name());
+    }
+
+    /**
+     * Earliest time point-in-time balances are still exact: the first checkpoint at or after the end of the
+     * archived history, since a balance before it would need the archived rows. {@code null} when nothing has
+     * been archived.
+     */
+    public LocalDateTime exactSince() {
+        Timestamp since = jdbcTemplate.queryForObject("""
+                SELECT min(as_of) FROM balance_checkpoints
+                WHERE as_of >= (SELECT max(range_to) FROM history_archives)""", Timestamp.class);
+        return since == null ? null : since.toLocalDateTime();
+    }
+
+    public record Partition(String name, LocalDateTime from, LocalDateTime to) {
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.picheTest.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Results of requests sent with an {@code Idempotency-Key}: the key, a fingerprint of the request and the
+ * response as JSON.
+ */
+@Repository
+public class IdempotencyKeyRepository {
+    private static final RowMapper<StoredResponse> MAPPER = (rs, rowNum) ->
+            new StoredResponse(rs.getLong("fingerprint"), rs.getString("response"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyKeyRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public StoredResponse find(String key) {
+        List<StoredResponse> rows = jdbcTemplate.query(
+                "SELECT fingerprint, response FROM idempotency_keys WHERE idempotency_key = ?", MAPPER, key);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Fails with a duplicate key error when the key is already stored, or blocks until a concurrent transaction
+     * storing it ends.
+     */
+    public void insert(String key, long fingerprint, String response, LocalDateTime now) {
+        jdbcTemplate.update("""
+                INSERT INTO idempotency_keys (idempotency_key, fingerprint, response, created_at)
+                VALUES (?, ?, ?, ?)""", key, fingerprint, response, Timestamp.valueOf(now));
+    }
+
+    public int deleteBefore(LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM idempotency_keys WHERE created_at < ?", Timestamp.valueOf(before));
+    }
+
+    public record StoredResponse(long fingerprint, String response) {
+    }
+}
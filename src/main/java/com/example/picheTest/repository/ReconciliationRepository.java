@@ -0,0 +1,240 @@
+package com.example.picheTest.repository;
+
+import com.example.picheTest.config.ReconciliationProperties;
+import com.example.picheTest.model.Money;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reconciliation runs and their progress, and the range reads that compare balances with history. The range
+ * reads are index range scans on the account id (the per-direction history indexes lead with it) and are
+ * streamed with a fixed fetch size, so they must run inside a transaction.
+ */
+@Repository
+public class ReconciliationRepository {
+    private static final RowMapper<Run> RUN_MAPPER = (rs, rowNum) -> new Run(
+            rs.getLong("id"),
+            rs.getString("status"),
+            longs(rs.getArray("from_ids")),
+            longs(rs.getArray("to_ids")),
+            rs.getInt("chunk_size"),
+            rs.getTimestamp("started_at").toLocalDateTime(),
+            rs.getTimestamp("heartbeat_at").toLocalDateTime(),
+            rs.getTimestamp("finished_at") == null ? null : rs.getTimestamp("finished_at").toLocalDateTime(),
+            rs.getString("error"));
+
+    private static final RowMapper<Mismatch> MISMATCH_MAPPER = (rs, rowNum) -> new Mismatch(
+            rs.getLong("account_id"),
+            rs.getString("account_number"),
+            Money.ofDecimal(rs.getBigDecimal("balance")),
+            Money.ofDecimal(rs.getBigDecimal("history_balance")));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingTemplate;
+
+    public ReconciliationRepository(DataSource dataSource, ReconciliationProperties properties) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingTemplate = new JdbcTemplate(dataSource);
+        this.streamingTemplate.setFetchSize(properties.getFetchSize());
+    }
+
+    /**
+     * Lowest and highest account id of the current shard, or {@code null} when it has no accounts.
+     */
+    public long[] accountIdRange() {
+        return jdbcTemplate.query("SELECT min(id), max(id) FROM accounts", rs -> {
+            rs.next();
+            long min = rs.getLong(1);
+            return rs.wasNull() ? null : new long[]{min, rs.getLong(2)};
+        });
+    }
+
+    /**
+     * Fails with a {@code DataIntegrityViolationException} while another run is running.
+     */
+    public long createRun(long[] fromIds, long[] toIds, int chunkSize, LocalDateTime now) {
+        Timestamp nowTs = Timestamp.valueOf(now);
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO reconciliation_runs (status, from_ids, to_ids, chunk_size, started_at, heartbeat_at)
+                VALUES ('RUNNING', ?, ?, ?, ?, ?) RETURNING id""", Long.class,
+                Arrays.stream(fromIds).boxed().toArray(Long[]::new), Arrays.stream(toIds).boxed().toArray(Long[]::new),
+                chunkSize, nowTs, nowTs);
+    }
+
+    public Run findRun(long runId) {
+        List<Run> runs = jdbcTemplate.query("SELECT * FROM reconciliation_runs WHERE id = ?", RUN_MAPPER, runId);
+        return runs.isEmpty() ? null : runs.get(0);
+    }
+
+    public Run findRunning() {
+        List<Run> runs = jdbcTemplate.query("SELECT * FROM reconciliation_runs WHERE status = 'RUNNING'", RUN_MAPPER);
+        return runs.isEmpty() ? null : runs.get(0);
+    }
+
+    /**
+     * Takes over a running run whose heartbeat is older than {@code staleBefore}; {@code false} when another
+     * instance still owns it or took it over first.
+     */
+    public boolean claim(long runId, LocalDateTime staleBefore, LocalDateTime now) {
+        return jdbcTemplate.update("""
+                UPDATE reconciliation_runs SET heartbeat_at = ?
+                WHERE id = ? AND status = 'RUNNING' AND heartbeat_at < ?""",
+                Timestamp.valueOf(now), runId, Timestamp.valueOf(staleBefore)) > 0;
+    }
+
+    /**
+     * Sets a failed run running again; fails with a {@code DataIntegrityViolationException} while another run is running.
+     */
+    public boolean reopen(long runId, LocalDateTime now) {
+        return jdbcTemplate.update("""
+                UPDATE reconciliation_runs SET status = 'RUNNING', error = NULL, heartbeat_at = ?
+                WHERE id = ? AND status = 'FAILED'""", Timestamp.valueOf(now), runId) > 0;
+    }
+
+    public void finish(long runId, String status, String error, LocalDateTime now) {
+        jdbcTemplate.update("UPDATE reconciliation_runs SET status = ?, error = ?, finished_at = ? WHERE id = ?",
+                status, error, Timestamp.valueOf(now), runId);
+    }
+
+    public Set<Integer> completedChunks(long runId) {
+        Set<Integer> chunks = new HashSet<>();
+        jdbcTemplate.query("SELECT chunk FROM reconciliation_chunks WHERE run_id = ?",
+                (RowCallbackHandler) rs -> chunks.add(rs.getInt(1)), runId);
+        return chunks;
+    }
+
+    /**
+     * Records a checked chunk with its mismatches and renews the run's heartbeat. A chunk recorded twice, by
+     * two instances that both resumed the run, keeps its first result.
+     */
+    public void recordChunk(long runId, int chunk, int accounts, long historyRows, List<Mismatch> mismatches, LocalDateTime now) {
+        if (jdbcTemplate.update("""
+                INSERT INTO reconciliation_chunks (run_id, chunk, accounts, history_rows) VALUES (?, ?, ?, ?)
+                ON CONFLICT DO NOTHING""", runId, chunk, accounts, historyRows) == 0) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO reconciliation_mismatches (run_id, account_id, account_number, balance, history_balance)
+                        VALUES (?, ?, ?, ?, ?)""", mismatches, mismatches.size(),
+                (ps, mismatch) -> {
+                    ps.setLong(1, runId);
+                    ps.setLong(2, mismatch.accountId());
+                    ps.setString(3, mismatch.accountNumber());
+                    ps.setBigDecimal(4, Money.toDecimal(mismatch.balance()));
+                    ps.setBigDecimal(5, Money.toDecimal(mismatch.historyBalance()));
+                });
+        jdbcTemplate.update("UPDATE reconciliation_runs SET heartbeat_at = ? WHERE id = ?", Timestamp.valueOf(now), runId);
+    }
+
+    public void deleteMismatch(long runId, long accountId) {
+        jdbcTemplate.update("DELETE FROM reconciliation_mismatches WHERE run_id = ? AND account_id = ?", runId, accountId);
+    }
+
+    public Summary summarize(long runId) {
+        return jdbcTemplate.queryForObject("""
+                SELECT (SELECT count(*) FROM reconciliation_chunks WHERE run_id = ?) AS chunks,
+                       (SELECT coalesce(sum(accounts), 0) FROM reconciliation_chunks WHERE run_id = ?) AS accounts,
+                       (SELECT coalesce(sum(history_rows), 0) FROM reconciliation_chunks WHERE run_id = ?) AS history_rows,
+                       (SELECT count(*) FROM reconciliation_mismatches WHERE run_id = ?) AS mismatches""",
+                (rs, rowNum) -> new Summary(rs.getInt("chunks"), rs.getLong("accounts"), rs.getLong("history_rows"),
+                        rs.getLong("mismatches")),
+                runId, runId, runId, runId);
+    }
+
+    public List<Mismatch> findMismatches(long runId, int limit) {
+        return jdbcTemplate.query("SELECT * FROM reconciliation_mismatches WHERE run_id = ? ORDER BY account_id LIMIT ?",
+                MISMATCH_MAPPER, runId, limit);
+    }
+
+    /**
+     * Streams {@code (account_id, amount)} of the history rows crediting accounts in the id range, and the net of
+     * their archived history.
+     */
+    public void streamCredits(long fromId, long toId, RowCallbackHandler handler) {
+        streamingTemplate.query("""
+                SELECT account_id_to, amount FROM transaction_history WHERE account_id_to BETWEEN ? AND ?
+                UNION ALL
+                SELECT account_id, balance FROM archived_balances WHERE account_id BETWEEN ? AND ?""",
+                handler, fromId, toId, fromId, toId);
+    }
+
+    /**
+     * Streams {@code (account_id, amount)} of the history rows debiting accounts in the id range.
+     */
+    public void streamDebits(long fromId, long toId, RowCallbackHandler handler) {
+        streamingTemplate.query("SELECT account_id_from, amount FROM transaction_history WHERE account_id_from BETWEEN ? AND ?",
+                handler, fromId, toId);
+    }
+
+    /**
+     * Streams {@code (id, account_number, balance)} of the accounts in the id range, the balance including any slots.
+     */
+    public void streamBalances(long fromId, long toId, RowCallbackHandler handler) {
+        streamingTemplate.query("""
+                SELECT a.id, a.account_number, a.balance + coalesce(s.balance, 0) AS balance
+                FROM accounts a
+                LEFT JOIN (SELECT account_id, sum(balance) AS balance FROM account_balance_slots
+                           WHERE account_id BETWEEN ? AND ? GROUP BY account_id) s ON s.account_id = a.id
+                WHERE a.id BETWEEN ? AND ?""", handler, fromId, toId, fromId, toId);
+    }
+
+    /**
+     * The account's balance, including slots, and the net sum of its history, archived history included, read in
+     * one statement.
+     */
+    public Mismatch compare(long accountId) {
+        List<Mismatch> rows = jdbcTemplate.query("""
+                SELECT a.id AS account_id, a.account_number,
+                       a.balance + coalesce((SELECT sum(balance) FROM account_balance_slots WHERE account_id = a.id), 0) AS balance,
+                       coalesce((SELECT balance FROM archived_balances WHERE account_id = a.id), 0)
+                           + coalesce((SELECT sum(amount) FROM transaction_history WHERE account_id_to = a.id), 0)
+                           - coalesce((SELECT sum(amount) FROM transaction_history WHERE account_id_from = a.id), 0)
+                           AS history_balance
+                FROM accounts a WHERE a.id = ?""", MISMATCH_MAPPER, accountId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private static long[] longs(Array array) throws SQLException {
+        return Arrays.stream((Long[]) array.getArray()).mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * A run over the id range {@code fromIds[shard]..toIds[shard]} of every shard, empty where {@code to < from}.
+     * Chunks are numbered across shards, those of shard 0 first.
+     */
+    public record Run(long id, String status, long[] fromIds, long[] toIds, int chunkSize, LocalDateTime startedAt,
+                      LocalDateTime heartbeatAt, LocalDateTime finishedAt, String error) {
+        public int chunks() {
+            int chunks = 0;
+            for (int shard = 0; shard < fromIds.length; shard++) {
+                chunks += chunks(shard);
+            }
+            return chunks;
+        }
+
+        public int chunks(int shard) {
+            return toIds[shard] < fromIds[shard] ? 0 : (int) ((toIds[shard] - fromIds[shard]) / chunkSize + 1);
+        }
+    }
+
+    public record Mismatch(long accountId, String accountNumber, long balance, long historyBalance) {
+        public boolean matches() {
+            return balance == historyBalance;
+        }
+    }
+
+    public record Summary(int chunks, long accounts, long historyRows, long mismatches) {
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.picheTest.repository;
+
+import com.example.picheTest.model.Money;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The two sides of cross-shard transfers: {@code shard_transfers} on the debited account's shard records each
+ * transfer with its debit, {@code shard_transfer_credits} on the credited account's shard records which credits
+ * were applied. Both are read and written on whichever shard the caller is routed to.
+ */
+@Repository
+public class ShardTransferRepository {
+    public static final String DEBITED = "DEBITED";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String COMPENSATED = "COMPENSATED";
+
+    private static final RowMapper<ShardTransfer> MAPPER = (rs, rowNum) -> new ShardTransfer(
+            rs.getObject("id", UUID.class), rs.getLong("from_account_id"), rs.getLong("to_account_id"),
+            rs.getInt("to_shard"), Money.ofDecimal(rs.getBigDecimal("amount")));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ShardTransferRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public void insert(ShardTransfer transfer, LocalDateTime now) {
+        jdbcTemplate.update("""
+                INSERT INTO shard_transfers (id, from_account_id, to_account_id, to_shard, amount, status, created_at, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?)""", transfer.id(), transfer.fromAccountId(), transfer.toAccountId(),
+                transfer.toShard(), Money.toDecimal(transfer.amount()), DEBITED, Timestamp.valueOf(now),
+                Timestamp.valueOf(now));
+    }
+
+    /**
+     * Moves a transfer still in {@link #DEBITED} to the given status; {@code false} when it had already moved on.
+     */
+    public boolean finish(UUID id, String status, LocalDateTime now) {
+        return jdbcTemplate.update("UPDATE shard_transfers SET status = ?, updated_at = ? WHERE id = ? AND status = ?",
+                status, Timestamp.valueOf(now), id, DEBITED) > 0;
+    }
+
+    /**
+     * Transfers debited before {@code before} and not finished yet, oldest first.
+     */
+    public List<ShardTransfer> findUnfinished(LocalDateTime before, int limit) {
+        return jdbcTemplate.query("""
+                SELECT * FROM shard_transfers WHERE status = ? AND created_at < ?
+                ORDER BY created_at LIMIT ?""", MAPPER, DEBITED, Timestamp.valueOf(before), limit);
+    }
+
+    public String status(UUID id) {
+        List<String> status = jdbcTemplate.queryForList("SELECT status FROM shard_transfers WHERE id = ?", String.class, id);
+        return status.isEmpty() ? null : status.get(0);
+    }
+
+    /**
+     * Records on the credited shard that the transfer's credit is applied; {@code false} when it already was.
+     */
+    public boolean claimCredit(UUID id, LocalDateTime now) {
+        return jdbcTemplate.update("INSERT INTO shard_transfer_credits (id, applied_at) VALUES (?, ?) ON CONFLICT DO NOTHING",
+                id, Timestamp.valueOf(now)) > 0;
+    }
+
+    public record ShardTransfer(UUID id, long fromAccountId, long toAccountId, int toShard, long amount) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.picheTest.repository;
+
+import com.example.picheTest.model.response.TransactionEventRS;
+import com.example.picheTest.repository.entity.TransactionType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The {@code transaction_events} outbox, which a trigger on {@code transaction_history} fills.
+ */
+@Repository
+public class TransactionEventRepository {
+    private static final long LOCK_KEY = 0x6576656e7473L;
+
+    private static final String SELECT = """
+            SELECT e.event_offset, e.history_id, e.transaction_type, e.amount, e.created_at,
+                   e.account_id_from, e.account_id_to, f.account_number AS from_number, t.account_number AS to_number
+            FROM transaction_events e
+            LEFT JOIN accounts f ON f.id = e.account_id_from
+            LEFT JOIN accounts t ON t.id = e.account_id_to
+            """;
+
+    private static final RowMapper<TransactionEventRS> ROW_MAPPER = (rs, rowNum) -> new TransactionEventRS(
+            rs.getLong("event_offset"),
+            rs.getLong("history_id"),
+            TransactionType.valueOf(rs.getString("transaction_type")),
+            rs.getString("from_number"),
+            rs.getString("to_number"),
+            rs.getBigDecimal("amount"),
+            rs.getTimestamp("created_at").toLocalDateTime(),
+            rs.getObject("account_id_from", Long.class),
+            rs.getObject("account_id_to", Long.class));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TransactionEventRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Transaction-scoped lock so that only one instance numbers events at a time.
+     */
+    public boolean tryLock() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY));
+    }
+
+    /**
+     * Gives up to {@code limit} unnumbered events the offsets following the highest one, in history id order.
+     * Returns how many were numbered.
+     */
+    public int assignOffsets(int limit) {
+        return jdbcTemplate.update("""
+                WITH pending AS (
+                    SELECT history_id, row_number() OVER (ORDER BY history_id) AS n
+                    FROM (SELECT history_id FROM transaction_events WHERE event_offset IS NULL ORDER BY history_id LIMIT ?) p
+                )
+                UPDATE transaction_events e
+                SET event_offset = (SELECT coalesce(max(event_offset), 0) FROM transaction_events) + pending.n
+                FROM pending
+                WHERE e.history_id = pending.history_id""", limit);
+    }
+
+    /**
+     * Deletes numbered events more than {@code retained} offsets behind the newest one.
+     */
+    public int prune(long retained) {
+        return jdbcTemplate.update("""
+                DELETE FROM transaction_events
+                WHERE event_offset <= (SELECT max(event_offset) FROM transaction_events) - ?""", retained);
+    }
+
+    public long lastOffset() {
+        Long last = jdbcTemplate.queryForObject("SELECT max(event_offset) FROM transaction_events", Long.class);
+        return last == null ? 0 : last;
+    }
+
+    /**
+     * Numbered events after the offset, oldest first.
+     */
+    public List<TransactionEventRS> findAfter(long offset, int limit) {
+        return jdbcTemplate.query(SELECT + " WHERE e.event_offset > ? ORDER BY e.event_offset LIMIT ?",
+                ROW_MAPPER, offset, limit);
+    }
+
+    /**
+     * Numbered events after the offset where one of the accounts is either side, oldest first.
+     */
+    public List<TransactionEventRS> findAfter(long offset, Collection<Long> accountIds, int limit) {
+        Long[] ids = accountIds.toArray(Long[]::new);
+        return jdbcTemplate.query(SELECT + """
+                        WHERE e.event_offset > ? AND (e.account_id_from = ANY(?) OR e.account_id_to = ANY(?))
+                        ORDER BY e.event_offset LIMIT ?""",
+                ROW_MAPPER, offset, ids, ids, limit);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.picheTest.repository;
+
+import com.example.picheTest.config.PaginationProperties;
+import com.example.picheTest.model.Money;
+import com.example.picheTest.repository.entity.TransactionHistory;
+import com.example.picheTest.repository.entity.TransactionType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class TransactionHistoryJdbcRepository {
+    private static final String COLUMNS = "id, account_id_from, account_id_to, amount, transaction_type, created_at";
+    private static final String ORDER = " ORDER BY created_at DESC, id DESC LIMIT ?";
+
+    static final RowMapper<TransactionHistory> ROW_MAPPER = (rs, rowNum) -> new TransactionHistory(
+            rs.getLong("id"),
+            rs.getObject("account_id_from", Long.class),
+            rs.getObject("account_id_to", Long.class),
+            Money.ofDecimal(rs.getBigDecimal("amount")),
+            TransactionType.valueOf(rs.getString("transaction_type")),
+            rs.getTimestamp("created_at").toLocalDateTime());
+
+    /**
+     * Must match the allocation size of the id generator on {@link TransactionHistory}.
+     */
+    public static final int ID_BLOCK_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingTemplate;
+
+    public TransactionHistoryJdbcRepository(DataSource dataSource, PaginationProperties properties) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingTemplate = new JdbcTemplate(dataSource);
+        this.streamingTemplate.setFetchSize(properties.getStreamFetchSize());
+    }
+
+    /**
+     * Newest-first page of the rows where the account is either side, strictly before the
+     * {@code (beforeCreatedAt, beforeId)} keyset position when one is given. Each direction is read as its own
+     * index-ordered, limited scan and the two are merged, so the cost depends on the page size rather than on
+     * the account's history length.
+     */
+    public List<TransactionHistory> findPage(long accountId, LocalDateTime from, LocalDateTime to, TransactionType type,
+                                             LocalDateTime beforeCreatedAt, Long beforeId, int limit) {
+        StringBuilder filters = new StringBuilder();
+        List<Object> filterArgs = new ArrayList<>();
+        if (from != null) {
+            filters.append(" AND created_at >= ?");
+            filterArgs.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            filters.append(" AND created_at < ?");
+            filterArgs.add(Timestamp.valueOf(to));
+        }
+        if (type != null) {
+            filters.append(" AND transaction_type = ?");
+            filterArgs.add(type.name());
+        }
+        if (beforeCreatedAt != null && beforeId != null) {
+            filters.append(" AND (created_at, id) < (?, ?)");
+            filterArgs.add(Timestamp.valueOf(beforeCreatedAt));
+            filterArgs.add(beforeId);
+        }
+
+        String sql = "SELECT " + COLUMNS + " FROM ("
+                + "(SELECT " + COLUMNS + " FROM transaction_history WHERE account_id_from = ?" + filters + ORDER + ")"
+                + " UNION ALL "
+                + "(SELECT " + COLUMNS + " FROM transaction_history WHERE account_id_to = ?" + filters + ORDER + ")"
+                + ") h" + ORDER;
+
+        List<Object> args = new ArrayList<>();
+        for (int direction = 0; direction < 2; direction++) {
+            args.add(accountId);
+            args.addAll(filterArgs);
+            args.add(limit);
+        }
+        args.add(limit);
+        return jdbcTemplate.query(sql, ROW_MAPPER, args.toArray());
+    }
+
+    /**
+     * Calls back with every row where the account is either side, created in {@code [from, to)}, oldest first.
+     * Both directions are read as index-ordered scans merged by the database, through a server-side cursor when
+     * called inside a transaction, so nothing is buffered beyond one fetch.
+     */
+    public void streamStatement(long accountId, LocalDateTime from, LocalDateTime to, RowCallbackHandler handler) {
+        String filters = " AND created_at >= coalesce(CAST(? AS timestamp), '-infinity')"
+                + " AND created_at < coalesce(CAST(? AS timestamp), 'infinity')";
+        Timestamp fromTs = from == null ? null : Timestamp.valueOf(from);
+        Timestamp toTs = to == null ? null : Timestamp.valueOf(to);
+        streamingTemplate.query("SELECT " + COLUMNS + " FROM transaction_history WHERE account_id_from = ?" + filters
+                        + " UNION ALL "
+                        + "SELECT " + COLUMNS + " FROM transaction_history WHERE account_id_to = ?" + filters
+                        + " ORDER BY created_at, id",
+                handler, accountId, fromTs, toTs, accountId, fromTs, toTs);
+    }
+
+    /**
+     * Reserves {@link #ID_BLOCK_SIZE} ids the same way Hibernate's pooled optimizer does and returns the highest.
+     */
+    public long reserveIdBlock() {
+        return jdbcTemplate.queryForObject("SELECT nextval('transaction_history_id_seq')", Long.class);
+    }
+
+    /**
+     * Id of the surrounding database transaction, assigning one if it has not written anything yet.
+     */
+    public long currentTransactionId() {
+        return jdbcTemplate.queryForObject("SELECT txid_current()", Long.class);
+    }
+
+    /**
+     * Whether each of the given transactions committed ({@code true}) or aborted ({@code false}). Transactions
+     * still in progress are left out; ones too old for the database to remember count as committed.
+     */
+    public Map<Long, Boolean> transactionOutcomes(Collection<Long> transactionIds) {
+        Map<Long, Boolean> outcomes = new HashMap<>();
+        jdbcTemplate.query("SELECT id, txid_status(id) FROM unnest(?) AS id",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", transactionIds.toArray())),
+                (RowCallbackHandler) rs -> {
+                    String status = rs.getString(2);
+                    if (!"in progress".equals(status)) {
+                        outcomes.put(rs.getLong(1), !"aborted".equals(status));
+                    }
+                });
+        return outcomes;
+    }
+
+    /**
+     * Inserts rows that already carry their id and time; rows already present are skipped, which makes replaying
+     * the same rows harmless.
+     */
+    public void insertAll(List<TransactionHistory> history) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO transaction_history (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (id, created_at) DO NOTHING",
+                history,
+                history.size(),
+                (ps, row) -> {
+                    ps.setLong(1, row.getId());
+                    ps.setObject(2, row.getAccountIdFrom(), Types.BIGINT);
+                    ps.setObject(3, row.getAccountIdTo(), Types.BIGINT);
+                    ps.setBigDecimal(4, Money.toDecimal(row.getAmountCents()));
+                    ps.setString(5, row.getTransactionType().name());
+                    ps.setTimestamp(6, Timestamp.valueOf(row.getCreatedAt()));
+                });
+    }
+}
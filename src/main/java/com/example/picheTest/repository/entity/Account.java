@@ -1,5 +1,7 @@
 package com.example.picheTest.repository.entity;
 
+import com.example.picheTest.model.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 
@@ -16,5 +18,23 @@ public class Account {
     @Column(name = "account_number", unique = true, nullable = false)
     private String accountNumber;
 
-    private BigDecimal balance;
+    @JsonIgnore
+    @Column(name = "balance")
+    @Convert(converter = MoneyConverter.class)
+    private long balanceCents;
+
+    /**
+     * Balance slots the account is split into, 1 when it is not; changed only by {@code BalanceSlots} through SQL.
+     */
+    @JsonIgnore
+    @Column(name = "slots", insertable = false, updatable = false)
+    private int slots = 1;
+
+    public BigDecimal getBalance() {
+        return Money.toDecimal(balanceCents);
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balanceCents = Money.ofDecimal(balance);
+    }
 }
@@ -0,0 +1,21 @@
+package com.example.picheTest.repository.entity;
+
+import com.example.picheTest.model.Money;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+@Converter
+public class MoneyConverter implements AttributeConverter<Long, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Long cents) {
+        return cents == null ? null : Money.toDecimal(cents);
+    }
+
+    @Override
+    public Long convertToEntityAttribute(BigDecimal amount) {
+        return amount == null ? 0L : Money.ofDecimal(amount);
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.picheTest.repository.entity;
 
+import com.example.picheTest.model.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -10,21 +13,25 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "transaction_history")
+@JsonPropertyOrder({"id", "accountIdFrom", "accountIdTo", "amount", "transactionType", "createdAt"})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class TransactionHistory {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_history_id_seq")
+    @SequenceGenerator(name = "transaction_history_id_seq", sequenceName = "transaction_history_id_seq", allocationSize = 50)
     private Long id;
 
     private Long accountIdFrom;
 
     private Long accountIdTo;
 
-    @Column(nullable = false)
-    private BigDecimal amount;
+    @JsonIgnore
+    @Column(name = "amount", nullable = false)
+    @Convert(converter = MoneyConverter.class)
+    private long amountCents;
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
@@ -32,4 +39,21 @@ public class TransactionHistory {
 
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
+
+    public static TransactionHistory of(Long accountIdFrom, Long accountIdTo, TransactionType transactionType, long amountCents) {
+        TransactionHistory history = new TransactionHistory();
+        history.setAccountIdFrom(accountIdFrom);
+        history.setAccountIdTo(accountIdTo);
+        history.setTransactionType(transactionType);
+        history.setAmountCents(amountCents);
+        return history;
+    }
+
+    public BigDecimal getAmount() {
+        return Money.toDecimal(amountCents);
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amountCents = Money.ofDecimal(amount);
+    }
 }
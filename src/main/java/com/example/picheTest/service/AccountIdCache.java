@@ -0,0 +1,194 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.config.IdCacheProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Account number to account id, which never changes once an account exists, so lookups can skip the
+ * {@code account_number} index and go straight to the primary key.
+ * <p>
+ * Entries are a 64-bit fingerprint of the account number and the id in two primitive arrays, organised as
+ * set-associative buckets with one CLOCK hand per set, so memory is fixed at 17 bytes per entry and no key
+ * objects are retained. Reads take no lock: a writer clears an entry's fingerprint before changing its id and
+ * publishes the new fingerprint last, and a reader re-checks the fingerprint after reading the id.
+ * <p>
+ * Two account numbers may share a fingerprint, so a cached id is a hint: every query using it must also match
+ * the account number, and fall back to the lookup by number (then {@link #put}) when it does not.
+ */
+@Component
+public class AccountIdCache {
+    public static final long ABSENT = -1;
+    private static final long EMPTY = 0;
+    private static final int LOCK_STRIPES = 64;
+
+    private final int ways;
+    private final int setMask;
+    private final AtomicLongArray fingerprints;
+    private final AtomicLongArray ids;
+    private final byte[] referenced;
+    private final byte[] hands;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public AccountIdCache(IdCacheProperties properties, MeterRegistry meterRegistry) {
+        this(properties.getCapacity(), properties.getWays());
+        FunctionCounter.builder("account.id_cache.requests", hits, LongAdder::sum)
+                .description("Account id lookups answered by the cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("account.id_cache.requests", misses, LongAdder::sum)
+                .description("Account id lookups answered by the cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("account.id_cache.memory", this, AccountIdCache::footprintBytes)
+                .description("Memory held by the account id cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public AccountIdCache(int capacity, int ways) {
+        if (ways < 1 || ways > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Ways must be between 1 and " + Byte.MAX_VALUE);
+        }
+        int perWay = capacity <= 0 ? 0 : (capacity + ways - 1) / ways;
+        int sets = perWay <= 1 ? perWay : Integer.highestOneBit(perWay - 1) << 1;
+        this.ways = ways;
+        this.setMask = sets - 1;
+        this.fingerprints = new AtomicLongArray(sets * ways);
+        this.ids = new AtomicLongArray(sets * ways);
+        this.referenced = new byte[sets * ways];
+        this.hands = new byte[sets];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public boolean isEnabled() {
+        return setMask >= 0;
+    }
+
+    /**
+     * The cached id, or {@link #ABSENT}.
+     */
+    public long get(String accountNumber) {
+        if (!isEnabled()) {
+            return ABSENT;
+        }
+        long fingerprint = fingerprint(accountNumber);
+        int base = setOf(fingerprint) * ways;
+        for (int slot = base; slot < base + ways; slot++) {
+            if (fingerprints.get(slot) == fingerprint) {
+                long id = ids.get(slot);
+                if (fingerprints.get(slot) == fingerprint) {
+                    referenced[slot] = 1;
+                    hits.increment();
+                    return id;
+                }
+            }
+        }
+        misses.increment();
+        return ABSENT;
+    }
+
+    public void put(String accountNumber, long id) {
+        if (!isEnabled()) {
+            return;
+        }
+        long fingerprint = fingerprint(accountNumber);
+        int set = setOf(fingerprint);
+        int base = set * ways;
+        synchronized (locks[set & (LOCK_STRIPES - 1)]) {
+            int free = -1;
+            for (int slot = base; slot < base + ways; slot++) {
+                long current = fingerprints.get(slot);
+                if (current == fingerprint) {
+                    write(slot, fingerprint, id);
+                    return;
+                }
+                if (current == EMPTY && free < 0) {
+                    free = slot;
+                }
+            }
+            write(free >= 0 ? free : base + evict(set), fingerprint, id);
+        }
+    }
+
+    /**
+     * Drops the entry of an account number whose cached id turned out not to match it.
+     */
+    public void invalidate(String accountNumber) {
+        if (!isEnabled()) {
+            return;
+        }
+        long fingerprint = fingerprint(accountNumber);
+        int set = setOf(fingerprint);
+        int base = set * ways;
+        synchronized (locks[set & (LOCK_STRIPES - 1)]) {
+            for (int slot = base; slot < base + ways; slot++) {
+                if (fingerprints.get(slot) == fingerprint) {
+                    fingerprints.set(slot, EMPTY);
+                }
+            }
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long footprintBytes() {
+        return (long) fingerprints.length() * (Long.BYTES * 2 + 1) + hands.length;
+    }
+
+    private void write(int slot, long fingerprint, long id) {
+        fingerprints.set(slot, EMPTY);
+        ids.set(slot, id);
+        referenced[slot] = 0;
+        fingerprints.set(slot, fingerprint);
+    }
+
+    /**
+     * Advances the set's hand past recently read entries, clearing their bit, and returns the first one that was not.
+     */
+    private int evict(int set) {
+        int base = set * ways;
+        int hand = hands[set];
+        while (referenced[base + hand] != 0) {
+            referenced[base + hand] = 0;
+            hand = hand + 1 == ways ? 0 : hand + 1;
+        }
+        hands[set] = (byte) (hand + 1 == ways ? 0 : hand + 1);
+        return hand;
+    }
+
+    private int setOf(long fingerprint) {
+        return (int) (fingerprint >>> 32) & setMask;
+    }
+
+    /**
+     * FNV-1a over the characters, finished with the MurmurHash3 mixer; never {@link #EMPTY}.
+     */
+    static long fingerprint(String accountNumber) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < accountNumber.length(); i++) {
+            hash = (hash ^ accountNumber.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == EMPTY ? 1 : hash;
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.config.BulkImportProperties;
+import com.example.picheTest.metrics.AccountMetrics;
+import com.example.picheTest.model.Money;
+import com.example.picheTest.model.StatementFormat;
+import com.example.picheTest.model.request.AccountCreateRQ;
+import com.example.picheTest.model.response.BulkImportRS;
+import com.example.picheTest.repository.AccountImportRepository;
+import com.example.picheTest.sharding.ShardRouter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates accounts in bulk. Records are parsed as they arrive and streamed with {@code COPY} into a staging table,
+ * from which one set-based statement creates the accounts and their opening deposits; account numbers already
+ * taken, or repeated within the import, are reported instead of failing the import. The whole import is one
+ * transaction, so nothing is created when it fails.
+ */
+@Slf4j
+@Service
+public class AccountImporter {
+    private final AccountImportRepository importRepository;
+    private final BalanceEngine balanceEngine;
+    private final ObjectMapper objectMapper;
+    private final AccountMetrics metrics;
+    private final ShardRouter shards;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxReported;
+
+    public AccountImporter(AccountImportRepository importRepository, BalanceEngine balanceEngine, ObjectMapper objectMapper,
+                           AccountMetrics metrics, BulkImportProperties properties, ShardRouter shards,
+                           PlatformTransactionManager transactionManager) {
+        this.importRepository = importRepository;
+        this.balanceEngine = balanceEngine;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxReported = properties.getMaxReported();
+    }
+
+    public BulkImportRS importAccounts(InputStream body, StatementFormat format) {
+        if (shards.count() > 1) {
+            // COPY loads into one database, which would leave accounts on shards their numbers do not hash to
+            throw new IllegalArgumentException("Bulk import is not available while accounts are sharded");
+        }
+        long start = System.nanoTime();
+        BulkImportRS report = new BulkImportRS();
+        report.setDuplicateAccountNumbers(new ArrayList<>());
+        report.setInvalidRecords(new ArrayList<>());
+
+        AccountImportRepository.Created created = transactionTemplate.execute(status -> {
+            importRepository.stage(sink -> {
+                try {
+                    if (format == StatementFormat.CSV) {
+                        readCsv(body, sink, report);
+                    } else {
+                        readNdjson(body, sink, report);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            importRepository.insertStaged(LocalDateTime.now());
+            importRepository.findDuplicates(rs -> {
+                report.setDuplicates(report.getDuplicates() + 1);
+                if (report.getDuplicateAccountNumbers().size() < maxReported) {
+                    report.getDuplicateAccountNumbers().add(rs.getString("account_number"));
+                }
+            });
+            return importRepository.summarizeCreated();
+        });
+
+        if (created.count() > 0) {
+            balanceEngine.accountsCreated(created.minId(), created.maxId());
+        }
+        metrics.importedAccounts(created.count());
+        metrics.rejected(AccountMetrics.Rejection.DUPLICATE_ACCOUNT, report.getDuplicates());
+
+        long elapsedNanos = System.nanoTime() - start;
+        report.setCreated(created.count());
+        report.setElapsedMillis(elapsedNanos / 1_000_000);
+        report.setRowsPerSecond(elapsedNanos == 0 ? 0 : report.getReceived() * 1_000_000_000L / elapsedNanos);
+        log.info("Imported {} of {} accounts in {} ms ({} rows/s), {} duplicates, {} invalid", report.getCreated(),
+                report.getReceived(), report.getElapsedMillis(), report.getRowsPerSecond(), report.getDuplicates(),
+                report.getInvalid());
+        return report;
+    }
+
+    private void readNdjson(InputStream body, AccountImportRepository.Sink sink, BulkImportRS report) throws IOException {
+        try (MappingIterator<AccountCreateRQ> records = objectMapper.readerFor(AccountCreateRQ.class).readValues(body)) {
+            long line = 0;
+            while (true) {
+                AccountCreateRQ record;
+                try {
+                    if (!records.hasNextValue()) {
+                        break;
+                    }
+                    record = records.nextValue();
+                } catch (JsonProcessingException | RuntimeJsonMappingException e) {
+                    throw new IllegalArgumentException("Record " + (line + 1) + " is not a valid account");
+                }
+                report.setReceived(++line);
+                add(sink, report, line, record.getAccountNumber(), record.getBalance());
+            }
+        }
+    }
+
+    /**
+     * {@code accountNumber,balance} per line; a first line naming the columns is skipped.
+     */
+    private void readCsv(InputStream body, AccountImportRepository.Sink sink, BulkImportRS report) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String text;
+        long line = 0;
+        boolean first = true;
+        while ((text = reader.readLine()) != null) {
+            if (first) {
+                first = false;
+                String header = text.replace("\"", "").replace("_", "").trim();
+                if (header.equalsIgnoreCase("accountNumber,balance")) {
+                    continue;
+                }
+            }
+            if (text.isBlank()) {
+                continue;
+            }
+            report.setReceived(++line);
+            int comma = text.lastIndexOf(',');
+            if (comma < 0) {
+                invalid(report, line);
+                continue;
+            }
+            BigDecimal balance;
+            try {
+                balance = new BigDecimal(unquote(text.substring(comma + 1)));
+            } catch (NumberFormatException e) {
+                invalid(report, line);
+                continue;
+            }
+            add(sink, report, line, unquote(text.substring(0, comma)), balance);
+        }
+    }
+
+    private void add(AccountImportRepository.Sink sink, BulkImportRS report, long line, String accountNumber, BigDecimal balance) {
+        if (accountNumber == null || accountNumber.isBlank() || accountNumber.length() > 255 || balance == null) {
+            invalid(report, line);
+            return;
+        }
+        long cents;
+        try {
+            cents = Money.ofDecimal(balance);
+        } catch (IllegalArgumentException e) {
+            invalid(report, line);
+            return;
+        }
+        sink.add(line, accountNumber, cents);
+    }
+
+    private void invalid(BulkImportRS report, long line) {
+        report.setInvalid(report.getInvalid() + 1);
+        if (report.getInvalidRecords().size() < maxReported) {
+            report.getInvalidRecords().add(line);
+        }
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1).replace("\"\"", "\"");
+        }
+        return trimmed;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.model.request.TransferRQ;
+import com.example.picheTest.model.response.TransferResultRS;
+import com.example.picheTest.repository.entity.Account;
+import com.example.picheTest.sharding.CrossShardTransfers;
+import com.example.picheTest.sharding.ShardRouter;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Runs validated deposits, withdrawals and transfers on the engines: each on the shard of its account, at most
+ * once per idempotency key when one is given. Requests reaching it are already validated by {@link AccountService}.
+ */
+@Component
+@Builder
+@AllArgsConstructor
+public class AccountMovements {
+    private final ShardRouter shards;
+    private final BalanceEngine balanceEngine;
+    private final TransferEngine transferEngine;
+    private final BatchTransferProcessor batchTransferProcessor;
+    private final DepositCombiner depositCombiner;
+    private final CrossShardTransfers crossShardTransfers;
+    private final IdempotencyKeys idempotencyKeys;
+
+    public Account deposit(String accountNumber, long amount, String idempotencyKey) {
+        if (idempotencyKey != null) {
+            long fingerprint = IdempotencyKeys.fingerprint("deposit", accountNumber, amount);
+            return shards.onAccount(accountNumber, () -> idempotencyKeys.execute(idempotencyKey, fingerprint,
+                    Account.class, () -> idempotencyKeys.inTransaction(idempotencyKey, fingerprint,
+                            () -> balanceEngine.deposit(accountNumber, amount))));
+        }
+        // the combiner batches deposits per account, and every caller of one account runs on that account's shard
+        return shards.onAccount(accountNumber, () -> depositCombiner.isEnabled()
+                ? depositCombiner.deposit(accountNumber, amount)
+                : balanceEngine.deposit(accountNumber, amount));
+    }
+
+    public Account withdraw(String accountNumber, long amount, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return shards.onAccount(accountNumber, () -> balanceEngine.withdraw(accountNumber, amount));
+        }
+        long fingerprint = IdempotencyKeys.fingerprint("withdraw", accountNumber, amount);
+        return shards.onAccount(accountNumber, () -> idempotencyKeys.execute(idempotencyKey, fingerprint,
+                Account.class, () -> idempotencyKeys.inTransaction(idempotencyKey, fingerprint,
+                        () -> balanceEngine.withdraw(accountNumber, amount))));
+    }
+
+    /**
+     * The idempotency key is stored on the debited account's shard.
+     */
+    public boolean transfer(TransferRQ transferRQ, long amount, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return route(transferRQ);
+        }
+        long fingerprint = IdempotencyKeys.fingerprint("transfer", transferRQ.getFromAccountNumber(),
+                transferRQ.getToAccountNumber(), amount);
+        return shards.onAccount(transferRQ.getFromAccountNumber(), () -> idempotencyKeys.execute(
+                idempotencyKey, fingerprint, Boolean.class, () -> route(transferRQ, idempotencyKey, fingerprint)));
+    }
+
+    /**
+     * Sharded batches are applied one transfer at a time, each routed like a single transfer.
+     */
+    public List<TransferResultRS> transferBatch(List<TransferRQ> transfers, Consumer<TransferRQ> validator) {
+        if (shards.count() == 1) {
+            return batchTransferProcessor.process(transfers, validator);
+        }
+        List<TransferResultRS> results = new ArrayList<>(transfers.size());
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRQ transfer = transfers.get(i);
+            try {
+                validator.accept(transfer);
+                route(transfer);
+                results.add(TransferResultRS.succeeded(i));
+            } catch (IllegalArgumentException e) {
+                results.add(TransferResultRS.failed(i, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Transfers within a shard keep their single local transaction; the others run as a cross-shard saga.
+     */
+    private boolean route(TransferRQ transferRQ) {
+        int fromShard = shards.shardOf(transferRQ.getFromAccountNumber());
+        int toShard = shards.shardOf(transferRQ.getToAccountNumber());
+        return fromShard == toShard
+                ? shards.on(fromShard, () -> transferEngine.transfer(transferRQ))
+                : crossShardTransfers.transfer(transferRQ, fromShard, toShard);
+    }
+
+    /**
+     * Like {@link #route(TransferRQ)}, storing the response under the idempotency key in the transaction that
+     * takes the money.
+     */
+    private boolean route(TransferRQ transferRQ, String idempotencyKey, long fingerprint) {
+        int fromShard = shards.shardOf(transferRQ.getFromAccountNumber());
+        int toShard = shards.shardOf(transferRQ.getToAccountNumber());
+        return fromShard == toShard
+                ? idempotencyKeys.inTransaction(idempotencyKey, fingerprint, () -> transferEngine.transfer(transferRQ))
+                : crossShardTransfers.transfer(transferRQ, fromShard, toShard,
+                () -> idempotencyKeys.record(idempotencyKey, fingerprint, true));
+    }
+}
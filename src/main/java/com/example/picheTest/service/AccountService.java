@@ -1,91 +1,340 @@
 package com.example.picheTest.service;
 
+import com.example.picheTest.config.PaginationProperties;
+import com.example.picheTest.config.TransferProperties;
+import com.example.picheTest.error.AccountNotFoundException;
+import com.example.picheTest.error.DuplicateAccountException;
 import com.example.picheTest.mapper.EntityMapper;
+import com.example.picheTest.metrics.AccountMetrics;
+import com.example.picheTest.model.Money;
+import com.example.picheTest.model.StatementFormat;
 import com.example.picheTest.model.request.AccountCreateRQ;
 import com.example.picheTest.model.request.DepositRQ;
 import com.example.picheTest.model.request.TransferRQ;
 import com.example.picheTest.model.request.WithdrawRQ;
+import com.example.picheTest.model.response.BalanceRS;
+import com.example.picheTest.model.response.TransferResultRS;
+import com.example.picheTest.replica.ReadYourWrites;
+import com.example.picheTest.repository.AccountJdbcRepository;
+import com.example.picheTest.repository.BalanceCheckpointRepository;
+import com.example.picheTest.repository.HistoryPartitionRepository;
 import com.example.picheTest.repository.AccountRepository;
-import com.example.picheTest.repository.TransactionHistoryRepository;
+import com.example.picheTest.repository.TransactionHistoryJdbcRepository;
 import com.example.picheTest.repository.entity.Account;
 import com.example.picheTest.repository.entity.TransactionHistory;
 import com.example.picheTest.repository.entity.TransactionType;
-import org.springframework.transaction.annotation.Transactional;
+import com.example.picheTest.sharding.ShardRouter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
+import lombok.Builder;
+import org.springframework.data.domain.Limit;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
-import org.webjars.NotFoundException;
 
-import java.math.BigDecimal;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
 
 @Service
+@Builder
 @AllArgsConstructor
 public class AccountService {
     private AccountRepository repository;
     private EntityMapper entityMapper;
-    private TransactionHistoryRepository historyRepository;
+    private TransactionHistoryWriter historyWriter;
+    private BalanceEngine balanceEngine;
+    private AccountMovements movements;
+    private BalanceSlots balanceSlots;
+    private TransferProperties transferProperties;
+    private PaginationProperties paginationProperties;
+    private AccountJdbcRepository accountJdbcRepository;
+    private TransactionHistoryJdbcRepository historyJdbcRepository;
+    private ObjectMapper objectMapper;
+    private AccountMetrics metrics;
+    private BalanceCheckpointRepository checkpointRepository;
+    private ReadYourWrites readYourWrites;
+    private AccountIdCache idCache;
+    private HistoryPartitionRepository partitionRepository;
+    private ShardRouter shards;
 
-    public List<Account> getAllAccounts() {
-        return repository.findAll();
+    public List<Account> getAccounts(Long cursor, Integer limit) {
+        int pageSize = limit == null ? paginationProperties.getDefaultPageSize() : limit;
+        if (pageSize < 1 || pageSize > paginationProperties.getMaxPageSize()) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + paginationProperties.getMaxPageSize());
+        }
+        long after = cursor == null ? 0L : cursor;
+        // ids are disjoint across shards, so the first page of every shard merged by id is the first page overall
+        List<List<Account>> pages = shards.scatter(shard -> getAccountPage(after, pageSize));
+        if (pages.size() == 1) {
+            return pages.get(0);
+        }
+        return pages.stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(Account::getId))
+                .limit(pageSize)
+                .toList();
+    }
+
+    private List<Account> getAccountPage(long after, int pageSize) {
+        List<Account> accounts = repository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(pageSize));
+        if (readYourWrites.anyRecent(accounts.stream().map(Account::getAccountNumber).toList())) {
+            accounts = readYourWrites.onPrimary(() -> repository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(pageSize)));
+        }
+        return balanceSlots.withTotals(accounts);
+    }
+
+    /**
+     * Writes every account as NDJSON, one shard after the other.
+     */
+    public void streamAccounts(OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            shards.readEach(shard -> accountJdbcRepository.streamAll(rs -> {
+                try {
+                    generator.writeStartObject();
+                    generator.writeNumberField("id", rs.getLong("id"));
+                    generator.writeStringField("accountNumber", rs.getString("account_number"));
+                    generator.writeNumberField("balance", rs.getBigDecimal("balance"));
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
     }
 
     public Account getAccount(String accountNumber) {
-        return repository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new NotFoundException("Account with account number " + accountNumber + " not found"));
+        return shards.onAccount(accountNumber, () -> balanceSlots.withTotal(findAccount(accountNumber)));
+    }
+
+    private Account findAccount(String accountNumber) {
+        Account account = readYourWrites.read(accountNumber, () -> repository.findByAccountNumber(accountNumber))
+                .orElseThrow(() -> {
+                    metrics.rejected(AccountMetrics.Rejection.NOT_FOUND);
+                    return new AccountNotFoundException(accountNumber);
+                });
+        idCache.put(accountNumber, account.getId());
+        return account;
+    }
+
+    /**
+     * Balance as of the given time, or the current balance when no time is given.
+     */
+    public BalanceRS getBalance(String accountNumber, LocalDateTime asOf) {
+        return shards.onAccount(accountNumber, () -> balanceOn(accountNumber, asOf));
+    }
+
+    private BalanceRS balanceOn(String accountNumber, LocalDateTime asOf) {
+        if (asOf == null) {
+            Account account = getAccount(accountNumber);
+            return new BalanceRS(accountNumber, LocalDateTime.now(), account.getBalance());
+        }
+        LocalDateTime exactSince = partitionRepository.exactSince();
+        if (exactSince != null && asOf.isBefore(exactSince)) {
+            throw new IllegalArgumentException("History before " + exactSince + " is archived");
+        }
+        Account account = findAccount(accountNumber);
+        return new BalanceRS(accountNumber, asOf, Money.toDecimal(checkpointRepository.balanceAt(account.getId(), asOf)));
+    }
+
+    /**
+     * Checks a statement request up front, so that errors are reported before the response starts streaming.
+     */
+    public Account getStatementAccount(String accountNumber, LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("From must be before To");
+        }
+        return shards.onAccount(accountNumber, () -> findAccount(accountNumber));
+    }
+
+    /**
+     * Writes the account's history in {@code [from, to)}, oldest first, straight from the database cursor of the
+     * account's shard; no rows are mapped to entities or collected.
+     */
+    public void exportStatement(long accountId, LocalDateTime from, LocalDateTime to, StatementFormat format,
+                                OutputStream outputStream) throws IOException {
+        int shard = ShardRouter.shardOfId(accountId);
+        if (format == StatementFormat.CSV) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            writer.write("id,created_at,transaction_type,account_id_from,account_id_to,amount\n");
+            shards.read(shard, s -> historyJdbcRepository.streamStatement(accountId, from, to, rs -> {
+                try {
+                    writer.write(rs.getString("id"));
+                    writer.write(',');
+                    writer.write(rs.getObject("created_at", LocalDateTime.class).toString());
+                    writer.write(',');
+                    writer.write(rs.getString("transaction_type"));
+                    writer.write(',');
+                    writeNullable(writer, rs.getString("account_id_from"));
+                    writer.write(',');
+                    writeNullable(writer, rs.getString("account_id_to"));
+                    writer.write(',');
+                    writer.write(rs.getString("amount"));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            writer.flush();
+            return;
+        }
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            shards.read(shard, s -> historyJdbcRepository.streamStatement(accountId, from, to, rs -> {
+                try {
+                    generator.writeStartObject();
+                    generator.writeNumberField("id", rs.getLong("id"));
+                    long accountIdFrom = rs.getLong("account_id_from");
+                    if (!rs.wasNull()) {
+                        generator.writeNumberField("accountIdFrom", accountIdFrom);
+                    }
+                    long accountIdTo = rs.getLong("account_id_to");
+                    if (!rs.wasNull()) {
+                        generator.writeNumberField("accountIdTo", accountIdTo);
+                    }
+                    generator.writeNumberField("amount", rs.getBigDecimal("amount"));
+                    generator.writeStringField("transactionType", rs.getString("transaction_type"));
+                    generator.writeStringField("createdAt", rs.getObject("created_at", LocalDateTime.class).toString());
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+    }
+
+    private static void writeNullable(Writer writer, String value) throws IOException {
+        if (value != null) {
+            writer.write(value);
+        }
+    }
+
+    public List<TransactionHistory> getTransactions(String accountNumber, LocalDateTime from, LocalDateTime to,
+                                                    TransactionType type, String cursor, Integer limit) {
+        int pageSize = limit == null ? paginationProperties.getDefaultPageSize() : limit;
+        if (pageSize < 1 || pageSize > paginationProperties.getMaxPageSize()) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + paginationProperties.getMaxPageSize());
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("From must be before To");
+        }
+        TransactionHistoryCursor position = cursor == null ? null : TransactionHistoryCursor.decode(cursor);
+        return shards.onAccount(accountNumber, () -> {
+            Account account = this.findAccount(accountNumber);
+
+            return historyJdbcRepository.findPage(account.getId(), from, to, type,
+                    position == null ? null : position.createdAt(),
+                    position == null ? null : position.id(),
+                    pageSize);
+        });
     }
 
     public Account createAccount(AccountCreateRQ accountCreateRQ) {
+        if (accountCreateRQ == null || accountCreateRQ.getBalance() == null) {
+            throw new IllegalArgumentException("Balance must be provided");
+        }
+        if (accountCreateRQ.getAccountNumber() == null) {
+            throw new IllegalArgumentException("Account number must be provided");
+        }
+        return shards.onAccount(accountCreateRQ.getAccountNumber(), () -> createAccountOn(accountCreateRQ));
+    }
+
+    private Account createAccountOn(AccountCreateRQ accountCreateRQ) {
         try {
             Account account = entityMapper.toAccount(accountCreateRQ);
             account = repository.save(account);
-            saveTransactionHistory( null, account.getId(), TransactionType.DEPOSIT, accountCreateRQ.getBalance());
+            saveTransactionHistory( null, account.getId(), TransactionType.DEPOSIT, account.getBalanceCents());
+            balanceEngine.accountCreated(account);
+            readYourWrites.wrote(account.getAccountNumber());
+            idCache.put(account.getAccountNumber(), account.getId());
 
             return account;
         } catch (DataIntegrityViolationException e) {
-            System.out.println("Account number already exists: " + accountCreateRQ.getAccountNumber());
-            throw new IllegalArgumentException("Account number already exists: " + accountCreateRQ.getAccountNumber());
+            metrics.rejected(AccountMetrics.Rejection.DUPLICATE_ACCOUNT);
+            throw new DuplicateAccountException(accountCreateRQ.getAccountNumber());
         }
     }
 
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
     public Account deposit(String accountNumber, DepositRQ depositRQ) {
-        Account account = this.getAccount(accountNumber);
+        return deposit(accountNumber, depositRQ, null);
+    }
 
+    /**
+     * With an idempotency key the deposit is applied at most once per key; a repeat returns the first response.
+     */
+    public Account deposit(String accountNumber, DepositRQ depositRQ, String idempotencyKey) {
         if (depositRQ == null || depositRQ.getAmount() == null) {
             throw new IllegalArgumentException("Amount must be provided");
         }
 
-        account.setBalance(account.getBalance().add(depositRQ.getAmount()));
-        repository.save(account);
-
-        saveTransactionHistory( null, account.getId(), TransactionType.DEPOSIT, depositRQ.getAmount());
-
+        Account account = movements.deposit(accountNumber, Money.ofDecimal(depositRQ.getAmount()), idempotencyKey);
+        readYourWrites.wrote(accountNumber);
         return account;
     }
 
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
     public Account withdraw(String accountNumber, WithdrawRQ withdrawRQ) {
-        Account account = this.getAccount(accountNumber);
+        return withdraw(accountNumber, withdrawRQ, null);
+    }
+
+    /**
+     * With an idempotency key the withdrawal is applied at most once per key; a repeat returns the first response.
+     */
+    public Account withdraw(String accountNumber, WithdrawRQ withdrawRQ, String idempotencyKey) {
         if (withdrawRQ == null || withdrawRQ.getAmount() == null) {
             throw new IllegalArgumentException("Amount must be provided");
         }
-        if (account != null && account.getBalance().compareTo(withdrawRQ.getAmount()) >= 0) {
-            account.setBalance(account.getBalance().subtract(withdrawRQ.getAmount()));
-            repository.save(account);
 
-            saveTransactionHistory(account.getId(), null, TransactionType.WITHDRAW, withdrawRQ.getAmount());
-            return account;
+        Account account = movements.withdraw(accountNumber, Money.ofDecimal(withdrawRQ.getAmount()), idempotencyKey);
+        readYourWrites.wrote(accountNumber);
+        return account;
+    }
+
+    public boolean transfer(TransferRQ transferRQ) {
+        return transfer(transferRQ, null);
+    }
+
+    /**
+     * With an idempotency key the transfer is applied at most once per key; a repeat returns the first response.
+     */
+    public boolean transfer(TransferRQ transferRQ, String idempotencyKey) {
+        validateTransfer(transferRQ);
+
+        boolean transferred = movements.transfer(transferRQ, Money.ofDecimal(transferRQ.getAmount()), idempotencyKey);
+        readYourWrites.wrote(transferRQ.getFromAccountNumber());
+        readYourWrites.wrote(transferRQ.getToAccountNumber());
+        return transferred;
+    }
+
+    public List<TransferResultRS> transferBatch(List<TransferRQ> transfers) {
+        if (transfers == null || transfers.isEmpty()) {
+            throw new IllegalArgumentException("At least one transfer must be provided");
         }
-        else {
-            throw new IllegalArgumentException("Account " + accountNumber + " does not have sufficient balance");
+        if (transfers.size() > transferProperties.getMaxBatchSize()) {
+            throw new IllegalArgumentException("A batch may contain at most " + transferProperties.getMaxBatchSize() + " transfers");
         }
 
+        List<TransferResultRS> results = movements.transferBatch(transfers, this::validateTransfer);
+        for (TransferResultRS result : results) {
+            if (result.isSuccess()) {
+                TransferRQ transfer = transfers.get(result.getIndex());
+                readYourWrites.wrote(transfer.getFromAccountNumber());
+                readYourWrites.wrote(transfer.getToAccountNumber());
+            }
+        }
+        return results;
     }
 
-    @Transactional(isolation = Isolation.SERIALIZABLE)
-    public boolean transfer(TransferRQ transferRQ) {
+    private void validateTransfer(TransferRQ transferRQ) {
         if (transferRQ == null || transferRQ.getFromAccountNumber() == null) {
             throw new IllegalArgumentException("From Account Number must be provided");
         }
@@ -98,30 +347,11 @@ public class AccountService {
         if (transferRQ.getAmount() == null) {
             throw new IllegalArgumentException("Amount must be provided");
         }
-
-        Account fromAccount = this.getAccount(transferRQ.getFromAccountNumber());
-        Account toAccount = this.getAccount(transferRQ.getToAccountNumber());
-        if (fromAccount.getBalance().compareTo(transferRQ.getAmount()) > 0) {
-            fromAccount.setBalance(fromAccount.getBalance().subtract(transferRQ.getAmount()));
-            toAccount.setBalance(toAccount.getBalance().add(transferRQ.getAmount()));
-            repository.save(fromAccount);
-            repository.save(toAccount);
-
-            saveTransactionHistory(fromAccount.getId(), toAccount.getId(), TransactionType.TRANSFER, transferRQ.getAmount());
-            return true;
-        }
-        else {
-            throw new IllegalArgumentException("Account " + transferRQ.getFromAccountNumber() + " does not have sufficient balance");
-        }
+        Money.ofDecimal(transferRQ.getAmount());
     }
 
-    private void saveTransactionHistory(Long accountIdFrom, Long accountIdTo, TransactionType transactionType, BigDecimal amount) {
-        TransactionHistory history = new TransactionHistory();
-        history.setAccountIdFrom(accountIdFrom);
-        history.setAccountIdTo(accountIdTo);
-        history.setTransactionType(transactionType);
-        history.setAmount(amount);
-        historyRepository.save(history);
+    private void saveTransactionHistory(Long accountIdFrom, Long accountIdTo, TransactionType transactionType, long amount) {
+        historyWriter.record(TransactionHistory.of(accountIdFrom, accountIdTo, transactionType, amount));
     }
 
 }
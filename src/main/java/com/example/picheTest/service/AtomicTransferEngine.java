@@ -0,0 +1,134 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.error.AccountNotFoundException;
+import com.example.picheTest.error.InsufficientBalanceException;
+import com.example.picheTest.metrics.AccountMetrics;
+import com.example.picheTest.model.Money;
+import com.example.picheTest.model.request.TransferRQ;
+import com.example.picheTest.repository.AccountRepository;
+import com.example.picheTest.repository.entity.Account;
+import com.example.picheTest.repository.entity.TransactionHistory;
+import com.example.picheTest.repository.entity.TransactionType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a transfer at READ COMMITTED: both rows are locked in id order, the debit is a guarded
+ * {@code balance >= amount} update and the credit a plain increment, so no balance is ever computed in Java.
+ * Accounts split into {@link BalanceSlots} are not locked up front: the locking statement skips rows that say they
+ * are split, and those are then read without a lock. When {@link AccountIdCache} has both ids the rows are locked
+ * by primary key.
+ * Deadlocks and lock timeouts that still happen are retried by {@link TransientRetry}.
+ */
+@Component
+@ConditionalOnProperty(name = "account.transfer.engine", havingValue = "atomic", matchIfMissing = true)
+public class AtomicTransferEngine implements TransferEngine {
+    private final AccountRepository repository;
+    private final TransactionHistoryWriter historyWriter;
+    private final TransientRetry retry;
+    private final AccountMetrics metrics;
+    private final BalanceSlots slots;
+    private final AccountIdCache idCache;
+    private final TransactionTemplate transactionTemplate;
+
+    public AtomicTransferEngine(AccountRepository repository, TransactionHistoryWriter historyWriter,
+                                TransientRetry retry, AccountMetrics metrics, BalanceSlots slots,
+                                AccountIdCache idCache, PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.historyWriter = historyWriter;
+        this.retry = retry;
+        this.metrics = metrics;
+        this.slots = slots;
+        this.idCache = idCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    @Override
+    public boolean transfer(TransferRQ transferRQ) {
+        return retry.execute(() -> transactionTemplate.execute(status -> doTransfer(transferRQ)));
+    }
+
+    private boolean doTransfer(TransferRQ transferRQ) {
+        String from = transferRQ.getFromAccountNumber();
+        String to = transferRQ.getToAccountNumber();
+        long lockStart = System.nanoTime();
+        List<Account> accounts = lock(from, to);
+        long waited = metrics.lockWait(lockStart);
+        for (Account account : accounts) {
+            slots.recordLockWait(account, waited);
+        }
+        Account fromAccount = find(accounts, from);
+        Account toAccount = find(accounts, to);
+
+        long amount = Money.ofDecimal(transferRQ.getAmount());
+        if (!slots.debit(fromAccount, amount)) {
+            metrics.rejected(AccountMetrics.Rejection.INSUFFICIENT_BALANCE);
+            throw new InsufficientBalanceException(from);
+        }
+        slots.credit(toAccount, amount);
+
+        historyWriter.record(TransactionHistory.of(fromAccount.getId(), toAccount.getId(), TransactionType.TRANSFER, amount));
+        return true;
+    }
+
+    /**
+     * Returns the unsplit accounts locked and the split ones unlocked: split accounts are never locked as a whole,
+     * their slot rows are locked one at a time by the debit and credit. A cached id whose row carries another
+     * account number is stale; those rows are then locked by number too, which may lock out of id order but only
+     * after such a rare fingerprint collision.
+     */
+    private List<Account> lock(String from, String to) {
+        List<Account> accounts = null;
+        long fromId = idCache.get(from);
+        long toId = idCache.get(to);
+        if (fromId != AccountIdCache.ABSENT && toId != AccountIdCache.ABSENT) {
+            List<Account> locked = repository.lockUnsplitByIds(List.of(fromId, toId));
+            if (locked.stream().allMatch(account -> account.getAccountNumber().equals(from)
+                    || account.getAccountNumber().equals(to))) {
+                accounts = new ArrayList<>(locked);
+            } else {
+                idCache.invalidate(from);
+                idCache.invalidate(to);
+            }
+        }
+        if (accounts == null) {
+            accounts = new ArrayList<>(repository.lockUnsplitByAccountNumbers(List.of(from, to)));
+            for (Account account : accounts) {
+                idCache.put(account.getAccountNumber(), account.getId());
+            }
+        }
+        for (String accountNumber : from.equals(to) ? List.of(from) : List.of(from, to)) {
+            if (!contains(accounts, accountNumber)) {
+                // split, gone, or no longer at the cached id; the guarded debit and the credit need no row lock
+                repository.findByAccountNumber(accountNumber).ifPresent(accounts::add);
+            }
+        }
+        return accounts;
+    }
+
+    private static boolean contains(List<Account> accounts, String accountNumber) {
+        for (Account account : accounts) {
+            if (account.getAccountNumber().equals(accountNumber)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Account find(List<Account> accounts, String accountNumber) {
+        for (Account account : accounts) {
+            if (account.getAccountNumber().equals(accountNumber)) {
+                return account;
+            }
+        }
+        metrics.rejected(AccountMetrics.Rejection.NOT_FOUND);
+        throw new AccountNotFoundException(accountNumber);
+    }
+}
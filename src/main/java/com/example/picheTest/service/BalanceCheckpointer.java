@@ -0,0 +1,98 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.config.CheckpointProperties;
+import com.example.picheTest.repository.BalanceCheckpointRepository;
+import com.example.picheTest.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+
+/**
+ * Periodically checkpoints the balances of accounts that had history since the previous run, so a
+ * point-in-time query replays at most one interval of an account's history. Each run only reads the history
+ * written since the last one.
+ * <p>
+ * History rows are stamped before they reach the table, so a row stamped before a run's cutoff may commit after
+ * the run read the history. A run therefore first announces its cutoff, from which on the inserting transaction
+ * adds such a late row to the checkpoints itself (see {@code balance_checkpoints_late_history}), then waits for
+ * the transactions already in progress, which may have inserted one before they could see the cutoff.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "account.checkpoints.enabled", matchIfMissing = true)
+public class BalanceCheckpointer implements SchedulingConfigurer {
+    private final BalanceCheckpointRepository repository;
+    private final CheckpointProperties properties;
+    private final ShardRouter shards;
+    private final TransactionTemplate transactionTemplate;
+
+    public BalanceCheckpointer(BalanceCheckpointRepository repository, CheckpointProperties properties,
+                               ShardRouter shards, PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.properties = properties;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(this::run, properties.getInterval());
+    }
+
+    void run() {
+        LocalDateTime cutoff = LocalDateTime.now();
+        shards.forEach(shard -> {
+            try {
+                int accounts = checkpoint(cutoff);
+                log.debug("Checkpointed the balances of {} accounts on shard {}", accounts, shard);
+            } catch (RuntimeException e) {
+                log.warn("Balance checkpoint of shard {} failed, retrying next interval", shard, e);
+            }
+        });
+    }
+
+    /**
+     * Checkpoints at {@code cutoff}. Returns the number of accounts checkpointed; zero when the cutoff is not past
+     * the last checkpoint, e.g. because another instance has just taken it.
+     */
+    public int checkpoint(LocalDateTime cutoff) {
+        LocalDateTime asOf = cutoff.truncatedTo(ChronoUnit.MICROS);
+        transactionTemplate.executeWithoutResult(status -> repository.announceCutoff(asOf));
+        awaitInProgress(repository.transactionsInProgress());
+        Integer accounts = transactionTemplate.execute(status -> {
+            repository.lock();
+            LocalDateTime last = repository.lastCheckpoint();
+            if (last != null && !last.isBefore(asOf)) {
+                return 0;
+            }
+            return repository.checkpoint(last, asOf);
+        });
+        return accounts == null ? 0 : accounts;
+    }
+
+    private void awaitInProgress(Set<Long> transactionIds) {
+        long deadline = System.nanoTime() + properties.getWaitTimeout().toNanos();
+        Set<Long> inProgress = transactionIds;
+        while (!inProgress.isEmpty()) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Transactions " + inProgress + " did not finish within "
+                        + properties.getWaitTimeout() + " of the checkpoint cutoff");
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for transactions to finish", e);
+            }
+            inProgress = repository.stillInProgress(inProgress);
+        }
+    }
+}
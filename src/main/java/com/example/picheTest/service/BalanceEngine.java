@@ -0,0 +1,25 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.repository.entity.Account;
+
+/**
+ * Applies single-account balance changes. Amounts reaching an engine are already validated by {@link AccountService}.
+ */
+public interface BalanceEngine {
+    Account deposit(String accountNumber, long amount);
+
+    Account withdraw(String accountNumber, long amount);
+
+    /**
+     * Called once a new account and its opening deposit are committed.
+     */
+    default void accountCreated(Account account) {
+    }
+
+    /**
+     * Called once accounts created in bulk are committed. Their ids lie in {@code [fromId, toId]}, a range that may
+     * also hold accounts created concurrently and already passed to {@link #accountCreated(Account)}.
+     */
+    default void accountsCreated(long fromId, long toId) {
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.config.SlotProperties;
+import com.example.picheTest.repository.AccountRepository;
+import com.example.picheTest.repository.BalanceSlotRepository;
+import com.example.picheTest.repository.entity.Account;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads the balance of hot accounts over several rows so that concurrent writers stop queueing on one row
+ * lock. Slot 0 is {@code accounts.balance}, slots 1..n-1 live in {@code account_balance_slots}, n being
+ * {@code accounts.slots}. A credit goes to a random slot. A debit first tries one random slot with a guarded
+ * update; if that slot cannot cover it, the account row and all its slots are locked in slot order and the amount
+ * is collected across them. No slot ever goes negative, so the account total cannot either.
+ * <p>
+ * Whether an account is split is read from its row, with the balance, every time; nothing is remembered between
+ * calls. The slot count only grows, so a row read before a concurrent split merely leaves the new slots unused:
+ * slot 0 is always valid, and a debit that slot 0 cannot cover locks the row and sees every slot.
+ * <p>
+ * Accounts are split by configuration or, with auto-split, once their row lock has been contended often enough
+ * within a window. Splitting adds empty slot rows in the caller's transaction; money spreads out as credits arrive.
+ */
+@Slf4j
+@Component
+public class BalanceSlots {
+    private final AccountRepository repository;
+    private final BalanceSlotRepository slotRepository;
+    private final SlotProperties properties;
+    private final Map<String, AtomicInteger> contention = new ConcurrentHashMap<>();
+    private final long contendedWaitNanos;
+    private volatile long windowStart = System.nanoTime();
+
+    public BalanceSlots(AccountRepository repository, BalanceSlotRepository slotRepository, SlotProperties properties) {
+        this.repository = repository;
+        this.slotRepository = slotRepository;
+        this.properties = properties;
+        this.contendedWaitNanos = properties.getContendedWait().toNanos();
+    }
+
+    /**
+     * Whether writes to the account go through its slots: it is split, or configured to be split on its next write.
+     */
+    public boolean isSplit(Account account) {
+        return account.getSlots() > 1 || configuredSlots(account) > 1;
+    }
+
+    public void credit(Account account, long cents) {
+        int slots = slotsOf(account);
+        int slot = slots == 1 ? 0 : ThreadLocalRandom.current().nextInt(slots);
+        if (slot == 0 || slotRepository.credit(account.getId(), slot, cents) == 0) {
+            repository.credit(account.getId(), cents);
+        }
+    }
+
+    /**
+     * Returns {@code false}, changing nothing, when the account's total balance does not cover the amount.
+     */
+    public boolean debit(Account account, long cents) {
+        int slots = slotsOf(account);
+        int slot = slots == 1 ? 0 : ThreadLocalRandom.current().nextInt(slots);
+        boolean taken = slot == 0
+                ? repository.debit(account.getId(), cents) > 0
+                : slotRepository.debit(account.getId(), slot, cents) > 0;
+        // the row may have been split since it was read; locking it tells
+        return taken || borrow(account.getId(), cents);
+    }
+
+    /**
+     * Copy of the account carrying its balance over all slots, re-read from the database when the account is split.
+     */
+    public Account withTotal(Account account) {
+        if (account.getSlots() <= 1) {
+            return account;
+        }
+        Long total = slotRepository.total(account.getId());
+        return copy(account, total == null ? account.getBalanceCents() : total);
+    }
+
+    public List<Account> withTotals(List<Account> accounts) {
+        List<Long> splitIds = new ArrayList<>();
+        for (Account account : accounts) {
+            if (account.getSlots() > 1) {
+                splitIds.add(account.getId());
+            }
+        }
+        if (splitIds.isEmpty()) {
+            return accounts;
+        }
+        Map<Long, Long> slotSums = slotRepository.sumSlots(splitIds);
+        List<Account> result = new ArrayList<>(accounts.size());
+        for (Account account : accounts) {
+            Long slotSum = slotSums.get(account.getId());
+            result.add(slotSum == null ? account : copy(account, account.getBalanceCents() + slotSum));
+        }
+        return result;
+    }
+
+    /**
+     * Feeds auto-split with how long a writer waited for the row lock of an account it now holds locked; the
+     * split then happens in the writer's transaction.
+     */
+    public void recordLockWait(Account account, long waitedNanos) {
+        if (!properties.isAutoSplit() || waitedNanos < contendedWaitNanos || account.getSlots() > 1) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - windowStart > properties.getWindow().toNanos()) {
+            windowStart = now;
+            contention.clear();
+        }
+        int waits = contention.computeIfAbsent(account.getAccountNumber(), key -> new AtomicInteger()).incrementAndGet();
+        if (waits >= properties.getContendedWaitsToSplit()) {
+            contention.remove(account.getAccountNumber());
+            split(account, properties.getAutoSlots());
+            log.info("Split contended account {} into {} balance slots", account.getAccountNumber(), properties.getAutoSlots());
+        }
+    }
+
+    private int slotsOf(Account account) {
+        int configured = configuredSlots(account);
+        if (configured > account.getSlots()) {
+            split(account, configured);
+        }
+        return account.getSlots();
+    }
+
+    private void split(Account account, int slots) {
+        slotRepository.split(account.getId(), slots);
+        // the column is not updatable through the entity, so this only tells the rest of the caller's transaction
+        account.setSlots(slots);
+    }
+
+    private int configuredSlots(Account account) {
+        return properties.getSplit().getOrDefault(account.getAccountNumber(), 1);
+    }
+
+    private boolean borrow(long accountId, long cents) {
+        long[] balances = slotRepository.lockAll(accountId);
+        long total = 0;
+        for (long balance : balances) {
+            total += balance;
+        }
+        if (total < cents) {
+            return false;
+        }
+        long remaining = cents;
+        for (int slot = 0; slot < balances.length && remaining > 0; slot++) {
+            long taken = Math.min(balances[slot], remaining);
+            if (taken > 0) {
+                slotRepository.setBalance(accountId, slot, balances[slot] - taken);
+                remaining -= taken;
+            }
+        }
+        return true;
+    }
+
+    private static Account copy(Account account, long balanceCents) {
+        Account copy = new Account();
+        copy.setId(account.getId());
+        copy.setAccountNumber(account.getAccountNumber());
+        copy.setBalanceCents(balanceCents);
+        copy.setSlots(account.getSlots());
+        return copy;
+    }
+}
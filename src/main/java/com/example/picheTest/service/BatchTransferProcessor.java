@@ -0,0 +1,15 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.model.request.TransferRQ;
+import com.example.picheTest.model.response.TransferResultRS;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Applies many transfers in one call and reports every item's outcome in request order; a failing item does
+ * not fail the others.
+ */
+public interface BatchTransferProcessor {
+    List<TransferResultRS> process(List<TransferRQ> transfers, Consumer<TransferRQ> validator);
+}
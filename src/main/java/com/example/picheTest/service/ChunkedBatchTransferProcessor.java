@@ -0,0 +1,137 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.config.TransferProperties;
+import com.example.picheTest.metrics.AccountMetrics;
+import com.example.picheTest.model.Money;
+import com.example.picheTest.model.request.TransferRQ;
+import com.example.picheTest.model.response.TransferResultRS;
+import com.example.picheTest.repository.AccountRepository;
+import com.example.picheTest.repository.entity.Account;
+import com.example.picheTest.repository.entity.TransactionHistory;
+import com.example.picheTest.repository.entity.TransactionType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Applies a list of transfers in chunks, one transaction per chunk. Every account touched by a chunk is locked
+ * up front in id order, balances are moved on the locked entities, and Hibernate flushes one UPDATE per touched
+ * account plus the history rows as JDBC batches on commit. Accounts split into {@link BalanceSlots} keep their
+ * entity balance untouched and are debited and credited through their slots instead. A failing item is reported
+ * and skipped; it does not roll back the rest of its chunk.
+ */
+@Component
+@ConditionalOnExpression("'${account.transfer.engine:atomic}' != 'ledger'")
+public class ChunkedBatchTransferProcessor implements BatchTransferProcessor {
+    private final AccountRepository repository;
+    private final TransactionHistoryWriter historyWriter;
+    private final TransientRetry retry;
+    private final TransferProperties properties;
+    private final AccountMetrics metrics;
+    private final BalanceSlots slots;
+    private final TransactionTemplate transactionTemplate;
+
+    public ChunkedBatchTransferProcessor(AccountRepository repository, TransactionHistoryWriter historyWriter,
+                                         TransientRetry retry, TransferProperties properties, AccountMetrics metrics,
+                                         BalanceSlots slots, PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.historyWriter = historyWriter;
+        this.retry = retry;
+        this.properties = properties;
+        this.metrics = metrics;
+        this.slots = slots;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    @Override
+    public List<TransferResultRS> process(List<TransferRQ> transfers, Consumer<TransferRQ> validator) {
+        List<TransferResultRS> results = new ArrayList<>(transfers.size());
+        int chunkSize = properties.getBatchChunkSize();
+        for (int offset = 0; offset < transfers.size(); offset += chunkSize) {
+            List<TransferRQ> chunk = transfers.subList(offset, Math.min(offset + chunkSize, transfers.size()));
+            int chunkOffset = offset;
+            results.addAll(retry.execute(() -> transactionTemplate.execute(status -> processChunk(chunk, chunkOffset, validator))));
+        }
+        return results;
+    }
+
+    private List<TransferResultRS> processChunk(List<TransferRQ> chunk, int offset, Consumer<TransferRQ> validator) {
+        List<TransferResultRS> results = new ArrayList<>(chunk.size());
+        String[] errors = new String[chunk.size()];
+        Set<String> accountNumbers = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            try {
+                validator.accept(chunk.get(i));
+                accountNumbers.add(chunk.get(i).getFromAccountNumber());
+                accountNumbers.add(chunk.get(i).getToAccountNumber());
+            } catch (IllegalArgumentException e) {
+                errors[i] = e.getMessage();
+            }
+        }
+
+        Map<String, Account> accounts = new HashMap<>();
+        if (!accountNumbers.isEmpty()) {
+            long lockStart = System.nanoTime();
+            for (Account account : repository.lockByAccountNumbers(accountNumbers)) {
+                accounts.put(account.getAccountNumber(), account);
+            }
+            metrics.lockWait(lockStart);
+        }
+
+        List<TransactionHistory> history = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (errors[i] == null) {
+                errors[i] = apply(chunk.get(i), accounts, history);
+            }
+            results.add(errors[i] == null ? TransferResultRS.succeeded(offset + i) : TransferResultRS.failed(offset + i, errors[i]));
+        }
+        historyWriter.recordAll(history);
+        return results;
+    }
+
+    private String apply(TransferRQ transferRQ, Map<String, Account> accounts, List<TransactionHistory> history) {
+        Account fromAccount = accounts.get(transferRQ.getFromAccountNumber());
+        if (fromAccount == null) {
+            metrics.rejected(AccountMetrics.Rejection.NOT_FOUND);
+            return "Account with account number " + transferRQ.getFromAccountNumber() + " not found";
+        }
+        Account toAccount = accounts.get(transferRQ.getToAccountNumber());
+        if (toAccount == null) {
+            metrics.rejected(AccountMetrics.Rejection.NOT_FOUND);
+            return "Account with account number " + transferRQ.getToAccountNumber() + " not found";
+        }
+        long amount = Money.ofDecimal(transferRQ.getAmount());
+        boolean covered;
+        if (slots.isSplit(fromAccount)) {
+            covered = slots.debit(fromAccount, amount);
+        } else {
+            covered = Money.covers(fromAccount.getBalanceCents(), amount);
+            if (covered) {
+                fromAccount.setBalanceCents(Money.subtract(fromAccount.getBalanceCents(), amount));
+            }
+        }
+        if (!covered) {
+            metrics.rejected(AccountMetrics.Rejection.INSUFFICIENT_BALANCE);
+            return "Account " + transferRQ.getFromAccountNumber() + " does not have sufficient balance";
+        }
+
+        if (slots.isSplit(toAccount)) {
+            slots.credit(toAccount, amount);
+        } else {
+            toAccount.setBalanceCents(Money.add(toAccount.getBalanceCents(), amount));
+        }
+        history.add(TransactionHistory.of(fromAccount.getId(), toAccount.getId(), TransactionType.TRANSFER, amount));
+        return null;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.config.DepositProperties;
+import com.example.picheTest.config.TransferProperties;
+import com.example.picheTest.error.AccountNotFoundException;
+import com.example.picheTest.metrics.AccountMetrics;
+import com.example.picheTest.model.Money;
+import com.example.picheTest.repository.AccountJdbcRepository;
+import com.example.picheTest.repository.entity.Account;
+import com.example.picheTest.repository.entity.TransactionHistory;
+import com.example.picheTest.repository.entity.TransactionType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Flat combining for deposits. Callers crediting the same account queue their amounts; whichever caller holds
+ * the account's combiner lock takes everything queued so far and applies it as one
+ * {@code UPDATE ... RETURNING} plus one batched history insert, then hands every caller the balance as of its own
+ * deposit. Under contention one row lock acquisition and one commit serve many requests; without contention
+ * a deposit costs the same single transaction as before.
+ */
+@Slf4j
+@Component
+public class DepositCombiner {
+    private final AccountJdbcRepository accountJdbcRepository;
+    private final TransactionHistoryWriter historyWriter;
+    private final AccountMetrics metrics;
+    private final TransientRetry retry;
+    private final BalanceSlots balanceSlots;
+    private final AccountIdCache idCache;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxCombined;
+    private final ConcurrentHashMap<String, Slot> slots = new ConcurrentHashMap<>();
+
+    public DepositCombiner(AccountJdbcRepository accountJdbcRepository, TransactionHistoryWriter historyWriter,
+                           AccountMetrics metrics, TransientRetry retry, BalanceSlots balanceSlots,
+                           AccountIdCache idCache, DepositProperties properties,
+                           TransferProperties transferProperties, PlatformTransactionManager transactionManager) {
+        this.accountJdbcRepository = accountJdbcRepository;
+        this.historyWriter = historyWriter;
+        this.metrics = metrics;
+        this.retry = retry;
+        this.balanceSlots = balanceSlots;
+        this.idCache = idCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.enabled = properties.isCombining() && !"ledger".equals(transferProperties.getEngine());
+        this.maxCombined = properties.getMaxCombined();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Account deposit(String accountNumber, long amount) {
+        Slot slot = slots.computeIfAbsent(accountNumber, key -> new Slot());
+        Deposit deposit = new Deposit(amount);
+        slot.queue.add(deposit);
+        slot.lock.lock();
+        try {
+            while (!deposit.done) {
+                combine(accountNumber, slot);
+            }
+        } finally {
+            slot.lock.unlock();
+        }
+        // a caller still holding a removed slot combines on it alone, which is merely less efficient
+        if (slot.queue.isEmpty()) {
+            slots.remove(accountNumber, slot);
+        }
+        if (deposit.failure != null) {
+            throw deposit.failure;
+        }
+        return deposit.result;
+    }
+
+    private void combine(String accountNumber, Slot slot) {
+        List<Deposit> batch = new ArrayList<>();
+        long total = 0;
+        Deposit next;
+        while (batch.size() < maxCombined && (next = slot.queue.poll()) != null) {
+            try {
+                total = Money.add(total, next.amount);
+            } catch (IllegalArgumentException e) {
+                next.fail(e);
+                continue;
+            }
+            batch.add(next);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        metrics.combinedDeposits(batch.size());
+        long sum = total;
+        try {
+            Account updated = retry.execute(() -> transactionTemplate.execute(status -> apply(accountNumber, batch, sum)));
+            if (updated == null) {
+                metrics.rejected(AccountMetrics.Rejection.NOT_FOUND);
+                AccountNotFoundException notFound = new AccountNotFoundException(accountNumber);
+                batch.forEach(deposit -> deposit.fail(notFound));
+                return;
+            }
+            long balance = updated.getBalanceCents() - sum;
+            for (Deposit deposit : batch) {
+                balance += deposit.amount;
+                Account account = new Account();
+                account.setId(updated.getId());
+                account.setAccountNumber(accountNumber);
+                account.setBalanceCents(balance);
+                deposit.complete(account);
+            }
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).fail(e);
+                return;
+            }
+            // one bad amount (e.g. a balance overflow) must not fail its neighbours: retry them one by one
+            log.warn("Combined deposit of {} requests to {} failed, applying them separately", batch.size(), accountNumber, e);
+            for (Deposit deposit : batch) {
+                try {
+                    Account updated = retry.execute(() -> transactionTemplate.execute(
+                            status -> apply(accountNumber, List.of(deposit), deposit.amount)));
+                    if (updated == null) {
+                        metrics.rejected(AccountMetrics.Rejection.NOT_FOUND);
+                        deposit.fail(new AccountNotFoundException(accountNumber));
+                    } else {
+                        deposit.complete(updated);
+                    }
+                } catch (RuntimeException single) {
+                    deposit.fail(single);
+                }
+            }
+        }
+    }
+
+    private Account apply(String accountNumber, List<Deposit> batch, long total) {
+        long id = idCache.get(accountNumber);
+        Account updated = id == AccountIdCache.ABSENT ? null : accountJdbcRepository.addToBalanceById(id, accountNumber, total);
+        if (updated == null) {
+            updated = accountJdbcRepository.addToBalance(accountNumber, total);
+            if (updated == null) {
+                return null;
+            }
+            idCache.put(accountNumber, updated.getId());
+        }
+        List<TransactionHistory> history = new ArrayList<>(batch.size());
+        for (Deposit deposit : batch) {
+            history.add(TransactionHistory.of(null, updated.getId(), TransactionType.DEPOSIT, deposit.amount));
+        }
+        historyWriter.recordAll(history);
+        // credits land in slot 0 of a split account; report the balance over all its slots
+        return balanceSlots.withTotal(updated);
+    }
+
+    private static final class Slot {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ConcurrentLinkedQueue<Deposit> queue = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Written by the combining thread before it releases the slot lock, read by the owner after acquiring it.
+     */
+    private static final class Deposit {
+        private final long amount;
+        private boolean done;
+        private Account result;
+        private RuntimeException failure;
+
+        private Deposit(long amount) {
+            this.amount = amount;
+        }
+
+        private void complete(Account account) {
+            result = account;
+            done = true;
+        }
+
+        private void fail(RuntimeException e) {
+            failure = e;
+            done = true;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.config.HistoryPartitionProperties;
+import com.example.picheTest.repository.BalanceCheckpointRepository;
+import com.example.picheTest.repository.HistoryPartitionRepository;
+import com.example.picheTest.repository.HistoryPartitionRepository.Partition;
+import com.example.picheTest.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps {@code transaction_history} partitioned: on startup and every maintenance interval it creates the current
+ * partition and {@code premake} more, then archives partitions past retention. Archiving a partition blocks
+ * writes to it, copies it to a gzipped CSV file in the archive directory, folds its net per account into
+ * {@code archived_balances} and detaches and drops it, all in one transaction. The file is complete before the
+ * commit; a failed commit leaves the partition in place and the next run rewrites the file.
+ * <p>
+ * A partition is only archived once a balance checkpoint has been taken after its end, so point-in-time
+ * balances from the end of the archived range on stay exact without the archived rows.
+ */
+@Slf4j
+@Component
+public class HistoryPartitionMaintainer implements SchedulingConfigurer {
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final HistoryPartitionRepository repository;
+    private final BalanceCheckpointRepository checkpointRepository;
+    private final HistoryPartitionProperties properties;
+    private final ShardRouter shards;
+    private final TransactionTemplate transactionTemplate;
+
+    public HistoryPartitionMaintainer(HistoryPartitionRepository repository, BalanceCheckpointRepository checkpointRepository,
+                                      HistoryPartitionProperties properties, ShardRouter shards,
+                                      PlatformTransactionManager transactionManager) {
+        if (!Set.of(ChronoUnit.DAYS, ChronoUnit.WEEKS, ChronoUnit.MONTHS).contains(properties.getPartitionUnit())) {
+            throw new IllegalArgumentException("History partitions must span DAYS, WEEKS or MONTHS");
+        }
+        this.repository = repository;
+        this.checkpointRepository = checkpointRepository;
+        this.properties = properties;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // partitions must exist before the first request writes history
+        shards.forEach(shard -> createPartitions(LocalDate.now()));
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(this::run, properties.getMaintenanceInterval());
+    }
+
+    void run() {
+        shards.forEach(shard -> {
+            try {
+                int created = createPartitions(LocalDate.now());
+                int archived = archive(LocalDateTime.now());
+                if (created > 0 || archived > 0) {
+                    log.info("Created {} and archived {} transaction history partitions on shard {}", created, archived, shard);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Transaction history partition maintenance of shard {} failed, retrying next interval", shard, e);
+            }
+        });
+    }
+
+    /**
+     * Creates, on the current shard, the missing partitions from the one containing {@code today} to {@code premake} after it. Returns
+     * how many were created; zero when another instance holds the lock.
+     */
+    public int createPartitions(LocalDate today) {
+        Integer created = transactionTemplate.execute(status -> {
+            if (!repository.tryLock()) {
+                return 0;
+            }
+            Set<String> existing = new HashSet<>();
+            repository.findPartitions().forEach(partition -> existing.add(partition.name()));
+            int count = 0;
+            LocalDate from = floor(today);
+            for (int i = 0; i <= properties.getPremake(); i++) {
+                LocalDate to = from.plus(1, properties.getPartitionUnit());
+                String name = "transaction_history_p" + SUFFIX.format(from);
+                if (!existing.contains(name)) {
+                    repository.createPartition(name, from.atStartOfDay(), to.atStartOfDay());
+                    count++;
+                }
+                from = to;
+            }
+            return count;
+        });
+        return created == null ? 0 : created;
+    }
+
+    /**
+     * Archives every partition that ended before {@code now} minus retention, and before the latest balance
+     * checkpoint. Returns how many were archived.
+     */
+    public int archive(LocalDateTime now) {
+        Period retention = properties.getRetention();
+        if (retention.isZero() || retention.isNegative()) {
+            return 0;
+        }
+        LocalDateTime cutoff = now.minus(retention);
+        LocalDateTime checkpointed = checkpointRepository.lastCheckpoint();
+        if (checkpointed == null) {
+            log.debug("No balance checkpoint yet, not archiving history");
+            return 0;
+        }
+        int archived = 0;
+        for (Partition partition : repository.findPartitions()) {
+            if (partition.to().isAfter(cutoff) || partition.to().isAfter(checkpointed)) {
+                break;
+            }
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> archive(partition, now)))) {
+                archived++;
+            }
+        }
+        return archived;
+    }
+
+    private boolean archive(Partition partition, LocalDateTime now) {
+        if (!repository.tryLock()) {
+            return false;
+        }
+        repository.lockForArchival(partition.name());
+        Path file = Path.of(properties.getArchiveDirectory(), partition.name() + ".csv.gz");
+        long rows = writeArchive(partition.name(), file);
+        repository.foldIntoArchivedBalances(partition.name());
+        repository.dropArchived(partition, rows, file.toAbsolutePath().toString(), now);
+        log.info("Archived {} ({} rows) to {}", partition.name(), rows, file);
+        return true;
+    }
+
+    /**
+     * Writes to a temporary file that is synced and then renamed, so the archive file is either complete or absent.
+     */
+    private long writeArchive(String partition, Path file) {
+        try {
+            Files.createDirectories(file.getParent() == null ? Path.of(".") : file.getParent());
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            long rows;
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 GZIPOutputStream out = new GZIPOutputStream(Channels.newOutputStream(channel), 64 * 1024)) {
+                rows = repository.copyOut(partition, out);
+                out.finish();
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not archive " + partition + " to " + file, e);
+        }
+    }
+
+    private LocalDate floor(LocalDate date) {
+        return switch (properties.getPartitionUnit()) {
+            case DAYS -> date;
+            case WEEKS -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            default -> date.withDayOfMonth(1);
+        };
+    }
+}
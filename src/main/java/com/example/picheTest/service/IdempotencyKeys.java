@@ -0,0 +1,229 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.config.IdempotencyProperties;
+import com.example.picheTest.error.RequestInProgressException;
+import com.example.picheTest.repository.IdempotencyKeyRepository;
+import com.example.picheTest.repository.IdempotencyKeyRepository.StoredResponse;
+import com.example.picheTest.sharding.ShardRouter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Applies a money movement at most once per {@code Idempotency-Key}. The response is stored in
+ * {@code idempotency_keys} by the transaction that moves the money, so either both commit or neither does, and
+ * kept in a bounded in-memory map of recent keys. A repeated request is answered from that map, or from the
+ * table once evicted, without touching the accounts.
+ * <p>
+ * A duplicate arriving while the first attempt runs on this instance waits for it; on another instance it
+ * blocks on the key's row until the first transaction ends, and its own transaction is rolled back. Failed
+ * attempts store nothing, so a retry after a failure runs again. Reusing a key for a different request is refused.
+ */
+@Slf4j
+@Component
+public class IdempotencyKeys implements SchedulingConfigurer {
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyRepository repository;
+    private final ObjectMapper objectMapper;
+    private final TransientRetry retry;
+    private final ShardRouter shards;
+    private final IdempotencyProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, Stored> recent;
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+
+    public IdempotencyKeys(IdempotencyKeyRepository repository, ObjectMapper objectMapper, TransientRetry retry,
+                           ShardRouter shards, IdempotencyProperties properties, MeterRegistry meterRegistry,
+                           PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.retry = retry;
+        this.shards = shards;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        int capacity = properties.getCapacity();
+        Map<String, Stored> lru = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Stored> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.recent = Collections.synchronizedMap(lru);
+        FunctionCounter.builder("account.idempotency.requests", applied, LongAdder::sum)
+                .description("Requests with an Idempotency-Key")
+                .tag("result", "applied")
+                .register(meterRegistry);
+        FunctionCounter.builder("account.idempotency.requests", replayed, LongAdder::sum)
+                .description("Requests with an Idempotency-Key")
+                .tag("result", "replayed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(this::prune, properties.getPruneInterval());
+    }
+
+    /**
+     * Fingerprint of a request, to tell a repeated request from a different one reusing its key.
+     */
+    public static long fingerprint(Object... parts) {
+        long hash = 0xcbf29ce484222325L;
+        for (Object part : parts) {
+            for (byte b : String.valueOf(part).getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+            }
+            hash = (hash ^ 0x1f) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the stored response for the key, or runs the action, which must store its response through
+     * {@link #inTransaction} or {@link #record} before it commits.
+     */
+    public <T> T execute(String key, long fingerprint, Class<T> type, Supplier<T> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        while (true) {
+            Stored stored = recent.get(key);
+            if (stored != null) {
+                return replay(key, stored, fingerprint, type);
+            }
+            CompletableFuture<Void> attempt = new CompletableFuture<>();
+            CompletableFuture<Void> running = inFlight.putIfAbsent(key, attempt);
+            if (running != null) {
+                await(key, running);
+                continue;
+            }
+            try {
+                StoredResponse row = repository.find(key);
+                if (row != null) {
+                    return replay(key, remember(key, row.fingerprint(), read(row.response(), type)), fingerprint, type);
+                }
+                T response;
+                try {
+                    response = action.get();
+                } catch (DuplicateKeyException e) {
+                    // applied by another instance, whose transaction we waited for
+                    row = repository.find(key);
+                    if (row == null) {
+                        throw e;
+                    }
+                    return replay(key, remember(key, row.fingerprint(), read(row.response(), type)), fingerprint, type);
+                }
+                applied.increment();
+                remember(key, fingerprint, response);
+                return response;
+            } finally {
+                inFlight.remove(key, attempt);
+                attempt.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Runs the action in a transaction that also stores its response under the key.
+     */
+    public <T> T inTransaction(String key, long fingerprint, Supplier<T> action) {
+        return retry.execute(() -> transactionTemplate.execute(status -> {
+            T response = action.get();
+            record(key, fingerprint, response);
+            return response;
+        }));
+    }
+
+    /**
+     * Stores the response under the key, in the caller's transaction.
+     */
+    public void record(String key, long fingerprint, Object response) {
+        try {
+            repository.insert(key, fingerprint, objectMapper.writeValueAsString(response), LocalDateTime.now());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not store the response for Idempotency-Key " + key, e);
+        }
+    }
+
+    void prune() {
+        LocalDateTime before = LocalDateTime.now().minus(properties.getRetention());
+        shards.forEach(shard -> {
+            try {
+                int deleted = repository.deleteBefore(before);
+                log.debug("Deleted {} expired idempotency keys on shard {}", deleted, shard);
+            } catch (RuntimeException e) {
+                log.warn("Deleting expired idempotency keys on shard {} failed, retrying next interval", shard, e);
+            }
+        });
+        long expired = System.nanoTime() - properties.getRetention().toNanos();
+        synchronized (recent) {
+            recent.values().removeIf(stored -> stored.storedAt() - expired < 0);
+        }
+    }
+
+    private <T> T replay(String key, Stored stored, long fingerprint, Class<T> type) {
+        if (stored.fingerprint() != fingerprint) {
+            throw new IllegalArgumentException("Idempotency-Key " + key + " was already used for a different request");
+        }
+        replayed.increment();
+        return type.cast(stored.response());
+    }
+
+    private Stored remember(String key, long fingerprint, Object response) {
+        Stored stored = new Stored(fingerprint, response, System.nanoTime());
+        recent.put(key, stored);
+        return stored;
+    }
+
+    private <T> T read(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response is not a " + type.getSimpleName(), e);
+        }
+    }
+
+    private void await(String key, CompletableFuture<Void> running) {
+        try {
+            running.get(properties.getWaitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new RequestInProgressException("A request with Idempotency-Key " + key + " is still being processed",
+                    Math.max(1, properties.getWaitTimeout().toSeconds()));
+        } catch (ExecutionException e) {
+            // never completed exceptionally
+            throw new IllegalStateException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for Idempotency-Key " + key, e);
+        }
+    }
+
+    private record Stored(long fingerprint, Object response, long storedAt) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.repository.TransactionHistoryRepository;
+import com.example.picheTest.repository.entity.TransactionHistory;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@AllArgsConstructor
+@ConditionalOnProperty(name = "account.journal.enabled", havingValue = "false", matchIfMissing = true)
+public class JpaTransactionHistoryWriter implements TransactionHistoryWriter {
+    private TransactionHistoryRepository historyRepository;
+
+    @Override
+    public void record(TransactionHistory history) {
+        historyRepository.save(history);
+    }
+
+    @Override
+    public void recordAll(List<TransactionHistory> history) {
+        historyRepository.saveAll(history);
+    }
+}
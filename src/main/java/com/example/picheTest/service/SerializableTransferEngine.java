@@ -0,0 +1,84 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.error.AccountNotFoundException;
+import com.example.picheTest.error.InsufficientBalanceException;
+import com.example.picheTest.metrics.AccountMetrics;
+import com.example.picheTest.model.Money;
+import com.example.picheTest.model.request.TransferRQ;
+import com.example.picheTest.repository.AccountRepository;
+import com.example.picheTest.repository.entity.Account;
+import com.example.picheTest.repository.entity.TransactionHistory;
+import com.example.picheTest.repository.entity.TransactionType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The original transfer path: SERIALIZABLE read-modify-write of both balances. The rows are locked first, so
+ * the transfer stays correct when it joins the READ COMMITTED transaction of an idempotent request. Serialization
+ * failures, including a history row arriving after a checkpoint cutoff, are retried.
+ */
+@Component
+@ConditionalOnProperty(name = "account.transfer.engine", havingValue = "serializable")
+public class SerializableTransferEngine implements TransferEngine {
+    private final AccountRepository repository;
+    private final TransactionHistoryWriter historyWriter;
+    private final AccountMetrics metrics;
+    private final TransientRetry retry;
+    private final TransactionTemplate transactionTemplate;
+
+    public SerializableTransferEngine(AccountRepository repository, TransactionHistoryWriter historyWriter,
+                                      AccountMetrics metrics, TransientRetry retry,
+                                      PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.historyWriter = historyWriter;
+        this.metrics = metrics;
+        this.retry = retry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+    }
+
+    @Override
+    public boolean transfer(TransferRQ transferRQ) {
+        return retry.execute(() -> transactionTemplate.execute(status -> doTransfer(transferRQ)));
+    }
+
+    private boolean doTransfer(TransferRQ transferRQ) {
+        Map<String, Account> locked = new HashMap<>();
+        for (Account account : repository.lockByAccountNumbers(
+                List.of(transferRQ.getFromAccountNumber(), transferRQ.getToAccountNumber()))) {
+            locked.put(account.getAccountNumber(), account);
+        }
+        Account fromAccount = getAccount(locked, transferRQ.getFromAccountNumber());
+        Account toAccount = getAccount(locked, transferRQ.getToAccountNumber());
+        long amount = Money.ofDecimal(transferRQ.getAmount());
+        if (fromAccount.getBalanceCents() > amount) {
+            fromAccount.setBalanceCents(Money.subtract(fromAccount.getBalanceCents(), amount));
+            toAccount.setBalanceCents(Money.add(toAccount.getBalanceCents(), amount));
+            repository.save(fromAccount);
+            repository.save(toAccount);
+
+            historyWriter.record(TransactionHistory.of(fromAccount.getId(), toAccount.getId(), TransactionType.TRANSFER, amount));
+            return true;
+        }
+        else {
+            metrics.rejected(AccountMetrics.Rejection.INSUFFICIENT_BALANCE);
+            throw new InsufficientBalanceException(transferRQ.getFromAccountNumber());
+        }
+    }
+
+    private Account getAccount(Map<String, Account> locked, String accountNumber) {
+        Account account = locked.get(accountNumber);
+        if (account == null) {
+            metrics.rejected(AccountMetrics.Rejection.NOT_FOUND);
+            throw new AccountNotFoundException(accountNumber);
+        }
+        return account;
+    }
+}
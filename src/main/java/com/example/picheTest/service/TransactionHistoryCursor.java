@@ -0,0 +1,31 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.repository.entity.TransactionHistory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position {@code (createdAt, id)} of the last row of a transaction history page.
+ */
+public record TransactionHistoryCursor(LocalDateTime createdAt, long id) {
+
+    public static TransactionHistoryCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf('|');
+            return new TransactionHistoryCursor(
+                    LocalDateTime.parse(decoded.substring(0, separator)),
+                    Long.parseLong(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public static String encode(TransactionHistory history) {
+        String raw = history.getCreatedAt() + "|" + history.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
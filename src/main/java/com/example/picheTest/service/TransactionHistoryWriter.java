@@ -0,0 +1,15 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.repository.entity.TransactionHistory;
+
+import java.util.List;
+
+/**
+ * Destination of every history row produced by a balance change. Called inside the transaction that changes
+ * the balance, when there is one.
+ */
+public interface TransactionHistoryWriter {
+    void record(TransactionHistory history);
+
+    void recordAll(List<TransactionHistory> history);
+}
@@ -0,0 +1,164 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.error.AccountNotFoundException;
+import com.example.picheTest.error.InsufficientBalanceException;
+import com.example.picheTest.metrics.AccountMetrics;
+import com.example.picheTest.model.Money;
+import com.example.picheTest.repository.AccountJdbcRepository;
+import com.example.picheTest.repository.AccountRepository;
+import com.example.picheTest.repository.entity.Account;
+import com.example.picheTest.repository.entity.TransactionHistory;
+import com.example.picheTest.repository.entity.TransactionType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Read-modify-write of one balance under its row lock, with its history row in the same transaction. The lock, not
+ * the isolation level, keeps concurrent updates from being lost, so the engine stays correct when it joins the
+ * READ COMMITTED transaction of an idempotent request. Accounts split into {@link BalanceSlots}, as the account row read at READ COMMITTED says, are changed with
+ * guarded slot updates in that transaction instead, where a concurrent update of the same row waits rather than
+ * failing the transaction.
+ * <p>
+ * {@link AccountIdCache} only holds the ids of accounts last seen unsplit. With a cached id the balance is changed
+ * with one update by primary key at READ COMMITTED, guarded on the row still being unsplit; a miss, a stale id, a
+ * split account or a rejected debit takes the paths above.
+ */
+@Component
+@ConditionalOnExpression("'${account.transfer.engine:atomic}' != 'ledger'")
+public class TransactionalBalanceEngine implements BalanceEngine {
+    private final AccountRepository repository;
+    private final AccountJdbcRepository accountJdbcRepository;
+    private final TransactionHistoryWriter historyWriter;
+    private final AccountMetrics metrics;
+    private final BalanceSlots slots;
+    private final AccountIdCache idCache;
+    private final TransactionTemplate readCommitted;
+
+    public TransactionalBalanceEngine(AccountRepository repository, AccountJdbcRepository accountJdbcRepository,
+                                      TransactionHistoryWriter historyWriter, AccountMetrics metrics,
+                                      BalanceSlots slots, AccountIdCache idCache,
+                                      PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.accountJdbcRepository = accountJdbcRepository;
+        this.historyWriter = historyWriter;
+        this.metrics = metrics;
+        this.slots = slots;
+        this.idCache = idCache;
+        this.readCommitted = new TransactionTemplate(transactionManager);
+        this.readCommitted.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    @Override
+    public Account deposit(String accountNumber, long amount) {
+        long id = idCache.get(accountNumber);
+        if (id != AccountIdCache.ABSENT) {
+            Account updated = readCommitted.execute(status -> {
+                Account account = accountJdbcRepository.addToBalanceById(id, accountNumber, amount);
+                if (account != null) {
+                    historyWriter.record(TransactionHistory.of(null, id, TransactionType.DEPOSIT, amount));
+                }
+                return account;
+            });
+            if (updated != null) {
+                return updated;
+            }
+            idCache.invalidate(accountNumber);
+        }
+        Account split = readCommitted.execute(status -> {
+            Account account = getAccount(accountNumber);
+            if (!slots.isSplit(account)) {
+                return null;
+            }
+            slots.credit(account, amount);
+            historyWriter.record(TransactionHistory.of(null, account.getId(), TransactionType.DEPOSIT, amount));
+            return slots.withTotal(account);
+        });
+        if (split != null) {
+            return split;
+        }
+        return readCommitted.execute(status -> {
+            Account account = lockAccount(accountNumber);
+            account.setBalanceCents(Money.add(account.getBalanceCents(), amount));
+            repository.save(account);
+
+            historyWriter.record(TransactionHistory.of(null, account.getId(), TransactionType.DEPOSIT, amount));
+            return account;
+        });
+    }
+
+    @Override
+    public Account withdraw(String accountNumber, long amount) {
+        long id = idCache.get(accountNumber);
+        if (id != AccountIdCache.ABSENT) {
+            Account updated = readCommitted.execute(status -> {
+                Account account = accountJdbcRepository.subtractFromBalanceById(id, accountNumber, amount);
+                if (account != null) {
+                    historyWriter.record(TransactionHistory.of(id, null, TransactionType.WITHDRAW, amount));
+                }
+                return account;
+            });
+            if (updated != null) {
+                return updated;
+            }
+            // the balance is too low, the account is split or the id is stale: the slow paths tell them apart
+        }
+        Account split = readCommitted.execute(status -> {
+            Account account = getAccount(accountNumber);
+            if (!slots.isSplit(account)) {
+                return null;
+            }
+            if (!slots.debit(account, amount)) {
+                throw insufficientBalance(accountNumber);
+            }
+            historyWriter.record(TransactionHistory.of(account.getId(), null, TransactionType.WITHDRAW, amount));
+            return slots.withTotal(account);
+        });
+        if (split != null) {
+            return split;
+        }
+        return readCommitted.execute(status -> {
+            Account account = lockAccount(accountNumber);
+            if (!Money.covers(account.getBalanceCents(), amount)) {
+                throw insufficientBalance(accountNumber);
+            }
+            account.setBalanceCents(Money.subtract(account.getBalanceCents(), amount));
+            repository.save(account);
+
+            historyWriter.record(TransactionHistory.of(account.getId(), null, TransactionType.WITHDRAW, amount));
+            return account;
+        });
+    }
+
+    private Account getAccount(String accountNumber) {
+        Account account = repository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> {
+                    metrics.rejected(AccountMetrics.Rejection.NOT_FOUND);
+                    return new AccountNotFoundException(accountNumber);
+                });
+        if (slots.isSplit(account)) {
+            idCache.invalidate(accountNumber);
+        } else {
+            idCache.put(accountNumber, account.getId());
+        }
+        return account;
+    }
+
+    private Account lockAccount(String accountNumber) {
+        List<Account> locked = repository.lockByAccountNumbers(List.of(accountNumber));
+        if (locked.isEmpty()) {
+            metrics.rejected(AccountMetrics.Rejection.NOT_FOUND);
+            throw new AccountNotFoundException(accountNumber);
+        }
+        return locked.get(0);
+    }
+
+    private InsufficientBalanceException insufficientBalance(String accountNumber) {
+        metrics.rejected(AccountMetrics.Rejection.INSUFFICIENT_BALANCE);
+        return new InsufficientBalanceException(accountNumber);
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.model.request.TransferRQ;
+
+/**
+ * Moves money between two existing accounts. Requests reaching an engine are already validated by {@link AccountService}.
+ */
+public interface TransferEngine {
+    boolean transfer(TransferRQ transferRQ);
+}
@@ -0,0 +1,82 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.config.TransferProperties;
+import com.example.picheTest.metrics.AccountMetrics;
+import com.example.picheTest.metrics.AccountMetrics.RetryCause;
+import lombok.AllArgsConstructor;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Re-runs a whole transaction when the database reports a conflict that is expected to go away on its own
+ * (serialization failure, deadlock, lock timeout), backing off exponentially with jitter between attempts.
+ * Inside a transaction begun by a caller a failure aborts the caller's transaction, so there the action runs
+ * once and the outermost retry starts over.
+ */
+@Component
+@AllArgsConstructor
+public class TransientRetry {
+    private TransferProperties properties;
+    private AccountMetrics metrics;
+
+    public <T> T execute(Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+        long backoff = properties.getInitialBackoff().toMillis();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (RuntimeException e) {
+                RetryCause cause = causeOf(e);
+                if (cause == null) {
+                    throw e;
+                }
+                if (attempt >= properties.getMaxAttempts()) {
+                    metrics.retriesExhausted();
+                    throw e;
+                }
+                long sleep = ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+                metrics.retried(cause, sleep);
+                sleep(sleep);
+                backoff = Math.min(backoff * 2, properties.getMaxBackoff().toMillis());
+            }
+        }
+    }
+
+    /**
+     * Classifies a failure as retryable, or returns {@code null} when re-running the transaction would not help.
+     */
+    static RetryCause causeOf(Throwable e) {
+        boolean transientAccess = false;
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            transientAccess |= cause instanceof TransientDataAccessException;
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null) {
+                RetryCause byState = switch (sqlException.getSQLState()) {
+                    case "40001" -> RetryCause.SERIALIZATION_FAILURE;
+                    case "40P01" -> RetryCause.DEADLOCK;
+                    case "55P03" -> RetryCause.LOCK_TIMEOUT;
+                    default -> null;
+                };
+                if (byState != null) {
+                    return byState;
+                }
+            }
+        }
+        return transientAccess ? RetryCause.OTHER : null;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry", e);
+        }
+    }
+}
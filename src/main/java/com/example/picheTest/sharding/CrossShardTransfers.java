@@ -0,0 +1,199 @@
+package com.example.picheTest.sharding;
+
+import com.example.picheTest.config.ShardingProperties;
+import com.example.picheTest.error.AccountNotFoundException;
+import com.example.picheTest.error.InsufficientBalanceException;
+import com.example.picheTest.metrics.AccountMetrics;
+import com.example.picheTest.model.Money;
+import com.example.picheTest.model.request.TransferRQ;
+import com.example.picheTest.repository.AccountRepository;
+import com.example.picheTest.repository.ShardTransferRepository;
+import com.example.picheTest.repository.ShardTransferRepository.ShardTransfer;
+import com.example.picheTest.repository.entity.Account;
+import com.example.picheTest.repository.entity.TransactionHistory;
+import com.example.picheTest.repository.entity.TransactionType;
+import com.example.picheTest.service.BalanceSlots;
+import com.example.picheTest.service.TransactionHistoryWriter;
+import com.example.picheTest.service.TransientRetry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Transfers between accounts on different shards, as a saga of local transactions:
+ * <ol>
+ *     <li>on the source shard, the guarded debit, its history row and a {@code DEBITED} {@code shard_transfers}
+ *     row commit together;</li>
+ *     <li>on the target shard, the credit and its history row commit together with a {@code shard_transfer_credits}
+ *     row, whose key makes a repeated credit a no-op;</li>
+ *     <li>on the source shard, the transfer is marked {@code COMPLETED}.</li>
+ * </ol>
+ * Once step 1 commits the transfer is accepted. If the request fails after it, the transfer stays {@code DEBITED}
+ * and recovery, every {@code account.sharding.recovery-interval}, runs steps 2 and 3 again for transfers older
+ * than {@code account.sharding.recovery-delay}. A credit account that no longer exists is compensated by
+ * crediting the debit back. Each shard's history row names both accounts; each shard only counts the side of
+ * its own account.
+ */
+@Slf4j
+@Component
+public class CrossShardTransfers implements SchedulingConfigurer {
+    private static final int RECOVERY_BATCH = 100;
+
+    private final ShardRouter shards;
+    private final AccountRepository repository;
+    private final ShardTransferRepository transferRepository;
+    private final TransactionHistoryWriter historyWriter;
+    private final BalanceSlots slots;
+    private final TransientRetry retry;
+    private final AccountMetrics metrics;
+    private final ShardingProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    public CrossShardTransfers(ShardRouter shards, AccountRepository repository, ShardTransferRepository transferRepository,
+                               TransactionHistoryWriter historyWriter, BalanceSlots slots, TransientRetry retry,
+                               AccountMetrics metrics, ShardingProperties properties,
+                               PlatformTransactionManager transactionManager) {
+        this.shards = shards;
+        this.repository = repository;
+        this.transferRepository = transferRepository;
+        this.historyWriter = historyWriter;
+        this.slots = slots;
+        this.retry = retry;
+        this.metrics = metrics;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        if (shards.count() > 1) {
+            registrar.addFixedDelayTask(this::recover, properties.getRecoveryInterval());
+        }
+    }
+
+    public boolean transfer(TransferRQ transferRQ, int fromShard, int toShard) {
+        return transfer(transferRQ, fromShard, toShard, null);
+    }
+
+    /**
+     * Runs {@code inDebit}, when given, in the transaction of the debit.
+     */
+    public boolean transfer(TransferRQ transferRQ, int fromShard, int toShard, Runnable inDebit) {
+        long amount = Money.ofDecimal(transferRQ.getAmount());
+        Account toAccount = shards.on(toShard, () -> find(transferRQ.getToAccountNumber()));
+        ShardTransfer transfer = new ShardTransfer(UUID.randomUUID(), 0, toAccount.getId(), toShard, amount);
+        ShardTransfer debited = shards.on(fromShard, () -> retry.execute(() -> transactionTemplate.execute(status ->
+                debit(transferRQ.getFromAccountNumber(), transfer, inDebit))));
+        try {
+            complete(fromShard, debited);
+        } catch (RuntimeException e) {
+            log.warn("Cross-shard transfer {} is debited but not credited yet, leaving it to recovery", debited.id(), e);
+        }
+        return true;
+    }
+
+    /**
+     * Completes the unfinished transfers debited on every shard before the recovery delay.
+     */
+    public void recover() {
+        LocalDateTime before = LocalDateTime.now().minus(properties.getRecoveryDelay());
+        for (int shard = 0; shard < shards.count(); shard++) {
+            try {
+                recover(shard, before);
+            } catch (RuntimeException e) {
+                log.warn("Recovering cross-shard transfers from shard {} failed, retrying next interval", shard, e);
+            }
+        }
+    }
+
+    /**
+     * Completes the unfinished transfers debited on the shard before {@code before}; returns how many.
+     */
+    public int recover(int shard, LocalDateTime before) {
+        int recovered = 0;
+        while (true) {
+            List<ShardTransfer> unfinished = shards.on(shard, () -> transferRepository.findUnfinished(before, RECOVERY_BATCH));
+            for (ShardTransfer transfer : unfinished) {
+                complete(shard, transfer);
+                recovered++;
+            }
+            if (unfinished.size() < RECOVERY_BATCH) {
+                if (recovered > 0) {
+                    log.info("Completed {} unfinished cross-shard transfers from shard {}", recovered, shard);
+                }
+                return recovered;
+            }
+        }
+    }
+
+    private ShardTransfer debit(String fromAccountNumber, ShardTransfer transfer, Runnable inDebit) {
+        Account fromAccount = find(fromAccountNumber);
+        if (!slots.debit(fromAccount, transfer.amount())) {
+            metrics.rejected(AccountMetrics.Rejection.INSUFFICIENT_BALANCE);
+            throw new InsufficientBalanceException(fromAccountNumber);
+        }
+        ShardTransfer debited = new ShardTransfer(transfer.id(), fromAccount.getId(), transfer.toAccountId(),
+                transfer.toShard(), transfer.amount());
+        historyWriter.record(TransactionHistory.of(debited.fromAccountId(), debited.toAccountId(),
+                TransactionType.TRANSFER, debited.amount()));
+        transferRepository.insert(debited, LocalDateTime.now());
+        if (inDebit != null) {
+            inDebit.run();
+        }
+        return debited;
+    }
+
+    private void complete(int fromShard, ShardTransfer transfer) {
+        boolean credited = shards.on(transfer.toShard(), () -> retry.execute(() -> transactionTemplate.execute(status ->
+                credit(transfer))));
+        shards.on(fromShard, () -> retry.execute(() -> transactionTemplate.execute(status -> credited
+                ? transferRepository.finish(transfer.id(), ShardTransferRepository.COMPLETED, LocalDateTime.now())
+                : compensate(transfer))));
+    }
+
+    /**
+     * Returns {@code false}, changing nothing, when the credited account is gone.
+     */
+    private boolean credit(ShardTransfer transfer) {
+        Optional<Account> toAccount = repository.findById(transfer.toAccountId());
+        if (toAccount.isEmpty()) {
+            return false;
+        }
+        if (transferRepository.claimCredit(transfer.id(), LocalDateTime.now())) {
+            slots.credit(toAccount.get(), transfer.amount());
+            historyWriter.record(TransactionHistory.of(transfer.fromAccountId(), transfer.toAccountId(),
+                    TransactionType.TRANSFER, transfer.amount()));
+        }
+        return true;
+    }
+
+    private boolean compensate(ShardTransfer transfer) {
+        if (!transferRepository.finish(transfer.id(), ShardTransferRepository.COMPENSATED, LocalDateTime.now())) {
+            return false;
+        }
+        Account fromAccount = repository.findById(transfer.fromAccountId()).orElseThrow(() ->
+                new IllegalStateException("Account " + transfer.fromAccountId() + " of transfer " + transfer.id() + " is gone"));
+        slots.credit(fromAccount, transfer.amount());
+        historyWriter.record(TransactionHistory.of(transfer.toAccountId(), transfer.fromAccountId(),
+                TransactionType.TRANSFER, transfer.amount()));
+        log.warn("Cross-shard transfer {} compensated: account {} no longer exists", transfer.id(), transfer.toAccountId());
+        return true;
+    }
+
+    private Account find(String accountNumber) {
+        return repository.findByAccountNumber(accountNumber).orElseThrow(() -> {
+            metrics.rejected(AccountMetrics.Rejection.NOT_FOUND);
+            return new AccountNotFoundException(accountNumber);
+        });
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.picheTest.sharding;
+
+import com.example.picheTest.config.ShardingProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Which shard the calling thread works on. {@link ShardRoutingDataSource} hands out connections of that shard, so
+ * repositories and transactions started inside {@link #on} run there; outside of it they run on shard 0. Without
+ * sharding there is just shard 0 and every call runs in place.
+ * <p>
+ * An account lives on the shard its number hashes to. Ids are disjoint across shards: shard {@code n} numbers its
+ * rows from {@code n << 48}, so the shard of an id is its top bits.
+ */
+@Component
+public class ShardRouter {
+    public static final int ID_SHIFT = 48;
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final int count;
+    private final TransactionTemplate readOnlyTemplate;
+
+    public ShardRouter(ShardingProperties properties, PlatformTransactionManager transactionManager) {
+        this.count = properties.isEnabled() ? properties.getShards().size() + 1 : 1;
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int shardOf(String accountNumber) {
+        if (count == 1) {
+            return 0;
+        }
+        // String.hashCode is fixed by the language spec, so every instance agrees; the finalizer spreads its low bits
+        int h = accountNumber.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, count);
+    }
+
+    public static int shardOfId(long id) {
+        return (int) (id >>> ID_SHIFT);
+    }
+
+    public static long firstId(int shard) {
+        return (long) shard << ID_SHIFT;
+    }
+
+    /**
+     * The shard of the calling thread, 0 outside of {@link #on}.
+     */
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard == null ? 0 : shard;
+    }
+
+    /**
+     * Runs the action on the shard. A transaction already open keeps its connection, so switching shards inside
+     * one is refused.
+     */
+    public <T> T on(int shard, Supplier<T> action) {
+        Integer previous = CURRENT.get();
+        if (count == 1 || previous != null && previous == shard) {
+            return action.get();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot switch to shard " + shard + " inside a transaction on shard " + current());
+        }
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public <T> T onAccount(String accountNumber, Supplier<T> action) {
+        return on(shardOf(accountNumber), action);
+    }
+
+    /**
+     * Runs the action on every shard in turn, in a read-only transaction on each.
+     */
+    public void readEach(IntConsumer action) {
+        for (int shard = 0; shard < count; shard++) {
+            read(shard, action);
+        }
+    }
+
+    /**
+     * Runs the action in a read-only transaction on the shard.
+     */
+    public void read(int shard, IntConsumer action) {
+        on(shard, () -> {
+            readOnlyTemplate.executeWithoutResult(status -> action.accept(shard));
+            return null;
+        });
+    }
+
+    /**
+     * Runs the action on every shard in turn.
+     */
+    public void forEach(IntConsumer action) {
+        for (int shard = 0; shard < count; shard++) {
+            int current = shard;
+            on(shard, () -> {
+                action.accept(current);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Runs the action on all shards at once, one virtual thread each, and returns the results by shard.
+     */
+    public <T> List<T> scatter(IntFunction<T> action) {
+        if (count == 1) {
+            return List.of(action.apply(0));
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<T>> futures = new ArrayList<>(count);
+            for (int shard = 0; shard < count; shard++) {
+                int current = shard;
+                futures.add(executor.submit(() -> on(current, () -> action.apply(current))));
+            }
+            List<T> results = new ArrayList<>(count);
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading the shards", e);
+        }
+    }
+}
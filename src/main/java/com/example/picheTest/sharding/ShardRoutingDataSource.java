@@ -0,0 +1,65 @@
+package com.example.picheTest.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Hands out connections of the shard {@link ShardRouter} has the calling thread on. Shard 0 is the
+ * {@code spring.datasource} pool, the others are owned and closed here.
+ */
+@Slf4j
+public class ShardRoutingDataSource extends AbstractDataSource implements DisposableBean {
+    private static final List<String> SEQUENCES = List.of("accounts_id_seq", "transaction_history_id_seq");
+
+    private final DataSource[] shards;
+
+    public ShardRoutingDataSource(DataSource primary, List<HikariDataSource> others) {
+        this.shards = new DataSource[others.size() + 1];
+        this.shards[0] = primary;
+        for (int i = 0; i < others.size(); i++) {
+            this.shards[i + 1] = others.get(i);
+        }
+    }
+
+    /**
+     * Moves each shard's id sequences to the shard's id range, once; shard 0 keeps its ids from 1.
+     */
+    public void assignIdRanges() {
+        for (int shard = 1; shard < shards.length; shard++) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(shards[shard]);
+            for (String sequence : SEQUENCES) {
+                long first = ShardRouter.firstId(shard);
+                Long moved = jdbcTemplate.queryForObject("SELECT CASE WHEN last_value < ? THEN setval('" + sequence
+                        + "', ?) END FROM " + sequence, Long.class, first, first);
+                if (moved != null) {
+                    log.info("Shard {}: {} now starts at {}", shard, sequence, first);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return shards[ShardRouter.current()].getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new UnsupportedOperationException("Credentials are configured per pool");
+    }
+
+    @Override
+    public void destroy() {
+        for (int shard = 1; shard < shards.length; shard++) {
+            ((HikariDataSource) shards[shard]).close();
+        }
+    }
+}
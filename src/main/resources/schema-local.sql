@@ -1,14 +1,185 @@
 CREATE TABLE accounts (
     id BIGSERIAL PRIMARY KEY,
     account_number VARCHAR(255) NOT NULL UNIQUE,
-    balance NUMERIC(15, 2)
+    balance NUMERIC(15, 2),
+    slots INT NOT NULL DEFAULT 1                   -- balance slots, see account_balance_slots; never decreases
 );
 
+-- Range partitioned by created_at; the partitions themselves are created ahead of time, and archived once past
+-- retention, by HistoryPartitionMaintainer. The default partition only catches rows outside every partition.
 CREATE TABLE transaction_history (
-    id BIGSERIAL PRIMARY KEY,                      -- Unique transaction ID
+    id BIGSERIAL,                                  -- Unique transaction ID
     account_id_from BIGINT,                   -- Sender's account (NULL for deposits)
     account_id_to BIGINT,                     -- Receiver's account (NULL for withdrawals)
     amount NUMERIC(15, 2) NOT NULL,                -- Transaction amount with two decimal places
     transaction_type VARCHAR(20) NOT NULL,         -- Type: DEPOSIT, WITHDRAW, TRANSFER
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP -- Timestamp of the transaction
-);
\ No newline at end of file
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, -- Timestamp of the transaction
+    PRIMARY KEY (id, created_at)                   -- a unique key must include the partition key
+) PARTITION BY RANGE (created_at);
+CREATE TABLE transaction_history_default PARTITION OF transaction_history DEFAULT;
+
+-- Keyset pages of an account's history, one index per direction
+CREATE INDEX transaction_history_from_idx ON transaction_history (account_id_from, created_at, id);
+CREATE INDEX transaction_history_to_idx ON transaction_history (account_id_to, created_at, id);
+
+-- Hibernate allocates history ids in blocks of 50 so inserts can be batched
+ALTER SEQUENCE transaction_history_id_seq INCREMENT BY 50;
+
+-- Extra balance slots of hot accounts, slot 0 being accounts.balance itself. Slots 1..accounts.slots-1 are
+-- inserted in the transaction that raises accounts.slots. No foreign key: it would take a KEY SHARE lock on the
+-- hot accounts row for every slot update.
+CREATE TABLE account_balance_slots (
+    account_id BIGINT NOT NULL,
+    slot INT NOT NULL,
+    balance NUMERIC(15, 2) NOT NULL DEFAULT 0 CHECK (balance >= 0),
+    PRIMARY KEY (account_id, slot)
+);
+
+-- Balances as of checkpoint times, so a point-in-time balance replays only the history after the latest one.
+-- Checkpoint runs read new history by time.
+CREATE TABLE balance_checkpoints (
+    account_id BIGINT NOT NULL,
+    as_of TIMESTAMP NOT NULL,
+    balance NUMERIC(15, 2) NOT NULL,
+    PRIMARY KEY (account_id, as_of)
+);
+CREATE INDEX balance_checkpoints_as_of_idx ON balance_checkpoints (as_of);
+CREATE INDEX transaction_history_created_at_idx ON transaction_history (created_at);
+
+-- Cutoff of the latest checkpoint run, in microseconds since the epoch, announced before the run starts. A sequence
+-- because setval is not transactional: every inserting transaction sees a new cutoff at once, whatever its snapshot.
+CREATE SEQUENCE balance_checkpoint_cutoff MINVALUE 0 START 0;
+
+-- History rows stamped at or before the cutoff are late: a checkpoint run may not have seen them. The inserting
+-- transaction adds them to every checkpoint they belong in, after waiting for a run in progress (which holds the
+-- same advisory lock exclusively) to commit. Only a READ COMMITTED statement is sure to see that run's rows, so a
+-- late row at any other isolation level fails its transaction with a serialization failure instead. Every path
+-- writing history runs at READ COMMITTED except the serializable transfer engine, which retries such failures;
+-- a new path at a stricter level must retry them too, as instances' clocks may straddle a cutoff.
+CREATE FUNCTION balance_checkpoints_late_history() RETURNS trigger AS $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM inserted
+                   WHERE extract(epoch FROM created_at) * 1000000 <= (SELECT last_value FROM balance_checkpoint_cutoff)) THEN
+        RETURN NULL;
+    END IF;
+    IF current_setting('transaction_isolation') <> 'read committed' THEN
+        RAISE EXCEPTION 'history row stamped before the balance checkpoint cutoff' USING ERRCODE = 'serialization_failure';
+    END IF;
+    PERFORM pg_advisory_xact_lock_shared(108170569804656);
+    UPDATE balance_checkpoints c SET balance = c.balance + late.delta
+    FROM (SELECT k.account_id, k.as_of, sum(m.delta) AS delta
+          FROM (SELECT account_id_to AS account_id, amount AS delta, created_at FROM inserted WHERE account_id_to IS NOT NULL
+                UNION ALL
+                SELECT account_id_from, -amount, created_at FROM inserted WHERE account_id_from IS NOT NULL) m
+          JOIN balance_checkpoints k ON k.account_id = m.account_id AND k.as_of >= m.created_at
+          GROUP BY k.account_id, k.as_of) late
+    WHERE c.account_id = late.account_id AND c.as_of = late.as_of;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER balance_checkpoints_late_history AFTER INSERT ON transaction_history
+    REFERENCING NEW TABLE AS inserted FOR EACH STATEMENT EXECUTE FUNCTION balance_checkpoints_late_history();
+
+-- Outbox of balance changes, filled in the transaction that writes the history rows whatever path wrote them.
+-- event_offset is assigned afterwards by a single relay in the order rows become visible, so a subscriber
+-- resuming after an offset never skips a row that committed late with a lower id.
+CREATE TABLE transaction_events (
+    history_id BIGINT PRIMARY KEY,
+    event_offset BIGINT UNIQUE,
+    account_id_from BIGINT,
+    account_id_to BIGINT,
+    amount NUMERIC(15, 2) NOT NULL,
+    transaction_type VARCHAR(20) NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+CREATE INDEX transaction_events_pending_idx ON transaction_events (history_id) WHERE event_offset IS NULL;
+
+CREATE FUNCTION transaction_events_outbox() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO transaction_events (history_id, account_id_from, account_id_to, amount, transaction_type, created_at)
+    SELECT id, account_id_from, account_id_to, amount, transaction_type, created_at FROM inserted;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER transaction_events_outbox AFTER INSERT ON transaction_history
+    REFERENCING NEW TABLE AS inserted FOR EACH STATEMENT EXECUTE FUNCTION transaction_events_outbox();
+
+-- Reconciliation of balances against history. A run covers the account ids that existed when it started, in
+-- fixed chunks; each checked chunk is recorded with its mismatches, so a resumed run skips it. from_ids and to_ids
+-- hold the id range of every shard, in shard order; runs, chunks and mismatches live on shard 0.
+CREATE TABLE reconciliation_runs (
+    id BIGSERIAL PRIMARY KEY,
+    status VARCHAR(20) NOT NULL,
+    from_ids BIGINT[] NOT NULL,
+    to_ids BIGINT[] NOT NULL,
+    chunk_size INT NOT NULL,
+    started_at TIMESTAMP NOT NULL,
+    heartbeat_at TIMESTAMP NOT NULL,
+    finished_at TIMESTAMP,
+    error TEXT
+);
+-- At most one run at a time, across instances
+CREATE UNIQUE INDEX reconciliation_runs_running_idx ON reconciliation_runs ((true)) WHERE status = 'RUNNING';
+
+CREATE TABLE reconciliation_chunks (
+    run_id BIGINT NOT NULL,
+    chunk INT NOT NULL,
+    accounts INT NOT NULL,
+    history_rows BIGINT NOT NULL,
+    PRIMARY KEY (run_id, chunk)
+);
+
+CREATE TABLE reconciliation_mismatches (
+    run_id BIGINT NOT NULL,
+    account_id BIGINT NOT NULL,
+    account_number VARCHAR(255) NOT NULL,
+    balance NUMERIC(15, 2) NOT NULL,
+    history_balance NUMERIC(15, 2) NOT NULL,
+    PRIMARY KEY (run_id, account_id)
+);
+
+-- Net history per account of the partitions archived so far, and the archives themselves
+CREATE TABLE archived_balances (
+    account_id BIGINT PRIMARY KEY,
+    balance NUMERIC(15, 2) NOT NULL
+);
+
+CREATE TABLE history_archives (
+    partition_name VARCHAR(63) PRIMARY KEY,
+    range_from TIMESTAMP NOT NULL,
+    range_to TIMESTAMP NOT NULL,
+    row_count BIGINT NOT NULL,
+    file VARCHAR(1024) NOT NULL,
+    archived_at TIMESTAMP NOT NULL
+);
+
+-- Every shard has the same schema. Cross-shard transfers, on the debited account's shard; DEBITED ones are
+-- completed by recovery
+CREATE TABLE shard_transfers (
+    id UUID PRIMARY KEY,
+    from_account_id BIGINT NOT NULL,
+    to_account_id BIGINT NOT NULL,
+    to_shard INT NOT NULL,
+    amount NUMERIC(15, 2) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
+CREATE INDEX shard_transfers_unfinished_idx ON shard_transfers (created_at) WHERE status = 'DEBITED';
+
+-- Credits of cross-shard transfers applied on the credited account's shard, so each is applied once
+CREATE TABLE shard_transfer_credits (
+    id UUID PRIMARY KEY,
+    applied_at TIMESTAMP NOT NULL
+);
+
+-- Responses of requests sent with an Idempotency-Key, written by the transaction that moved the money
+CREATE TABLE idempotency_keys (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    fingerprint BIGINT NOT NULL,
+    response TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+CREATE INDEX idempotency_keys_created_at_idx ON idempotency_keys (created_at);
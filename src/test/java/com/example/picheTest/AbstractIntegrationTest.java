@@ -0,0 +1,64 @@
+package com.example.picheTest;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Shared Postgres container for the benchmark and integration tests outside {@link BaseTest}.
+ */
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public abstract class AbstractIntegrationTest {
+    protected static final PostgreSQLContainer<?> postgreSQLContainer;
+
+    static {
+        postgreSQLContainer =
+                new PostgreSQLContainer<>(
+                        DockerImageName.parse(PostgreSQLContainer.IMAGE + ":15.3-bullseye"))
+                        .withDatabaseName("testdb")
+                        .withPassword("postgres")
+                        .withUsername("postgres");
+        postgreSQLContainer.start();
+        runSql(new String(readAsBytes("db/schema.sql")));
+    }
+
+    @AfterEach
+    public void cleanDatabase() {
+        runSql(new String(readAsBytes("db/clean.sql")));
+    }
+
+    @DynamicPropertySource
+    static void datasourceConfig(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+    }
+
+    @SneakyThrows
+    protected static byte[] readAsBytes(String path) {
+        return new ClassPathResource(path).getInputStream().readAllBytes();
+    }
+
+    protected static void runSql(String queries) {
+        try (Connection connection = DriverManager.getConnection(
+                postgreSQLContainer.getJdbcUrl(), postgreSQLContainer.getUsername(), postgreSQLContainer.getPassword())) {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate(queries);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
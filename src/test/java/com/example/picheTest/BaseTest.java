@@ -4,9 +4,13 @@ import com.example.picheTest.model.request.AccountCreateRQ;
 import com.example.picheTest.model.request.DepositRQ;
 import com.example.picheTest.model.request.TransferRQ;
 import com.example.picheTest.model.request.WithdrawRQ;
+import com.example.picheTest.model.response.BalanceRS;
+import com.example.picheTest.model.response.BulkImportRS;
+import com.example.picheTest.model.response.TransferResultRS;
 import com.example.picheTest.repository.entity.Account;
 import com.example.picheTest.repository.entity.TransactionHistory;
 import com.example.picheTest.repository.entity.TransactionType;
+import com.example.picheTest.service.BalanceCheckpointer;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.*;
@@ -16,8 +20,11 @@ import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
@@ -33,6 +40,7 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -50,6 +58,9 @@ class BaseTest {
     @Autowired
     private TransactionHistoryRepository transactionHistoryRepository;
 
+    @Autowired
+    private BalanceCheckpointer balanceCheckpointer;
+
     @LocalServerPort
     private int port;
 
@@ -139,6 +150,7 @@ class BaseTest {
         assertNotNull(response.getBody(), "Response body should not be null");
         assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
         assertEquals("Account number already exists: " + ACCOUNT_NUMBER, response.getBody());
+        assertEquals("DUPLICATE_ACCOUNT", response.getHeaders().getFirst("X-Error-Code"));
     }
 
     @Test
@@ -162,6 +174,7 @@ class BaseTest {
         assertNotNull(response.getBody(), "Response body should not be null");
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         assertEquals("Account with account number " + ACCOUNT_NUMBER + " not found", response.getBody());
+        assertEquals("ACCOUNT_NOT_FOUND", response.getHeaders().getFirst("X-Error-Code"));
     }
 
     @Test
@@ -197,6 +210,56 @@ class BaseTest {
         assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode(), "Expected status code 204");
     }
 
+    @Test
+    void testGetAllAccountsPaged() {
+        this.createAccount(ACCOUNT_NUMBER, BigDecimal.valueOf(1000));
+        this.createAccount(SECOND_ACCOUNT_NUMBER, BigDecimal.valueOf(1000));
+
+        ResponseEntity<List<Account>> firstPage = restTemplate.exchange(
+                BASE_URL.formatted(port) + "?limit=1",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<List<Account>>() {}
+        );
+
+        assertEquals(HttpStatus.OK, firstPage.getStatusCode());
+        assertNotNull(firstPage.getBody(), "Response body should not be null");
+        assertEquals(1, firstPage.getBody().size());
+        assertEquals(ACCOUNT_NUMBER, firstPage.getBody().get(0).getAccountNumber());
+
+        String cursor = firstPage.getHeaders().getFirst("X-Next-Cursor");
+        ResponseEntity<List<Account>> secondPage = restTemplate.exchange(
+                BASE_URL.formatted(port) + "?limit=1&cursor=" + cursor,
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<List<Account>>() {}
+        );
+
+        assertNotNull(secondPage.getBody(), "Response body should not be null");
+        assertEquals(1, secondPage.getBody().size());
+        assertEquals(SECOND_ACCOUNT_NUMBER, secondPage.getBody().get(0).getAccountNumber());
+
+        String lastCursor = secondPage.getHeaders().getFirst("X-Next-Cursor");
+        ResponseEntity<String> lastPage = restTemplate.getForEntity(
+                BASE_URL.formatted(port) + "?limit=1&cursor=" + lastCursor, String.class);
+        assertEquals(HttpStatus.NO_CONTENT, lastPage.getStatusCode());
+    }
+
+    @Test
+    void testStreamAccounts() {
+        this.createAccount(ACCOUNT_NUMBER, BigDecimal.valueOf(1000));
+        this.createAccount(SECOND_ACCOUNT_NUMBER, BigDecimal.valueOf(500));
+
+        ResponseEntity<String> response = restTemplate.getForEntity(BASE_URL.formatted(port) + "?format=ndjson", String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody(), "Response body should not be null");
+        String[] lines = response.getBody().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"accountNumber\":\"" + ACCOUNT_NUMBER + "\""));
+        assertTrue(lines[1].contains("\"accountNumber\":\"" + SECOND_ACCOUNT_NUMBER + "\""));
+    }
+
     @Test
     void testDepositFunds() {
         this.createAccount(ACCOUNT_NUMBER, BigDecimal.valueOf(1000));
@@ -256,6 +319,7 @@ class BaseTest {
         assertNotNull(response.getBody(), "Response body should not be null");
         assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
         assertEquals("Account " + ACCOUNT_NUMBER + " does not have sufficient balance", response.getBody());
+        assertEquals("INSUFFICIENT_BALANCE", response.getHeaders().getFirst("X-Error-Code"));
     }
 
     @Test
@@ -304,6 +368,108 @@ class BaseTest {
         assertEquals(TransactionType.TRANSFER, transactionHistorySecondAccount.get(1).getTransactionType());
     }
 
+    @Test
+    void testGetTransactions() {
+        this.createAccount(ACCOUNT_NUMBER, BigDecimal.valueOf(1000));
+        this.createAccount(SECOND_ACCOUNT_NUMBER, BigDecimal.valueOf(500));
+        restTemplate.postForEntity(BASE_URL.formatted(port) + "/transfer",
+                new TransferRQ(ACCOUNT_NUMBER, SECOND_ACCOUNT_NUMBER, BigDecimal.valueOf(200)), Boolean.class);
+        restTemplate.postForEntity(BASE_URL.formatted(port) + "/" + ACCOUNT_NUMBER + "/withdraw",
+                new WithdrawRQ(BigDecimal.valueOf(100)), Account.class);
+
+        String url = BASE_URL.formatted(port) + "/" + ACCOUNT_NUMBER + "/transactions";
+        ResponseEntity<List<TransactionHistory>> firstPage = restTemplate.exchange(
+                url + "?limit=2",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<List<TransactionHistory>>() {}
+        );
+
+        assertEquals(HttpStatus.OK, firstPage.getStatusCode());
+        assertNotNull(firstPage.getBody(), "Response body should not be null");
+        assertEquals(2, firstPage.getBody().size());
+        assertEquals(TransactionType.WITHDRAW, firstPage.getBody().get(0).getTransactionType());
+        assertEquals(TransactionType.TRANSFER, firstPage.getBody().get(1).getTransactionType());
+
+        ResponseEntity<List<TransactionHistory>> secondPage = restTemplate.exchange(
+                url + "?limit=2&cursor=" + firstPage.getHeaders().getFirst("X-Next-Cursor"),
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<List<TransactionHistory>>() {}
+        );
+
+        assertNotNull(secondPage.getBody(), "Response body should not be null");
+        assertEquals(1, secondPage.getBody().size());
+        assertEquals(TransactionType.DEPOSIT, secondPage.getBody().get(0).getTransactionType());
+
+        ResponseEntity<List<TransactionHistory>> transfers = restTemplate.exchange(
+                url + "?type=TRANSFER",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<List<TransactionHistory>>() {}
+        );
+
+        assertNotNull(transfers.getBody(), "Response body should not be null");
+        assertEquals(1, transfers.getBody().size());
+        assertEquals(0, transfers.getBody().get(0).getAmount().compareTo(BigDecimal.valueOf(200)));
+    }
+
+    @Test
+    void testGetBalanceAsOf() {
+        this.createAccount(ACCOUNT_NUMBER, BigDecimal.valueOf(1000));
+        String url = BASE_URL.formatted(port) + "/" + ACCOUNT_NUMBER;
+        restTemplate.postForEntity(url + "/deposit", new DepositRQ(BigDecimal.valueOf(200)), Account.class);
+        LocalDateTime afterDeposit = LocalDateTime.now();
+        balanceCheckpointer.checkpoint(LocalDateTime.now());
+        restTemplate.postForEntity(url + "/withdraw", new WithdrawRQ(BigDecimal.valueOf(50)), Account.class);
+        LocalDateTime afterWithdraw = LocalDateTime.now();
+        restTemplate.postForEntity(url + "/deposit", new DepositRQ(BigDecimal.valueOf(5)), Account.class);
+
+        ResponseEntity<BalanceRS> beforeCheckpoint = restTemplate.getForEntity(
+                url + "/balance?asOf=" + afterDeposit, BalanceRS.class);
+        ResponseEntity<BalanceRS> afterCheckpoint = restTemplate.getForEntity(
+                url + "/balance?asOf=" + afterWithdraw, BalanceRS.class);
+        ResponseEntity<BalanceRS> current = restTemplate.getForEntity(url + "/balance", BalanceRS.class);
+
+        assertEquals(HttpStatus.OK, beforeCheckpoint.getStatusCode());
+        assertEquals(0, beforeCheckpoint.getBody().getBalance().compareTo(BigDecimal.valueOf(1200)));
+        assertEquals(0, afterCheckpoint.getBody().getBalance().compareTo(BigDecimal.valueOf(1150)));
+        assertEquals(0, current.getBody().getBalance().compareTo(BigDecimal.valueOf(1155)));
+        assertEquals(HttpStatus.NOT_FOUND,
+                restTemplate.getForEntity(BASE_URL.formatted(port) + "/missing/balance", String.class).getStatusCode());
+    }
+
+    @Test
+    void testGetBalanceAsOfCountsHistoryThatArrivesAfterItsCheckpoint() {
+        Account account = this.createAccount(ACCOUNT_NUMBER, BigDecimal.valueOf(1000)).getBody();
+        String url = BASE_URL.formatted(port) + "/" + ACCOUNT_NUMBER;
+        LocalDateTime stamped = LocalDateTime.now();
+        balanceCheckpointer.checkpoint(LocalDateTime.now());
+
+        // e.g. a journaled row that reaches the table after the run that covers its time
+        TransactionHistory late = TransactionHistory.of(null, account.getId(), TransactionType.DEPOSIT, 3000);
+        late.setCreatedAt(stamped);
+        transactionHistoryRepository.save(late);
+
+        ResponseEntity<BalanceRS> afterCheckpoint = restTemplate.getForEntity(
+                url + "/balance?asOf=" + LocalDateTime.now(), BalanceRS.class);
+        assertEquals(0, afterCheckpoint.getBody().getBalance().compareTo(BigDecimal.valueOf(1030)));
+    }
+
+    @Test
+    void testPrometheusMetrics() {
+        restTemplate.getForEntity(BASE_URL.formatted(port) + "/missing", String.class);
+
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                "http://localhost:%s/actuator/prometheus".formatted(port), String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody(), "Response body should not be null");
+        assertTrue(response.getBody().contains("account_rejections_total{reason=\"not_found\"}"));
+        assertTrue(response.getBody().contains("http_server_requests_seconds_bucket"));
+        assertTrue(response.getBody().contains("hikaricp_connections_pending"));
+    }
+
     @Test
     void testTransferFundsNotHaveSufficientBalance() {
         this.createAccount(ACCOUNT_NUMBER, BigDecimal.valueOf(1000));
@@ -318,4 +484,75 @@ class BaseTest {
         assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, transferResponse.getStatusCode());
         assertEquals("Account " + ACCOUNT_NUMBER + " does not have sufficient balance", transferResponse.getBody());
     }
+
+    @Test
+    void testTransferBatch() {
+        this.createAccount(ACCOUNT_NUMBER, BigDecimal.valueOf(1000));
+        this.createAccount(SECOND_ACCOUNT_NUMBER, BigDecimal.valueOf(500));
+
+        List<TransferRQ> transfers = List.of(
+                new TransferRQ(ACCOUNT_NUMBER, SECOND_ACCOUNT_NUMBER, BigDecimal.valueOf(200)),
+                new TransferRQ(ACCOUNT_NUMBER, SECOND_ACCOUNT_NUMBER, BigDecimal.valueOf(5000)),
+                new TransferRQ(ACCOUNT_NUMBER, "9999-9999-9999-9999", BigDecimal.valueOf(100)),
+                new TransferRQ(SECOND_ACCOUNT_NUMBER, ACCOUNT_NUMBER, BigDecimal.valueOf(50)));
+
+        String batchUrl = BASE_URL.formatted(port) + "/transfers/batch";
+        ResponseEntity<List<TransferResultRS>> response = restTemplate.exchange(
+                batchUrl,
+                HttpMethod.POST,
+                new HttpEntity<>(transfers),
+                new ParameterizedTypeReference<List<TransferResultRS>>() {}
+        );
+
+        assertNotNull(response.getBody(), "Response body should not be null");
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(4, response.getBody().size());
+        assertTrue(response.getBody().get(0).isSuccess());
+        assertFalse(response.getBody().get(1).isSuccess());
+        assertEquals("Account " + ACCOUNT_NUMBER + " does not have sufficient balance", response.getBody().get(1).getError());
+        assertFalse(response.getBody().get(2).isSuccess());
+        assertEquals("Account with account number 9999-9999-9999-9999 not found", response.getBody().get(2).getError());
+        assertTrue(response.getBody().get(3).isSuccess());
+
+        Account first = restTemplate.getForEntity(BASE_URL.formatted(port) + "/" + ACCOUNT_NUMBER, Account.class).getBody();
+        Account second = restTemplate.getForEntity(BASE_URL.formatted(port) + "/" + SECOND_ACCOUNT_NUMBER, Account.class).getBody();
+        assertNotNull(first);
+        assertNotNull(second);
+        assertEquals(0, first.getBalance().compareTo(BigDecimal.valueOf(850)));
+        assertEquals(0, second.getBalance().compareTo(BigDecimal.valueOf(650)));
+    }
+
+    @Test
+    void testBulkImport() {
+        this.createAccount(ACCOUNT_NUMBER, BigDecimal.valueOf(1000));
+        String csv = """
+                accountNumber,balance
+                2222-0001,100.50
+                2222-0002,0
+                %s,5
+                2222-0001,7
+                2222-0003,not-a-number
+                "2222-0004",12
+                """.formatted(ACCOUNT_NUMBER);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv"));
+
+        ResponseEntity<BulkImportRS> response = restTemplate.postForEntity(
+                BASE_URL.formatted(port) + "/bulk", new HttpEntity<>(csv, headers), BulkImportRS.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        BulkImportRS report = response.getBody();
+        assertNotNull(report, "Response body should not be null");
+        assertEquals(6, report.getReceived());
+        assertEquals(3, report.getCreated());
+        assertEquals(List.of(ACCOUNT_NUMBER, "2222-0001"), report.getDuplicateAccountNumbers());
+        assertEquals(List.of(5L), report.getInvalidRecords());
+
+        Account imported = restTemplate.getForEntity(BASE_URL.formatted(port) + "/2222-0001", Account.class).getBody();
+        assertNotNull(imported);
+        assertEquals(0, imported.getBalance().compareTo(new BigDecimal("100.50")));
+        assertEquals(1, transactionHistoryRepository.findAll().stream()
+                .filter(history -> imported.getId().equals(history.getAccountIdTo()))
+                .count());
+    }
 }
@@ -0,0 +1,79 @@
+package com.example.picheTest.admission;
+
+import com.example.picheTest.config.AdmissionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountAdmissionTest {
+
+    @Test
+    void capsConcurrentRequestsPerAccountWithoutTouchingOthers() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setPerAccountConcurrency(2);
+        AccountAdmission admission = new AccountAdmission(properties, new SimpleMeterRegistry());
+
+        AccountAdmission.Permit first = admission.acquire("A");
+        AccountAdmission.Permit second = admission.acquire("A");
+        TooManyRequestsException refused = assertThrows(TooManyRequestsException.class, () -> admission.acquire("A"));
+        assertEquals(1, refused.getRetryAfterSeconds());
+        assertThrows(TooManyRequestsException.class, () -> admission.acquireAccounts("B", "A"));
+        assertDoesNotThrow(() -> admission.acquire("B").close());
+
+        first.close();
+        first.close();
+        admission.acquire("A").close();
+        second.close();
+        assertDoesNotThrow(() -> admission.acquireAccounts("A", "A").close());
+    }
+
+    @Test
+    void refusesBeyondTheBurstUntilTokensRefill() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setPerAccountConcurrency(0);
+        properties.setPerAccountRate(0.5);
+        properties.setPerAccountBurst(3);
+        AccountAdmission admission = new AccountAdmission(properties, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 3; i++) {
+            admission.acquire("A").close();
+        }
+        TooManyRequestsException refused = assertThrows(TooManyRequestsException.class, () -> admission.acquire("A"));
+        assertEquals(2, refused.getRetryAfterSeconds());
+        admission.acquire("B").close();
+    }
+
+    @Test
+    void globalLimitShrinksWhenLatencyRises() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setPerAccountConcurrency(0);
+        properties.setInitialLimit(20);
+        properties.setWindow(10);
+        AccountAdmission admission = new AccountAdmission(properties, new SimpleMeterRegistry());
+
+        List<AccountAdmission.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            permits.add(admission.acquire(null));
+        }
+        assertThrows(TooManyRequestsException.class, () -> admission.acquire(null));
+        permits.forEach(AccountAdmission.Permit::close);
+
+        AdaptiveLimit limit = new AdaptiveLimit(20, 5, 100, 2.0, 1.0, 10);
+        for (int i = 0; i < 50; i++) {
+            limit.sample(1_000_000, 20);
+        }
+        int grown = limit.current();
+        assertTrue(grown > 20, "limit grows while latency is steady: " + grown);
+        for (int i = 0; i < 50; i++) {
+            limit.sample(20_000_000, grown);
+        }
+        assertTrue(limit.current() < grown, "limit shrinks once latency climbs: " + limit.current());
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.picheTest.benchmark;
+
+import com.example.picheTest.service.AccountIdCache;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AccountIdCache} against an unbounded {@code ConcurrentHashMap<String, Long>} for account numbers drawn
+ * from a Zipf distribution over more accounts than the cache holds; a miss inserts the key, as the services do
+ * after falling back to the lookup by number. The {@code hit}/{@code miss} counters give the hit ratio and the
+ * tear-down prints both footprints. What a hit saves is measured against the database by
+ * {@code AccountIdCacheBenchmarkTest}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AccountIdCacheBenchmark {
+    private static final int DRAWS = 1 << 20;
+
+    @Param({"1000000"})
+    private int accounts;
+
+    @Param({"65536", "262144"})
+    private int capacity;
+
+    @Param({"1.0"})
+    private double skew;
+
+    private String[] numbers;
+    private int[] draws;
+    private AccountIdCache cache;
+    private ConcurrentHashMap<String, Long> map;
+
+    @Setup
+    public void setUp() {
+        numbers = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            numbers[i] = String.format("%04d-%04d-%04d-%04d", i / 1_000_000_000_000L, i / 100_000_000 % 10_000,
+                    i / 10_000 % 10_000, i % 10_000);
+        }
+        double[] cumulative = new double[accounts];
+        double total = 0;
+        for (int rank = 0; rank < accounts; rank++) {
+            total += 1 / Math.pow(rank + 1, skew);
+            cumulative[rank] = total;
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        draws = new int[DRAWS];
+        for (int i = 0; i < DRAWS; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            draws[i] = rank < 0 ? Math.min(-rank - 1, accounts - 1) : rank;
+        }
+        cache = new AccountIdCache(capacity, 8);
+        map = new ConcurrentHashMap<>();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Lookups {
+        public long hit;
+        public long miss;
+        private int next;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            hit = 0;
+            miss = 0;
+        }
+
+        int next(int[] draws) {
+            int draw = draws[next];
+            next = (next + 1) & (DRAWS - 1);
+            return draw;
+        }
+    }
+
+    @Benchmark
+    public long idCache(Lookups lookups) {
+        int account = lookups.next(draws);
+        long id = cache.get(numbers[account]);
+        if (id == AccountIdCache.ABSENT) {
+            lookups.miss++;
+            cache.put(numbers[account], account + 1);
+            return account + 1;
+        }
+        lookups.hit++;
+        return id;
+    }
+
+    @Benchmark
+    public long concurrentHashMap(Lookups lookups) {
+        int account = lookups.next(draws);
+        Long id = map.get(numbers[account]);
+        if (id == null) {
+            lookups.miss++;
+            // a copy, since a real request's account number would be a fresh string the map then retains
+            map.put(new String(numbers[account]), (long) account + 1);
+            return account + 1;
+        }
+        lookups.hit++;
+        return id;
+    }
+
+    @TearDown
+    public void printFootprint() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long withMap = runtime.totalMemory() - runtime.freeMemory();
+        int entries = map.size();
+        map = null;
+        System.gc();
+        long mapBytes = withMap - (runtime.totalMemory() - runtime.freeMemory());
+        System.out.printf("%nid cache: %d bytes fixed (%d slots); map: ~%d bytes for %d entries%n",
+                cache.footprintBytes(), capacity, mapBytes, entries);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.picheTest.benchmark;
+
+import com.example.picheTest.model.request.DepositRQ;
+import com.example.picheTest.model.request.TransferRQ;
+import com.example.picheTest.model.request.WithdrawRQ;
+import com.example.picheTest.repository.entity.Account;
+import com.example.picheTest.service.AccountService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-operation cost of the {@link AccountService} money movements with the database replaced by maps.
+ * Run with {@code -prof gc} for the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AccountServiceBenchmark {
+    private static final String FIRST = "1111-1111-1111-1111";
+    private static final String SECOND = "1111-1111-1111-1112";
+
+    private AccountService service;
+    private DepositRQ deposit;
+    private WithdrawRQ withdraw;
+    private TransferRQ transfer;
+    private TransferRQ transferBack;
+
+    @Setup
+    public void setUp() {
+        InMemoryAccountRepository repository = new InMemoryAccountRepository();
+        service = BenchmarkFixtures.accountService(repository, new BenchmarkFixtures.CountingHistoryWriter());
+        BenchmarkFixtures.account(repository, FIRST, new BigDecimal("1000000000.00"));
+        BenchmarkFixtures.account(repository, SECOND, new BigDecimal("1000000000.00"));
+        deposit = new DepositRQ(new BigDecimal("0.01"));
+        withdraw = new WithdrawRQ(new BigDecimal("0.01"));
+        transfer = new TransferRQ(FIRST, SECOND, new BigDecimal("12.34"));
+        transferBack = new TransferRQ(SECOND, FIRST, new BigDecimal("12.34"));
+    }
+
+    @Benchmark
+    public Account deposit() {
+        return service.deposit(FIRST, deposit);
+    }
+
+    @Benchmark
+    public Account withdraw() {
+        return service.withdraw(FIRST, withdraw);
+    }
+
+    @Benchmark
+    public boolean transfer() {
+        return service.transfer(transfer) & service.transfer(transferBack);
+    }
+}
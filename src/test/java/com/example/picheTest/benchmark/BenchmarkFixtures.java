@@ -0,0 +1,126 @@
+package com.example.picheTest.benchmark;
+
+import com.example.picheTest.config.DepositProperties;
+import com.example.picheTest.config.PaginationProperties;
+import com.example.picheTest.config.ReplicaProperties;
+import com.example.picheTest.config.ShardingProperties;
+import com.example.picheTest.config.SlotProperties;
+import com.example.picheTest.config.TransferProperties;
+import com.example.picheTest.mapper.EntityMapperImpl;
+import com.example.picheTest.metrics.AccountMetrics;
+import com.example.picheTest.replica.ReadYourWrites;
+import com.example.picheTest.repository.AccountRepository;
+import com.example.picheTest.repository.BalanceSlotRepository;
+import com.example.picheTest.repository.entity.Account;
+import com.example.picheTest.repository.entity.TransactionHistory;
+import com.example.picheTest.service.AccountIdCache;
+import com.example.picheTest.service.AccountMovements;
+import com.example.picheTest.service.AccountService;
+import com.example.picheTest.service.AtomicTransferEngine;
+import com.example.picheTest.service.BalanceSlots;
+import com.example.picheTest.service.DepositCombiner;
+import com.example.picheTest.service.TransactionHistoryWriter;
+import com.example.picheTest.service.TransactionalBalanceEngine;
+import com.example.picheTest.service.TransientRetry;
+import com.example.picheTest.sharding.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wires the services the way Spring does, but over in-memory stand-ins.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    static AccountService accountService(InMemoryAccountRepository store, TransactionHistoryWriter historyWriter) {
+        AccountRepository repository = store.proxy();
+        TransferProperties transferProperties = new TransferProperties();
+        AccountMetrics metrics = new AccountMetrics(new SimpleMeterRegistry());
+        TransientRetry retry = new TransientRetry(transferProperties, metrics);
+        ShardRouter shards = new ShardRouter(new ShardingProperties(), new NoOpTransactionManager());
+        BalanceSlots balanceSlots = new BalanceSlots(repository, new UnsplitSlotRepository(store), new SlotProperties());
+        // there is no JDBC repository to update by id, so the id cache stays disabled
+        AccountIdCache idCache = new AccountIdCache(0, 1);
+        AtomicTransferEngine transferEngine = new AtomicTransferEngine(repository, historyWriter,
+                retry, metrics, balanceSlots, idCache, new NoOpTransactionManager());
+        TransactionalBalanceEngine balanceEngine = new TransactionalBalanceEngine(repository, null, historyWriter,
+                metrics, balanceSlots, idCache, new NoOpTransactionManager());
+        DepositCombiner depositCombiner = new DepositCombiner(null, historyWriter, metrics, retry, balanceSlots,
+                idCache, new DepositProperties(), transferProperties, new NoOpTransactionManager());
+        AccountMovements movements = AccountMovements.builder()
+                .shards(shards)
+                .balanceEngine(balanceEngine)
+                .transferEngine(transferEngine)
+                .depositCombiner(depositCombiner)
+                .build();
+        return AccountService.builder()
+                .repository(repository)
+                .entityMapper(new EntityMapperImpl())
+                .historyWriter(historyWriter)
+                .balanceEngine(balanceEngine)
+                .movements(movements)
+                .balanceSlots(balanceSlots)
+                .transferProperties(transferProperties)
+                .paginationProperties(new PaginationProperties())
+                .objectMapper(objectMapper())
+                .metrics(metrics)
+                .readYourWrites(new ReadYourWrites(new ReplicaProperties()))
+                .idCache(idCache)
+                .shards(shards)
+                .build();
+    }
+
+    static Account account(InMemoryAccountRepository repository, String accountNumber, BigDecimal balance) {
+        Account account = new Account();
+        account.setAccountNumber(accountNumber);
+        account.setBalance(balance);
+        return repository.save(account);
+    }
+
+    /**
+     * No account is ever split, so the slot table is never touched and the data source never connects. A debit
+     * that its balance cannot cover still locks the account to look for slots; that finds the one balance.
+     */
+    static final class UnsplitSlotRepository extends BalanceSlotRepository {
+        private final InMemoryAccountRepository store;
+
+        UnsplitSlotRepository(InMemoryAccountRepository store) {
+            super(new DriverManagerDataSource());
+            this.store = store;
+        }
+
+        @Override
+        public long[] lockAll(long accountId) {
+            return store.findById(accountId).map(account -> new long[]{account.getBalanceCents()}).orElse(new long[0]);
+        }
+    }
+
+    /**
+     * Counts history rows instead of storing them, so memory stays flat however long the benchmark runs.
+     */
+    static final class CountingHistoryWriter implements TransactionHistoryWriter {
+        final LongAdder rows = new LongAdder();
+
+        @Override
+        public void record(TransactionHistory history) {
+            rows.increment();
+        }
+
+        @Override
+        public void recordAll(List<TransactionHistory> history) {
+            rows.add(history.size());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.picheTest.benchmark;
+
+import com.example.picheTest.mapper.EntityMapper;
+import com.example.picheTest.mapper.EntityMapperImpl;
+import com.example.picheTest.model.request.AccountCreateRQ;
+import com.example.picheTest.repository.entity.Account;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EntityMapperBenchmark {
+    private final EntityMapper mapper = new EntityMapperImpl();
+    private final AccountCreateRQ request = new AccountCreateRQ("1111-1111-1111-1111", new BigDecimal("1000.00"));
+
+    @Benchmark
+    public Account toAccount() {
+        return mapper.toAccount(request);
+    }
+}
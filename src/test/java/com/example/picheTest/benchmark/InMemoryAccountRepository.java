@@ -0,0 +1,128 @@
+package com.example.picheTest.benchmark;
+
+import com.example.picheTest.model.Money;
+import com.example.picheTest.repository.AccountRepository;
+import com.example.picheTest.repository.entity.Account;
+import org.springframework.data.domain.Limit;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for {@link AccountRepository} that keeps accounts in maps, for benchmarks that must not need a database.
+ * It implements only the methods the services call; {@link #proxy()} exposes them as the repository and answers
+ * every other method with {@link UnsupportedOperationException}. Row locks are not modelled: guarded updates are
+ * atomic per account, which is all the services rely on.
+ */
+final class InMemoryAccountRepository {
+    private final Map<Long, Account> byId = new ConcurrentHashMap<>();
+    private final Map<String, Account> byNumber = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    public Optional<Account> findByAccountNumber(String accountNumber) {
+        return Optional.ofNullable(byNumber.get(accountNumber));
+    }
+
+    public List<Account> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit) {
+        return byId.values().stream()
+                .filter(account -> account.getId() > id)
+                .sorted(Comparator.comparing(Account::getId))
+                .limit(limit.max())
+                .toList();
+    }
+
+    public Optional<Account> findById(Long id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    public List<Account> lockByAccountNumbers(Collection<String> accountNumbers) {
+        List<Account> accounts = new ArrayList<>(accountNumbers.size());
+        for (String accountNumber : accountNumbers) {
+            Account account = byNumber.get(accountNumber);
+            if (account != null) {
+                accounts.add(account);
+            }
+        }
+        accounts.sort(Comparator.comparing(Account::getId));
+        return accounts;
+    }
+
+    public List<Account> lockUnsplitByAccountNumbers(Collection<String> accountNumbers) {
+        return lockByAccountNumbers(accountNumbers).stream().filter(account -> account.getSlots() == 1).toList();
+    }
+
+    public List<Account> lockUnsplitByIds(Collection<Long> ids) {
+        List<Account> accounts = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Account account = byId.get(id);
+            if (account != null && account.getSlots() == 1) {
+                accounts.add(account);
+            }
+        }
+        accounts.sort(Comparator.comparing(Account::getId));
+        return accounts;
+    }
+
+    public int debit(Long id, long cents) {
+        Account account = byId.get(id);
+        synchronized (account) {
+            if (!Money.covers(account.getBalanceCents(), cents)) {
+                return 0;
+            }
+            account.setBalanceCents(Money.subtract(account.getBalanceCents(), cents));
+            return 1;
+        }
+    }
+
+    public int credit(Long id, long cents) {
+        Account account = byId.get(id);
+        synchronized (account) {
+            account.setBalanceCents(Money.add(account.getBalanceCents(), cents));
+            return 1;
+        }
+    }
+
+    public Account save(Account account) {
+        if (account.getId() == null) {
+            account.setId(ids.incrementAndGet());
+        }
+        byId.put(account.getId(), account);
+        byNumber.put(account.getAccountNumber(), account);
+        return account;
+    }
+
+    AccountRepository proxy() {
+        Map<String, Method> implemented = new HashMap<>();
+        for (Method method : InMemoryAccountRepository.class.getDeclaredMethods()) {
+            if (Modifier.isPublic(method.getModifiers())) {
+                implemented.put(method.getName() + "/" + method.getParameterCount(), method);
+            }
+        }
+        return (AccountRepository) Proxy.newProxyInstance(AccountRepository.class.getClassLoader(),
+                new Class<?>[]{AccountRepository.class}, (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.invoke(this, args);
+                    }
+                    Method target = implemented.get(method.getName() + "/" + method.getParameterCount());
+                    if (target == null) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    try {
+                        return target.invoke(this, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.picheTest.benchmark;
+
+import com.example.picheTest.model.request.AccountCreateRQ;
+import com.example.picheTest.model.request.DepositRQ;
+import com.example.picheTest.model.request.TransferRQ;
+import com.example.picheTest.repository.entity.Account;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request and response (de)serialization with the same Jackson defaults Spring Boot applies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonBenchmark {
+    private ObjectMapper objectMapper;
+    private Account account;
+    private String accountJson;
+    private String accountCreateJson;
+    private String depositJson;
+    private String transferJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = BenchmarkFixtures.objectMapper();
+        account = new Account();
+        account.setId(42L);
+        account.setAccountNumber("1111-1111-1111-1111");
+        account.setBalance(new BigDecimal("1500.25"));
+        accountJson = objectMapper.writeValueAsString(account);
+        accountCreateJson = objectMapper.writeValueAsString(new AccountCreateRQ("1111-1111-1111-1111", new BigDecimal("1000")));
+        depositJson = objectMapper.writeValueAsString(new DepositRQ(new BigDecimal("200.50")));
+        transferJson = objectMapper.writeValueAsString(new TransferRQ("1111-1111-1111-1111", "1111-1111-1111-1112", new BigDecimal("200")));
+    }
+
+    @Benchmark
+    public String serializeAccount() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(account);
+    }
+
+    @Benchmark
+    public Account deserializeAccount() throws JsonProcessingException {
+        return objectMapper.readValue(accountJson, Account.class);
+    }
+
+    @Benchmark
+    public AccountCreateRQ deserializeAccountCreate() throws JsonProcessingException {
+        return objectMapper.readValue(accountCreateJson, AccountCreateRQ.class);
+    }
+
+    @Benchmark
+    public DepositRQ deserializeDeposit() throws JsonProcessingException {
+        return objectMapper.readValue(depositJson, DepositRQ.class);
+    }
+
+    @Benchmark
+    public TransferRQ deserializeTransfer() throws JsonProcessingException {
+        return objectMapper.readValue(transferJson, TransferRQ.class);
+    }
+}
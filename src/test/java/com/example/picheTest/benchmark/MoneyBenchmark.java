@@ -0,0 +1,59 @@
+package com.example.picheTest.benchmark;
+
+import com.example.picheTest.model.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The balance arithmetic of one transfer (cover check, debit, credit) on {@link BigDecimal} versus {@link Money}.
+ * Run with {@code -prof gc} to compare allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MoneyBenchmark {
+    private BigDecimal fromBalance;
+    private BigDecimal toBalance;
+    private BigDecimal amount;
+    private long fromCents;
+    private long toCents;
+    private long amountCents;
+
+    @Setup
+    public void setUp() {
+        fromBalance = new BigDecimal("1000000.00");
+        toBalance = new BigDecimal("2500.50");
+        amount = new BigDecimal("12.34");
+        fromCents = Money.ofDecimal(fromBalance);
+        toCents = Money.ofDecimal(toBalance);
+        amountCents = Money.ofDecimal(amount);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalTransfer() {
+        if (fromBalance.compareTo(amount) >= 0) {
+            BigDecimal debited = fromBalance.subtract(amount);
+            BigDecimal credited = toBalance.add(amount);
+            return debited.add(credited);
+        }
+        return fromBalance;
+    }
+
+    @Benchmark
+    public long moneyTransfer() {
+        if (Money.covers(fromCents, amountCents)) {
+            long debited = Money.subtract(fromCents, amountCents);
+            long credited = Money.add(toCents, amountCents);
+            return debited + credited;
+        }
+        return fromCents;
+    }
+}
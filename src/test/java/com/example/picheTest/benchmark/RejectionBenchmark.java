@@ -0,0 +1,95 @@
+package com.example.picheTest.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.example.picheTest.api.RestExceptionHandler;
+import com.example.picheTest.config.ErrorLogProperties;
+import com.example.picheTest.error.BusinessException;
+import com.example.picheTest.error.InsufficientBalanceException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * One overdraft rejection from the throw site to the response entity: an {@link IllegalArgumentException} logged
+ * with {@code log.error("", e)}, as before, versus a stackless {@link BusinessException} through
+ * {@link RestExceptionHandler}. {@code depth} is the number of frames between the handler and the throw site.
+ * Log lines are formatted but written to a null stream, so file or console I/O is left out. Run with
+ * {@code -t 8 -prof gc} to see contention and allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RejectionBenchmark {
+    private static final String ACCOUNT_NUMBER = "1111-2222-3333-4444";
+    private static final Logger LEGACY_LOG = LoggerFactory.getLogger(RestExceptionHandler.class);
+
+    @Param({"20", "120"})
+    public int depth;
+
+    private RestExceptionHandler handler;
+
+    @Setup
+    public void setUp() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        ch.qos.logback.classic.Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.detachAndStopAllAppenders();
+        root.setLevel(Level.INFO);
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d %-5level [%thread] %logger - %msg%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> sink = new OutputStreamAppender<>();
+        sink.setContext(context);
+        sink.setEncoder(encoder);
+        sink.setOutputStream(OutputStream.nullOutputStream());
+        sink.start();
+        root.addAppender(sink);
+
+        handler = new RestExceptionHandler(new ErrorLogProperties());
+    }
+
+    @Benchmark
+    public ResponseEntity<String> stackTraceRejection() {
+        try {
+            fail(depth, () -> new IllegalArgumentException("Account " + ACCOUNT_NUMBER + " does not have sufficient balance"));
+            throw new AssertionError();
+        } catch (IllegalArgumentException e) {
+            LEGACY_LOG.error("", e);
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(e.getMessage());
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<String> businessRejection() {
+        try {
+            fail(depth, () -> new InsufficientBalanceException(ACCOUNT_NUMBER));
+            throw new AssertionError();
+        } catch (BusinessException e) {
+            return handler.handleBusinessException(e);
+        }
+    }
+
+    private static void fail(int depth, Supplier<RuntimeException> failure) {
+        if (depth == 0) {
+            throw failure.get();
+        }
+        fail(depth - 1, failure);
+    }
+}
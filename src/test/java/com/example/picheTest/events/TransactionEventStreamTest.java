@@ -0,0 +1,173 @@
+package com.example.picheTest.events;
+
+import com.example.picheTest.AbstractIntegrationTest;
+import com.example.picheTest.model.request.AccountCreateRQ;
+import com.example.picheTest.model.request.DepositRQ;
+import com.example.picheTest.model.request.WithdrawRQ;
+import com.example.picheTest.model.response.TransactionEventRS;
+import com.example.picheTest.repository.TransactionEventRepository;
+import com.example.picheTest.repository.entity.Account;
+import com.example.picheTest.repository.entity.TransactionType;
+import com.example.picheTest.service.AccountService;
+import com.example.picheTest.sharding.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionEventStreamTest extends AbstractIntegrationTest {
+    @Autowired
+    private AccountService service;
+
+    @Autowired
+    private TransactionEventRelay relay;
+
+    @Autowired
+    private TransactionEventRepository repository;
+
+    @Autowired
+    private ShardRouter shards;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void streamsFilteredEventsAndResumesAfterLastEventId() throws Exception {
+        service.createAccount(new AccountCreateRQ("EVT-A", new BigDecimal("10.00")));
+        service.createAccount(new AccountCreateRQ("EVT-B", new BigDecimal("10.00")));
+        service.deposit("EVT-A", new DepositRQ(new BigDecimal("5.00")));
+        relay.relay();
+
+        List<TransactionEventRS> received = new ArrayList<>();
+        try (Stream<String> lines = open("?account=EVT-A&after=0", null)) {
+            Iterator<String> iterator = lines.iterator();
+            received.add(next(iterator));
+            received.add(next(iterator));
+
+            service.deposit("EVT-B", new DepositRQ(new BigDecimal("1.00")));
+            service.withdraw("EVT-A", new WithdrawRQ(new BigDecimal("3.00")));
+            relay.relay();
+            received.add(next(iterator));
+        }
+
+        assertEquals(List.of(TransactionType.DEPOSIT, TransactionType.DEPOSIT, TransactionType.WITHDRAW),
+                received.stream().map(TransactionEventRS::getTransactionType).toList());
+        assertEquals("EVT-A", received.get(0).getToAccountNumber());
+        assertEquals(0, new BigDecimal("3.00").compareTo(received.get(2).getAmount()));
+        assertEquals("EVT-A", received.get(2).getFromAccountNumber());
+        assertTrue(received.get(0).getOffset() < received.get(1).getOffset()
+                && received.get(1).getOffset() < received.get(2).getOffset());
+
+        try (Stream<String> lines = open("?account=EVT-A", received.get(0).getOffset())) {
+            Iterator<String> iterator = lines.iterator();
+            assertEquals(received.get(1).getOffset(), next(iterator).getOffset());
+            assertEquals(received.get(2).getOffset(), next(iterator).getOffset());
+        }
+    }
+
+    @Test
+    void slowSubscriberCatchesUpFromOutbox() throws Exception {
+        Account account = service.createAccount(new AccountCreateRQ("EVT-SLOW", BigDecimal.ZERO));
+        relay.relay();
+        EventSubscription subscription = new EventSubscription(repository, shards, Set.of(account.getId()), null,
+                new long[]{repository.lastOffset()}, 4, 3, Duration.ofSeconds(1));
+        for (int i = 1; i <= 20; i++) {
+            service.deposit("EVT-SLOW", new DepositRQ(BigDecimal.valueOf(i)));
+        }
+        relay.relay();
+
+        int refused = 0;
+        for (TransactionEventRS event : repository.findAfter(0, Set.of(account.getId()), 100)) {
+            if (!subscription.offer(0, event)) {
+                refused++;
+            }
+        }
+        assertEquals(1, refused, "Only the overflowing offer is refused; later ones are dropped silently");
+
+        List<TransactionEventRS> delivered = new ArrayList<>();
+        CompletableFuture.runAsync(() -> {
+            try {
+                subscription.run(new EventSubscription.Sink() {
+                    @Override
+                    public void send(TransactionEventRS event, String position) {
+                        delivered.add(event);
+                        if (delivered.size() == 20) {
+                            subscription.close();
+                        }
+                    }
+
+                    @Override
+                    public void heartbeat() {
+                        subscription.close();
+                    }
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).get(10, TimeUnit.SECONDS);
+
+        assertEquals(20, delivered.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(0, BigDecimal.valueOf(i + 1).compareTo(delivered.get(i).getAmount()));
+        }
+    }
+
+    @Test
+    void positionHasOneOffsetPerShard() {
+        assertArrayEquals(new long[]{12, 0, 7}, EventSubscription.parsePosition("12.0.7", 3));
+        assertThrows(IllegalArgumentException.class, () -> EventSubscription.parsePosition("12", 3));
+        assertThrows(IllegalArgumentException.class, () -> EventSubscription.parsePosition("12.x.7", 3));
+        assertThrows(IllegalArgumentException.class, () -> EventSubscription.parsePosition("-1", 1));
+    }
+
+    private Stream<String> open(String query, Long lastEventId) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/accounts/events" + query));
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", String.valueOf(lastEventId));
+        }
+        HttpResponse<Stream<String>> response = HttpClient.newHttpClient()
+                .sendAsync(request.build(), HttpResponse.BodyHandlers.ofLines())
+                .get(10, TimeUnit.SECONDS);
+        assertEquals(200, response.statusCode());
+        return response.body();
+    }
+
+    private TransactionEventRS next(Iterator<String> lines) throws Exception {
+        String id = null;
+        while (lines.hasNext()) {
+            String line = lines.next();
+            if (line.startsWith("id:")) {
+                id = line.substring(3);
+            } else if (line.startsWith("data:")) {
+                TransactionEventRS event = objectMapper.readValue(line.substring(5), TransactionEventRS.class);
+                assertEquals(String.valueOf(event.getOffset()), id);
+                return event;
+            }
+        }
+        assertNull(id, "Stream ended mid-event");
+        throw new AssertionError("Stream ended");
+    }
+}
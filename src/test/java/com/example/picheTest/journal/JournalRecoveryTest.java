@@ -0,0 +1,67 @@
+package com.example.picheTest.journal;
+
+import com.example.picheTest.AbstractIntegrationTest;
+import com.example.picheTest.config.JournalProperties;
+import com.example.picheTest.repository.TransactionHistoryJdbcRepository;
+import com.example.picheTest.repository.entity.TransactionHistory;
+import com.example.picheTest.repository.entity.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A process that dies after journaling a transaction's rows, whether the transaction then committed or rolled
+ * back, and before any abort marker reached the journal.
+ */
+class JournalRecoveryTest extends AbstractIntegrationTest {
+    @TempDir
+    Path directory;
+
+    @Autowired
+    private TransactionHistoryJdbcRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void replaysOnlyRowsOfCommittedTransactions() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        long committed = transaction.execute(status -> repository.currentTransactionId());
+        long rolledBack = transaction.execute(status -> {
+            status.setRollbackOnly();
+            return repository.currentTransactionId();
+        });
+        long committedId = repository.reserveIdBlock();
+
+        TransactionJournal journal = new TransactionJournal(directory, 1024 * 1024);
+        journal.recover();
+        journal.reset();
+        journal.append(row(committedId), committed);
+        journal.append(row(committedId + 1), rolledBack);
+        journal.awaitDurable(journal.append(row(committedId + 2), 0));
+        journal.close();
+
+        JournalProperties properties = new JournalProperties();
+        properties.setDirectory(directory);
+        new JournalTransactionHistoryWriter(repository, properties).close();
+
+        assertEquals(List.of(committedId, committedId + 2), jdbcTemplate.queryForList(
+                "SELECT id FROM transaction_history WHERE id >= ? ORDER BY id", Long.class, committedId));
+    }
+
+    private static TransactionHistory row(long id) {
+        return new TransactionHistory(id, null, 1L, 100, TransactionType.DEPOSIT, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.picheTest.journal;
+
+import com.example.picheTest.model.Money;
+import com.example.picheTest.repository.entity.TransactionHistory;
+import com.example.picheTest.repository.entity.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TransactionJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversRowsThatWereNotAborted() throws IOException {
+        try (TransactionJournal journal = new TransactionJournal(directory, 1024 * 1024)) {
+            journal.recover();
+            journal.reset();
+            TransactionJournal.Position first = journal.append(row(50, 1L, null, TransactionType.WITHDRAW, "12.34"), 7);
+            journal.append(row(51, null, 2L, TransactionType.DEPOSIT, "100"), 8);
+            journal.abort(row(50, 1L, null, TransactionType.WITHDRAW, "12.34"));
+            journal.released(first);
+            journal.awaitDurable(journal.append(row(52, 1L, 2L, TransactionType.TRANSFER, "0.01"), 0));
+        }
+
+        List<TransactionHistory> recovered = new TransactionJournal(directory, 1024 * 1024).recover().stream()
+                .map(TransactionJournal.Journaled::history)
+                .toList();
+
+        assertEquals(2, recovered.size());
+        assertEquals(51L, recovered.get(0).getId());
+        assertNull(recovered.get(0).getAccountIdFrom());
+        assertEquals(0, recovered.get(0).getAmount().compareTo(BigDecimal.valueOf(100)));
+        assertEquals(52L, recovered.get(1).getId());
+        assertEquals(TransactionType.TRANSFER, recovered.get(1).getTransactionType());
+        assertEquals(LocalDateTime.of(2024, 1, 2, 3, 4, 5, 123_456_000), recovered.get(1).getCreatedAt());
+    }
+
+    @Test
+    void abortMarkerIsDurableBeforeTheProcessDies() throws IOException {
+        TransactionJournal journal = new TransactionJournal(directory, 1024 * 1024);
+        journal.recover();
+        journal.reset();
+        TransactionHistory rolledBack = row(50, 1L, null, TransactionType.WITHDRAW, "1");
+        journal.awaitDurable(journal.append(rolledBack, 9));
+        TransactionJournal.Position marker = journal.abort(rolledBack);
+        journal.awaitDurable(marker);
+        // crash: the journal is never closed and the row is never released
+
+        List<TransactionJournal.Journaled> recovered = new TransactionJournal(directory, 1024 * 1024).recover();
+
+        assertEquals(List.of(), recovered);
+    }
+
+    @Test
+    void ignoresTornTail() throws IOException {
+        try (TransactionJournal journal = new TransactionJournal(directory, 1024 * 1024)) {
+            journal.recover();
+            journal.reset();
+            journal.awaitDurable(journal.append(row(50, null, 1L, TransactionType.DEPOSIT, "5"), 0));
+        }
+        try (Stream<Path> files = Files.list(directory);
+             FileChannel channel = FileChannel.open(files.findFirst().orElseThrow(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[TransactionJournal.ENTRY_SIZE / 2]));
+        }
+
+        assertEquals(1, new TransactionJournal(directory, 1024 * 1024).recover().size());
+    }
+
+    private static TransactionHistory row(long id, Long from, Long to, TransactionType type, String amount) {
+        return new TransactionHistory(id, from, to, Money.ofDecimal(new BigDecimal(amount)), type, LocalDateTime.of(2024, 1, 2, 3, 4, 5, 123_456_789));
+    }
+}
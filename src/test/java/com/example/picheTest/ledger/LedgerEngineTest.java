@@ -0,0 +1,111 @@
+package com.example.picheTest.ledger;
+
+import com.example.picheTest.AbstractIntegrationTest;
+import com.example.picheTest.config.LedgerProperties;
+import com.example.picheTest.metrics.AccountMetrics;
+import com.example.picheTest.model.request.AccountCreateRQ;
+import com.example.picheTest.model.request.TransferRQ;
+import com.example.picheTest.repository.AccountJdbcRepository;
+import com.example.picheTest.repository.TransactionHistoryJdbcRepository;
+import com.example.picheTest.service.AccountService;
+import com.example.picheTest.service.TransientRetry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@TestPropertySource(properties = {"account.transfer.engine=ledger", "account.ledger.shards=4"})
+class LedgerEngineTest extends AbstractIntegrationTest {
+    private static final int ACCOUNTS = 12;
+
+    @Autowired
+    private AccountService service;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AccountJdbcRepository accountJdbcRepository;
+
+    @Autowired
+    private TransactionHistoryJdbcRepository historyJdbcRepository;
+
+    @Autowired
+    private TransientRetry retry;
+
+    @Autowired
+    private AccountMetrics metrics;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentCrossShardTransfersConserveMoneyAndSurviveRestart() throws Exception {
+        for (int i = 0; i < ACCOUNTS; i++) {
+            service.createAccount(new AccountCreateRQ(accountNumber(i), BigDecimal.valueOf(100)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int seed = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    int from = (seed + i) % ACCOUNTS;
+                    try {
+                        service.transfer(new TransferRQ(accountNumber(from), accountNumber((from + 1 + i % 5) % ACCOUNTS),
+                                BigDecimal.valueOf(7)));
+                    } catch (IllegalArgumentException e) {
+                        // insufficient balance is expected once money piles up elsewhere
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(0, new BigDecimal(ACCOUNTS * 100).compareTo(totalBalance()));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM accounts WHERE balance < 0", Integer.class));
+        BigDecimal folded = jdbcTemplate.queryForObject("""
+                SELECT coalesce(sum(CASE WHEN account_id_to IS NOT NULL THEN amount ELSE 0 END), 0)
+                     - coalesce(sum(CASE WHEN account_id_from IS NOT NULL THEN amount ELSE 0 END), 0)
+                FROM transaction_history""", BigDecimal.class);
+        assertEquals(0, totalBalance().compareTo(folded));
+
+        LedgerProperties properties = new LedgerProperties();
+        properties.setShards(3);
+        LedgerEngine restarted = new LedgerEngine(accountJdbcRepository, historyJdbcRepository, retry, metrics,
+                properties, transactionManager);
+        try {
+            for (int i = 0; i < ACCOUNTS; i++) {
+                String accountNumber = accountNumber(i);
+                long stored = service.getAccount(accountNumber).getBalanceCents();
+                assertThrows(IllegalArgumentException.class, () -> restarted.withdraw(accountNumber, stored + 1));
+                assertEquals(0, restarted.withdraw(accountNumber, stored).getBalanceCents());
+            }
+        } finally {
+            restarted.close();
+        }
+    }
+
+    private BigDecimal totalBalance() {
+        return jdbcTemplate.queryForObject("SELECT sum(balance) FROM accounts WHERE account_number LIKE 'LEDGER-%'", BigDecimal.class);
+    }
+
+    private static String accountNumber(int i) {
+        return "LEDGER-" + i;
+    }
+}
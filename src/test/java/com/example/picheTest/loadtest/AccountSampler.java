@@ -0,0 +1,40 @@
+package com.example.picheTest.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks account indexes from a Zipf distribution: with {@code skew = 0} every account is equally likely, and
+ * larger values concentrate traffic on the first few ("hot") accounts.
+ */
+final class AccountSampler {
+    private final double[] cumulative;
+
+    AccountSampler(int accounts, double skew) {
+        cumulative = new double[accounts];
+        double sum = 0;
+        for (int i = 0; i < accounts; i++) {
+            sum += 1 / Math.pow(i + 1, skew);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < accounts; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    int next() {
+        int index = Arrays.binarySearch(cumulative, ThreadLocalRandom.current().nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+
+    int nextOtherThan(int excluded) {
+        if (cumulative.length < 2) {
+            throw new IllegalStateException("Transfers need at least two accounts");
+        }
+        int index;
+        do {
+            index = next();
+        } while (index == excluded);
+        return index;
+    }
+}
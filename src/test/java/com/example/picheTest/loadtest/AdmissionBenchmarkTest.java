@@ -0,0 +1,63 @@
+package com.example.picheTest.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Replays the Postman profile against uniformly chosen accounts while 256 more clients flood a single account,
+ * with and without admission control, and compares the p99 of everybody else.
+ */
+@Slf4j
+@Tag("benchmark")
+class AdmissionBenchmarkTest {
+
+    @Test
+    void otherAccountsKeepTheirLatencyWhileOneIsFlooded() throws Exception {
+        LoadReport quiet = run(0, true);
+        LoadReport unprotected = run(256, false);
+        LoadReport admitted = run(256, true);
+
+        log.info("no attack:\n{}", quiet.format());
+        log.info("attack without admission control:\n{}", unprotected.format());
+        log.info("attack with admission control:\n{}", admitted.format());
+        log.info("worst p99 of the other accounts: {} ms quiet, {} ms unprotected, {} ms with admission control",
+                worstP99(quiet) / 1000.0, worstP99(unprotected) / 1000.0, worstP99(admitted) / 1000.0);
+
+        long shed = 0;
+        for (Map.Entry<String, LoadReport.Endpoint> endpoint : admitted.endpoints().entrySet()) {
+            LoadReport.Endpoint outcome = endpoint.getValue();
+            assertEquals(0, outcome.serverErrors.sum() + outcome.ioErrors.sum(),
+                    endpoint.getKey() + " must not fail under admission control");
+            if (endpoint.getKey().startsWith(LoadGenerator.ATTACK)) {
+                shed += outcome.clientErrors.sum();
+            }
+        }
+        assertTrue(shed > 0, "the flood must be answered with 429");
+        assertTrue(worstP99(admitted) < worstP99(unprotected),
+                "admission control must keep the flood from other accounts' tail latency");
+    }
+
+    private static LoadReport run(int attackers, boolean admission) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(
+                "--db=testcontainers", "--concurrency=32", "--attackers=" + attackers, "--accounts=200", "--skew=0",
+                "--warmup=5s", "--duration=20s", "--spring.threads.virtual.enabled=true",
+                "--account.admission.enabled=" + admission);
+        try (LoadGenerator.Target target = LoadGenerator.Target.open(config)) {
+            return new LoadGenerator(config).run(target.baseUri());
+        }
+    }
+
+    private static long worstP99(LoadReport report) {
+        return report.endpoints().entrySet().stream()
+                .filter(endpoint -> !endpoint.getKey().startsWith(LoadGenerator.ATTACK))
+                .mapToLong(endpoint -> endpoint.getValue().percentileMicros(0.99))
+                .max()
+                .orElse(0);
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.picheTest.loadtest;
+
+import com.example.picheTest.PicheTestApplication;
+import com.example.picheTest.model.request.AccountCreateRQ;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load generator. Seeds accounts, then replays a request profile (the Postman collection or a
+ * JSONL file, see {@link RequestTemplate}) from {@code concurrency} workers with Zipf-skewed account selection,
+ * and reports throughput, latency percentiles and error rates per endpoint. With {@code --attackers} that many
+ * more workers flood a single extra account, reported under {@code attack:} endpoints.
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.picheTest.loadtest.LoadGenerator \
+ *     -Dexec.args="--db=testcontainers --concurrency=64 --accounts=1000 --skew=1.2 --duration=60s"
+ * </pre>
+ * Without {@code --target} the application is started in-process on a random port against {@code --db}
+ * ({@code testcontainers}, {@code compose} or a JDBC url).
+ */
+public final class LoadGenerator {
+    private static final String ACCOUNT_FORMAT = "LT-%08d";
+    private static final String ATTACKED_ACCOUNT = "LT-ATTACKED";
+    static final String ATTACK = "attack: ";
+
+    private final LoadTestConfig config;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    // accounts created by the profile itself must not collide with earlier runs against the same database
+    private final String runId = "LT-" + Long.toString(System.currentTimeMillis(), 36) + "-";
+    private final AtomicLong createdAccounts = new AtomicLong();
+
+    LoadGenerator(LoadTestConfig config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        try (Target target = Target.open(config)) {
+            LoadReport report = new LoadGenerator(config).run(target.baseUri());
+            System.out.printf("%d workers, %d accounts, skew %.2f, %.1fs measured%n%n",
+                    config.concurrency(), config.accounts(), config.skew(), report.seconds());
+            System.out.print(report.format());
+        }
+    }
+
+    LoadReport run(URI baseUri) throws InterruptedException {
+        List<RequestTemplate> templates = config.profile().toString().endsWith(".jsonl")
+                ? RequestTemplate.fromJsonLines(config.profile(), objectMapper)
+                : RequestTemplate.fromPostman(config.profile(), objectMapper);
+        if (templates.isEmpty()) {
+            throw new IllegalArgumentException(config.profile() + " contains no requests");
+        }
+        List<String> accounts = seedAccounts(baseUri);
+        AccountSampler sampler = new AccountSampler(accounts.size(), config.skew());
+        // attackers flood one more account with the requests that address a single account
+        List<RequestTemplate> attacks = templates.stream()
+                .filter(template -> template.path().contains("{account}"))
+                .toList();
+        List<String> attacked = List.of();
+        if (config.attackers() > 0) {
+            if (attacks.isEmpty()) {
+                throw new IllegalArgumentException(config.profile() + " has no request for a single {account}");
+            }
+            attacked = List.of(seed(baseUri, ATTACKED_ACCOUNT));
+        }
+
+        LoadReport warmup = new LoadReport();
+        LoadReport measured = new LoadReport();
+        templates.forEach(template -> {
+            warmup.endpoint(template.name());
+            measured.endpoint(template.name());
+        });
+        if (config.attackers() > 0) {
+            attacks.forEach(template -> {
+                warmup.endpoint(ATTACK + template.name());
+                measured.endpoint(ATTACK + template.name());
+            });
+        }
+        long start = System.nanoTime();
+        long measureFrom = start + config.warmup().toNanos();
+        long measureUntil = measureFrom + config.duration().toNanos();
+
+        ExecutorService workers = Executors.newFixedThreadPool(config.concurrency() + config.attackers());
+        for (int worker = 0; worker < config.concurrency(); worker++) {
+            workers.execute(() -> replay(baseUri, templates, "", sampler, accounts,
+                    warmup, measured, measureFrom, measureUntil));
+        }
+        AccountSampler attackSampler = new AccountSampler(1, 0);
+        for (int worker = 0; worker < config.attackers(); worker++) {
+            List<String> target = attacked;
+            workers.execute(() -> replay(baseUri, attacks, ATTACK, attackSampler, target,
+                    warmup, measured, measureFrom, measureUntil));
+        }
+        workers.shutdown();
+        workers.awaitTermination(config.warmup().plus(config.duration()).toSeconds() + 60, TimeUnit.SECONDS);
+        measured.finish(Math.min(System.nanoTime(), measureUntil) - measureFrom);
+        return measured;
+    }
+
+    private void replay(URI baseUri, List<RequestTemplate> templates, String prefix, AccountSampler sampler,
+                        List<String> accounts, LoadReport warmup, LoadReport measured,
+                        long measureFrom, long measureUntil) {
+        int[] cumulativeWeights = new int[templates.size()];
+        int totalWeight = 0;
+        for (int i = 0; i < templates.size(); i++) {
+            totalWeight += templates.get(i).weight();
+            cumulativeWeights[i] = totalWeight;
+        }
+        long now;
+        while ((now = System.nanoTime()) < measureUntil) {
+            int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+            int index = 0;
+            while (cumulativeWeights[index] <= pick) {
+                index++;
+            }
+            RequestTemplate template = templates.get(index);
+            LoadReport report = now < measureFrom ? warmup : measured;
+            String newAccount = runId + createdAccounts.incrementAndGet();
+            HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(
+                            template.render(template.path(), sampler, accounts, newAccount)))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .method(template.method(), bodyOf(template.render(template.body(), sampler, accounts, newAccount)))
+                    .build();
+            long sent = System.nanoTime();
+            int status;
+            try {
+                status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException e) {
+                status = -1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            report.endpoint(prefix + template.name()).record(status, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sent));
+        }
+    }
+
+    private List<String> seedAccounts(URI baseUri) {
+        List<String> accounts = new ArrayList<>(config.accounts());
+        for (int i = 0; i < config.accounts(); i++) {
+            accounts.add(seed(baseUri, ACCOUNT_FORMAT.formatted(i)));
+        }
+        return List.copyOf(accounts);
+    }
+
+    private String seed(URI baseUri, String accountNumber) {
+        try {
+            String body = objectMapper.writeValueAsString(new AccountCreateRQ(accountNumber, config.openingBalance()));
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(baseUri.resolve("/accounts"))
+                    .header("Content-Type", "application/json")
+                    .POST(bodyOf(body))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            // 422 means the account survived a previous run against the same database
+            if (response.statusCode() >= 300 && response.statusCode() != 422) {
+                throw new IllegalStateException("Seeding " + accountNumber + " failed: " + response.statusCode()
+                        + " " + response.body());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return accountNumber;
+    }
+
+    private static HttpRequest.BodyPublisher bodyOf(String body) {
+        return body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Either an externally running service or one started in-process together with its database.
+     */
+    record Target(URI baseUri, ConfigurableApplicationContext context, PostgreSQLContainer<?> container)
+            implements AutoCloseable {
+
+        static Target open(LoadTestConfig config) {
+            if (config.target() != null) {
+                return new Target(config.target(), null, null);
+            }
+            PostgreSQLContainer<?> container = null;
+            String url = config.database();
+            String schema = "schema-local.sql";
+            if ("testcontainers".equals(url)) {
+                container = new PostgreSQLContainer<>(DockerImageName.parse(PostgreSQLContainer.IMAGE + ":15.3-bullseye"))
+                        .withDatabaseName("loadtest")
+                        .withUsername(config.databaseUser())
+                        .withPassword(config.databasePassword());
+                container.start();
+                url = container.getJdbcUrl();
+                schema = "db/schema.sql";
+            } else if ("compose".equals(url)) {
+                url = "jdbc:postgresql://localhost:5432/piche";
+            }
+            applySchemaIfMissing(url, config, new ClassPathResource(schema));
+
+            List<String> args = new ArrayList<>(List.of(
+                    "--spring.datasource.url=" + url,
+                    "--spring.datasource.username=" + config.databaseUser(),
+                    "--spring.datasource.password=" + config.databasePassword(),
+                    "--server.port=0"));
+            args.addAll(config.appArgs());
+            ConfigurableApplicationContext context = SpringApplication.run(PicheTestApplication.class, args.toArray(String[]::new));
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            return new Target(URI.create("http://localhost:" + port), context, container);
+        }
+
+        private static void applySchemaIfMissing(String url, LoadTestConfig config, Resource schema) {
+            try (Connection connection = DriverManager.getConnection(url, config.databaseUser(), config.databasePassword());
+                 Statement statement = connection.createStatement()) {
+                try (ResultSet existing = statement.executeQuery("SELECT to_regclass('accounts')")) {
+                    if (existing.next() && existing.getString(1) != null) {
+                        return;
+                    }
+                }
+                statement.executeUpdate(schema.getContentAsString(StandardCharsets.UTF_8));
+            } catch (SQLException | IOException e) {
+                throw new IllegalStateException("Could not prepare " + url, e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (context != null) {
+                context.close();
+            }
+            if (container != null) {
+                container.stop();
+            }
+        }
+    }
+}
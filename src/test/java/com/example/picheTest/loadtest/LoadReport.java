@@ -0,0 +1,78 @@
+package com.example.picheTest.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint outcome counts and latency histograms of one measured window.
+ */
+final class LoadReport {
+    private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+    private long elapsedNanos;
+
+    Endpoint endpoint(String name) {
+        return endpoints.computeIfAbsent(name, key -> new Endpoint());
+    }
+
+    Map<String, Endpoint> endpoints() {
+        return endpoints;
+    }
+
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    double seconds() {
+        return elapsedNanos / 1e9;
+    }
+
+    String format() {
+        StringBuilder out = new StringBuilder();
+        out.append("%-36s %10s %10s %9s %9s %9s %8s %8s %8s%n".formatted(
+                "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "4xx %", "5xx %", "io %"));
+        endpoints.forEach((name, endpoint) -> {
+            long total = endpoint.latency.count();
+            out.append("%-36s %10d %10.1f %9.2f %9.2f %9.2f %8.2f %8.2f %8.2f%n".formatted(
+                    name, total, total / seconds(),
+                    endpoint.latency.percentile(0.5) / 1000.0,
+                    endpoint.latency.percentile(0.99) / 1000.0,
+                    endpoint.latency.percentile(0.999) / 1000.0,
+                    percent(endpoint.clientErrors.sum(), total),
+                    percent(endpoint.serverErrors.sum(), total),
+                    percent(endpoint.ioErrors.sum(), total)));
+        });
+        return out.toString();
+    }
+
+    private static double percent(long part, long total) {
+        return total == 0 ? 0 : 100.0 * part / total;
+    }
+
+    static final class Endpoint {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder clientErrors = new LongAdder();
+        final LongAdder serverErrors = new LongAdder();
+        final LongAdder ioErrors = new LongAdder();
+
+        void record(int status, long micros) {
+            latency.record(micros);
+            if (status >= 500) {
+                serverErrors.increment();
+            } else if (status >= 400) {
+                clientErrors.increment();
+            } else if (status < 0) {
+                ioErrors.increment();
+            }
+        }
+
+        double errorRate() {
+            long total = latency.count();
+            return percent(clientErrors.sum() + serverErrors.sum() + ioErrors.sum(), total) / 100;
+        }
+
+        long percentileMicros(double quantile) {
+            return latency.percentile(quantile);
+        }
+    }
+}
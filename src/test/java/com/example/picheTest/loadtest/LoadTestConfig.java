@@ -0,0 +1,63 @@
+package com.example.picheTest.loadtest;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Load generator settings, parsed from {@code --key=value} arguments. Arguments starting with
+ * {@code --spring.}, {@code --server.} or {@code --account.} are passed to the application when the generator
+ * starts it itself.
+ */
+record LoadTestConfig(URI target, String database, String databaseUser, String databasePassword, Path profile,
+                      int concurrency, int attackers, int accounts, double skew, BigDecimal openingBalance,
+                      Duration warmup, Duration duration, List<String> appArgs) {
+
+    static LoadTestConfig parse(String... args) {
+        URI target = null;
+        String database = "testcontainers";
+        String databaseUser = "postgres";
+        String databasePassword = "postgres";
+        Path profile = Path.of("Piche test.postman_collection.json");
+        int concurrency = 32;
+        int attackers = 0;
+        int accounts = 1_000;
+        double skew = 1.0;
+        BigDecimal openingBalance = new BigDecimal("1000000");
+        Duration warmup = Duration.ofSeconds(10);
+        Duration duration = Duration.ofSeconds(30);
+        List<String> appArgs = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.startsWith("--spring.") || arg.startsWith("--server.") || arg.startsWith("--account.")) {
+                appArgs.add(arg);
+                continue;
+            }
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --key=value but got " + arg);
+            }
+            String value = arg.substring(separator + 1);
+            switch (arg.substring(2, separator)) {
+                case "target" -> target = URI.create(value);
+                case "db" -> database = value;
+                case "db-user" -> databaseUser = value;
+                case "db-password" -> databasePassword = value;
+                case "profile" -> profile = Path.of(value);
+                case "concurrency" -> concurrency = Integer.parseInt(value);
+                case "attackers" -> attackers = Integer.parseInt(value);
+                case "accounts" -> accounts = Integer.parseInt(value);
+                case "skew" -> skew = Double.parseDouble(value);
+                case "opening-balance" -> openingBalance = new BigDecimal(value);
+                case "warmup" -> warmup = Duration.parse("PT" + value.toUpperCase());
+                case "duration" -> duration = Duration.parse("PT" + value.toUpperCase());
+                default -> throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        return new LoadTestConfig(target, database, databaseUser, databasePassword, profile, concurrency, attackers,
+                accounts, skew, openingBalance, warmup, duration, List.copyOf(appArgs));
+    }
+}
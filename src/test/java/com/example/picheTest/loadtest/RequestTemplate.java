@@ -0,0 +1,107 @@
+package com.example.picheTest.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * One request shape of a load profile. Paths and bodies may contain the placeholders {@code {account}},
+ * {@code {from}}, {@code {to}} (sampled existing accounts) and {@code {newAccount}} (a fresh account number).
+ */
+record RequestTemplate(String name, String method, String path, String body, int weight) {
+    private static final Pattern ACCOUNT_SEGMENT = Pattern.compile("^/accounts/(?!transfer$|transfers/)([^/]+)");
+
+    /**
+     * Reads a Postman v2 collection, turning the concrete account numbers it was recorded with into placeholders.
+     */
+    static List<RequestTemplate> fromPostman(Path collection, ObjectMapper objectMapper) {
+        List<RequestTemplate> templates = new ArrayList<>();
+        for (JsonNode item : read(collection, objectMapper).path("item")) {
+            JsonNode request = item.path("request");
+            String url = request.path("url").isTextual() ? request.path("url").asText() : request.path("url").path("raw").asText();
+            String path = ACCOUNT_SEGMENT.matcher(url.replace("{{url}}", "")).replaceFirst("/accounts/{account}");
+            String raw = request.path("body").path("raw").asText("");
+            templates.add(new RequestTemplate(item.path("name").asText(), request.path("method").asText(), path,
+                    raw.isBlank() ? null : placeholders(raw, objectMapper), 1));
+        }
+        return templates;
+    }
+
+    /**
+     * Reads one JSON object per line: {@code {"name": ..., "method": ..., "path": ..., "body": {...}, "weight": n}}.
+     */
+    static List<RequestTemplate> fromJsonLines(Path file, ObjectMapper objectMapper) {
+        List<RequestTemplate> templates = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(file)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode node = objectMapper.readTree(line);
+                if (!node.hasNonNull("method") || !node.hasNonNull("path")) {
+                    throw new IllegalArgumentException(file + " is not a request profile: every line needs a method and a path");
+                }
+                String method = node.get("method").asText();
+                String path = node.get("path").asText();
+                templates.add(new RequestTemplate(node.path("name").asText(method + " " + path), method, path,
+                        node.hasNonNull("body") ? objectMapper.writeValueAsString(node.get("body")) : null,
+                        node.path("weight").asInt(1)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return templates;
+    }
+
+    String render(String template, AccountSampler sampler, List<String> accounts, String newAccount) {
+        if (template == null) {
+            return null;
+        }
+        String rendered = template;
+        if (rendered.contains("{account}")) {
+            rendered = rendered.replace("{account}", accounts.get(sampler.next()));
+        }
+        if (rendered.contains("{from}")) {
+            int from = sampler.next();
+            rendered = rendered.replace("{from}", accounts.get(from))
+                    .replace("{to}", accounts.get(sampler.nextOtherThan(from)));
+        }
+        return rendered.replace("{newAccount}", newAccount);
+    }
+
+    private static String placeholders(String raw, ObjectMapper objectMapper) {
+        try {
+            JsonNode body = objectMapper.readTree(raw);
+            if (body instanceof ObjectNode object) {
+                if (object.has("accountNumber")) {
+                    object.put("accountNumber", "{newAccount}");
+                }
+                if (object.has("fromAccountNumber")) {
+                    object.put("fromAccountNumber", "{from}");
+                }
+                if (object.has("toAccountNumber")) {
+                    object.put("toAccountNumber", "{to}");
+                }
+            }
+            return objectMapper.writeValueAsString(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static JsonNode read(Path file, ObjectMapper objectMapper) {
+        try {
+            return objectMapper.readTree(file.toFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
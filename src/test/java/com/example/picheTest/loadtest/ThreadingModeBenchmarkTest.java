@@ -0,0 +1,39 @@
+package com.example.picheTest.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Drives the Postman profile with far more clients than Tomcat has platform threads, once per threading mode.
+ */
+@Slf4j
+@Tag("benchmark")
+class ThreadingModeBenchmarkTest {
+
+    @Test
+    void compareVirtualAndPlatformThreads() throws Exception {
+        LoadReport platform = run("false");
+        LoadReport virtual = run("true");
+
+        log.info("platform threads:\n{}", platform.format());
+        log.info("virtual threads:\n{}", virtual.format());
+        for (Map.Entry<String, LoadReport.Endpoint> endpoint : virtual.endpoints().entrySet()) {
+            assertEquals(0, endpoint.getValue().serverErrors.sum() + endpoint.getValue().ioErrors.sum(),
+                    endpoint.getKey() + " must not fail under the bulkhead");
+        }
+    }
+
+    private static LoadReport run(String virtualThreads) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(
+                "--db=testcontainers", "--concurrency=1000", "--accounts=200", "--skew=0.8",
+                "--warmup=5s", "--duration=20s", "--spring.threads.virtual.enabled=" + virtualThreads);
+        try (LoadGenerator.Target target = LoadGenerator.Target.open(config)) {
+            return new LoadGenerator(config).run(target.baseUri());
+        }
+    }
+}
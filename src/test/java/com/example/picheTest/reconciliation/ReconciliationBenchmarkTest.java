@@ -0,0 +1,83 @@
+package com.example.picheTest.reconciliation;
+
+import com.example.picheTest.AbstractIntegrationTest;
+import com.example.picheTest.repository.ReconciliationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Reconciliation throughput by worker count, at two history sizes.
+ */
+@Slf4j
+@Tag("benchmark")
+class ReconciliationBenchmarkTest extends AbstractIntegrationTest {
+    private static final int ACCOUNTS = 50_000;
+    private static final int CHUNK_SIZE = 2_000;
+    private static final int[] HISTORY_ROWS = {1_000_000, 4_000_000};
+
+    @Autowired
+    private Reconciler reconciler;
+
+    @Autowired
+    private ReconciliationRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void scalesWithWorkers() {
+        jdbcTemplate.update("INSERT INTO accounts (account_number, balance) SELECT 'RECB-' || n, 0 FROM generate_series(1, ?) n",
+                ACCOUNTS);
+        long[] range = repository.accountIdRange();
+        int written = 0;
+        for (int historyRows : HISTORY_ROWS) {
+            addHistory(range[0], historyRows - written);
+            written = historyRows;
+            jdbcTemplate.execute("ANALYZE transaction_history");
+
+            StringBuilder table = new StringBuilder();
+            for (int workers = 1; workers <= Math.min(8, Runtime.getRuntime().availableProcessors()); workers *= 2) {
+                long runId = repository.createRun(new long[]{range[0]}, new long[]{range[1]}, CHUNK_SIZE, LocalDateTime.now());
+                long started = System.nanoTime();
+                reconciler.reconcile(repository.findRun(runId), workers, 0);
+                long elapsedMillis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+                ReconciliationRepository.Summary summary = repository.summarize(runId);
+                repository.finish(runId, ReconciliationService.COMPLETED, null, LocalDateTime.now());
+
+                assertEquals(ACCOUNTS, summary.accounts());
+                assertEquals(0, summary.mismatches(), "Generated balances match their history");
+                table.append(String.format("%n  %d workers: %d ms, %d rows/s", workers, elapsedMillis,
+                        summary.historyRows() * 1000 / elapsedMillis));
+            }
+            log.info("Reconciling {} accounts with {} history rows:{}", ACCOUNTS, historyRows, table);
+        }
+    }
+
+    /**
+     * Deposits to every account and transfers between pseudo-random pairs, keeping each balance equal to its history.
+     */
+    private void addHistory(long firstId, int rows) {
+        jdbcTemplate.update("""
+                WITH h AS (
+                    INSERT INTO transaction_history (account_id_from, account_id_to, amount, transaction_type, created_at)
+                    SELECT CASE WHEN n % 3 = 0 THEN ? + (n * 7919) % ? END, ? + n % ?, (n % 1000 + 1) / 100.0,
+                           CASE WHEN n % 3 = 0 THEN 'TRANSFER' ELSE 'DEPOSIT' END, now()
+                    FROM generate_series(1, ?) n
+                    RETURNING account_id_from, account_id_to, amount
+                ), d AS (
+                    SELECT account_id_to AS id, amount AS delta FROM h
+                    UNION ALL
+                    SELECT account_id_from, -amount FROM h WHERE account_id_from IS NOT NULL
+                )
+                UPDATE accounts a SET balance = a.balance + s.delta
+                FROM (SELECT id, sum(delta) AS delta FROM d GROUP BY id) s
+                WHERE a.id = s.id""", firstId, ACCOUNTS, firstId, ACCOUNTS, rows);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.picheTest.reconciliation;
+
+import com.example.picheTest.AbstractIntegrationTest;
+import com.example.picheTest.model.request.AccountCreateRQ;
+import com.example.picheTest.model.request.DepositRQ;
+import com.example.picheTest.model.request.TransferRQ;
+import com.example.picheTest.model.response.ReconciliationRS;
+import com.example.picheTest.repository.ReconciliationRepository;
+import com.example.picheTest.repository.entity.Account;
+import com.example.picheTest.service.AccountService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReconciliationServiceTest extends AbstractIntegrationTest {
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private ReconciliationService service;
+
+    @Autowired
+    private ReconciliationRepository repository;
+
+    @Autowired
+    private Reconciler reconciler;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void reportsBalancesThatDisagreeWithHistory() throws Exception {
+        List<Account> accounts = createAccounts("REC-A", 5);
+        accountService.deposit("REC-A1", new DepositRQ(new BigDecimal("2.50")));
+        accountService.transfer(new TransferRQ("REC-A2", "REC-A3", new BigDecimal("4.00")));
+        jdbcTemplate.update("UPDATE accounts SET balance = balance + 0.01 WHERE id = ?", accounts.get(4).getId());
+
+        ReconciliationRS report = service.start();
+        while (ReconciliationService.RUNNING.equals(report.getStatus())) {
+            Thread.sleep(50);
+            report = service.getReport(report.getId());
+        }
+
+        assertEquals(ReconciliationService.COMPLETED, report.getStatus());
+        assertEquals(5, report.getAccountsChecked());
+        assertEquals(1, report.getMismatchCount());
+        assertEquals("REC-A4", report.getMismatches().get(0).getAccountNumber());
+        assertEquals(0, new BigDecimal("10.01").compareTo(report.getMismatches().get(0).getBalance()));
+        assertEquals(0, new BigDecimal("10.00").compareTo(report.getMismatches().get(0).getHistoryBalance()));
+    }
+
+    @Test
+    void resumedRunSkipsCheckedChunks() {
+        List<Account> accounts = createAccounts("REC-B", 6);
+        long fromId = accounts.get(0).getId();
+        long runId = repository.createRun(new long[]{fromId}, new long[]{accounts.get(5).getId()}, 2, LocalDateTime.now());
+        repository.recordChunk(runId, 0, 2, 2, List.of(), LocalDateTime.now());
+        // corrupts one account of the checked chunk and one of the rest
+        jdbcTemplate.update("UPDATE accounts SET balance = 0 WHERE id IN (?, ?)", fromId, accounts.get(4).getId());
+
+        int checked = reconciler.reconcile(repository.findRun(runId), 2, 0);
+
+        assertEquals(2, checked);
+        List<ReconciliationRepository.Mismatch> mismatches = repository.findMismatches(runId, 10);
+        assertEquals(1, mismatches.size());
+        assertEquals(accounts.get(4).getId(), mismatches.get(0).accountId());
+        assertEquals(6, repository.summarize(runId).accounts());
+        repository.finish(runId, ReconciliationService.COMPLETED, null, LocalDateTime.now());
+    }
+
+    private List<Account> createAccounts(String prefix, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> accountService.createAccount(new AccountCreateRQ(prefix + i, new BigDecimal("10.00"))))
+                .toList();
+    }
+}
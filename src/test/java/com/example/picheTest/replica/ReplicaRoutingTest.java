@@ -0,0 +1,78 @@
+package com.example.picheTest.replica;
+
+import com.example.picheTest.AbstractIntegrationTest;
+import com.example.picheTest.model.request.AccountCreateRQ;
+import com.example.picheTest.model.request.DepositRQ;
+import com.example.picheTest.service.AccountService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+import org.webjars.NotFoundException;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The "replica" is a second, independent database with the same schema, so which one served a read is visible
+ * from whether a freshly written account is found.
+ */
+@TestPropertySource(properties = {
+        "account.replica.enabled=true",
+        "account.replica.read-your-writes=300ms",
+        "account.replica.retry-after=1m"})
+class ReplicaRoutingTest extends AbstractIntegrationTest {
+    private static final PostgreSQLContainer<?> replica;
+
+    static {
+        replica = new PostgreSQLContainer<>(DockerImageName.parse(PostgreSQLContainer.IMAGE + ":15.3-bullseye"))
+                .withDatabaseName("replicadb")
+                .withPassword("postgres")
+                .withUsername("postgres");
+        replica.start();
+        try (Connection connection = DriverManager.getConnection(replica.getJdbcUrl(), "postgres", "postgres");
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate(new String(readAsBytes("db/schema.sql")));
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void replicaConfig(DynamicPropertyRegistry registry) {
+        registry.add("account.replica.url", replica::getJdbcUrl);
+        registry.add("account.replica.username", replica::getUsername);
+        registry.add("account.replica.password", replica::getPassword);
+    }
+
+    @Autowired
+    private AccountService service;
+
+    @Test
+    void readsFollowWritesThenReplicaThenFallBackToPrimary() throws Exception {
+        service.createAccount(new AccountCreateRQ("REPLICA-1", BigDecimal.TEN));
+        service.deposit("REPLICA-1", new DepositRQ(BigDecimal.ONE));
+
+        // read your writes: the primary serves the account just written
+        assertEquals(0, new BigDecimal("11").compareTo(service.getAccount("REPLICA-1").getBalance()));
+
+        // once the window has passed, reads go to the replica, which never received the account
+        Thread.sleep(500);
+        assertThrows(NotFoundException.class, () -> service.getAccount("REPLICA-1"));
+        assertEquals(0, service.getAccounts(null, 10).size());
+
+        // with the replica gone, reads fall back to the primary
+        replica.stop();
+        assertEquals(0, new BigDecimal("11").compareTo(service.getAccount("REPLICA-1").getBalance()));
+        assertEquals(1, service.getAccounts(null, 10).size());
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.AbstractIntegrationTest;
+import com.example.picheTest.metrics.AccountMetrics;
+import com.example.picheTest.repository.AccountJdbcRepository;
+import com.example.picheTest.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Deposits and withdrawals spread over many accounts, with the balance updated by account number and by the
+ * id from {@link AccountIdCache}.
+ */
+@Slf4j
+@Tag("benchmark")
+class AccountIdCacheBenchmarkTest extends AbstractIntegrationTest {
+    private static final int ACCOUNTS = 5_000;
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 2_000;
+
+    @Autowired
+    private AccountRepository repository;
+
+    @Autowired
+    private AccountJdbcRepository accountJdbcRepository;
+
+    @Autowired
+    private TransactionHistoryWriter historyWriter;
+
+    @Autowired
+    private AccountMetrics metrics;
+
+    @Autowired
+    private BalanceSlots balanceSlots;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void updatesByCachedIdAreFaster() throws Exception {
+        Result byNumber = run(new AccountIdCache(0, 1));
+        cleanDatabase();
+        AccountIdCache idCache = new AccountIdCache(ACCOUNTS, 8);
+        Result byId = run(idCache);
+
+        double hitRatio = (double) idCache.hits() / (idCache.hits() + idCache.misses());
+        log.info("by account number: {} µs/op; by cached id: {} µs/op, hit ratio {}, {} bytes",
+                byNumber.micros(), byId.micros(), String.format("%.3f", hitRatio), idCache.footprintBytes());
+        assertTrue(hitRatio > 0.5, "Every account is touched several times, so most lookups must hit");
+        assertTrue(byId.micros() <= byNumber.micros(), "Updating by cached id should not be slower");
+    }
+
+    private Result run(AccountIdCache idCache) throws Exception {
+        jdbcTemplate.update("""
+                INSERT INTO accounts (account_number, balance)
+                SELECT 'IDC-' || n, 1000 FROM generate_series(1, ?) n""", ACCOUNTS);
+        TransactionalBalanceEngine engine = new TransactionalBalanceEngine(repository, accountJdbcRepository,
+                historyWriter, metrics, balanceSlots, idCache, transactionManager);
+
+        LongAdder nanos = new LongAdder();
+        LongAdder net = new LongAdder();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    String accountNumber = "IDC-" + (random.nextInt(ACCOUNTS) + 1);
+                    long started = System.nanoTime();
+                    if (i % 2 == 0) {
+                        engine.deposit(accountNumber, 100);
+                        net.add(100);
+                    } else {
+                        engine.withdraw(accountNumber, 100);
+                        net.add(-100);
+                    }
+                    nanos.add(System.nanoTime() - started);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        BigDecimal total = jdbcTemplate.queryForObject(
+                "SELECT sum(balance) FROM accounts WHERE account_number LIKE 'IDC-%'", BigDecimal.class);
+        assertEquals(0, BigDecimal.valueOf(ACCOUNTS * 100_000L + net.sum(), 2).compareTo(total),
+                "Every acknowledged update must be applied once");
+        return new Result(nanos.sum() / 1_000 / ((long) THREADS * OPERATIONS_PER_THREAD));
+    }
+
+    private record Result(long micros) {
+    }
+}
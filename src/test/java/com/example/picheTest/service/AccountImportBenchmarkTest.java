@@ -0,0 +1,86 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.AbstractIntegrationTest;
+import com.example.picheTest.model.StatementFormat;
+import com.example.picheTest.model.request.AccountCreateRQ;
+import com.example.picheTest.model.response.BulkImportRS;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rows per second of the bulk import against creating the same accounts one request at a time.
+ */
+@Slf4j
+@Tag("benchmark")
+class AccountImportBenchmarkTest extends AbstractIntegrationTest {
+    private static final int ONE_BY_ONE_ROWS = 2_000;
+    private static final int BULK_ROWS = 200_000;
+
+    @Autowired
+    private AccountService service;
+
+    @Autowired
+    private AccountImporter importer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void bulkImportOutpacesOneByOneCreation() {
+        long started = System.nanoTime();
+        for (int i = 0; i < ONE_BY_ONE_ROWS; i++) {
+            service.createAccount(new AccountCreateRQ("SINGLE-" + i, BigDecimal.TEN));
+        }
+        long oneByOne = ONE_BY_ONE_ROWS * 1_000_000_000L / (System.nanoTime() - started);
+
+        // the last ten rows repeat earlier account numbers
+        BulkImportRS report = importer.importAccounts(csv(BULK_ROWS), StatementFormat.CSV);
+
+        log.info("one by one: {} rows/s; bulk: {} rows/s ({} rows in {} ms)",
+                oneByOne, report.getRowsPerSecond(), report.getReceived(), report.getElapsedMillis());
+        assertEquals(BULK_ROWS, report.getReceived());
+        assertEquals(BULK_ROWS - 10, report.getCreated());
+        assertEquals(10, report.getDuplicates());
+        assertEquals(BULK_ROWS - 10, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM accounts WHERE account_number LIKE 'BULK-%'", Long.class));
+        assertTrue(report.getRowsPerSecond() > oneByOne, "Bulk import should beat creating accounts one by one");
+    }
+
+    /**
+     * Generates the CSV body lazily, as a client upload would arrive.
+     */
+    private static InputStream csv(int rows) {
+        return new SequenceInputStream(new Enumeration<>() {
+            private int row = -1;
+
+            @Override
+            public boolean hasMoreElements() {
+                return row < rows;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                if (!hasMoreElements()) {
+                    throw new NoSuchElementException();
+                }
+                String line = row < 0 ? "accountNumber,balance\n" : "BULK-" + (row < rows - 10 ? row : row - 100) + ",25.00\n";
+                row++;
+                return new ByteArrayInputStream(line.getBytes(StandardCharsets.UTF_8));
+            }
+        });
+    }
+}
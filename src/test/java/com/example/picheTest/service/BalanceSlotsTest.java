@@ -0,0 +1,110 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.AbstractIntegrationTest;
+import com.example.picheTest.model.request.AccountCreateRQ;
+import com.example.picheTest.model.request.DepositRQ;
+import com.example.picheTest.model.request.TransferRQ;
+import com.example.picheTest.model.request.WithdrawRQ;
+import com.example.picheTest.model.response.TransferResultRS;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@TestPropertySource(properties = "account.slots.split.SLOT-HOT=4")
+class BalanceSlotsTest extends AbstractIntegrationTest {
+    private static final String HOT_ACCOUNT = "SLOT-HOT";
+    private static final String OTHER_ACCOUNT = "SLOT-OTHER";
+    private static final String ELSEWHERE_ACCOUNT = "SLOT-ELSEWHERE";
+
+    @Autowired
+    private AccountService service;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void splitAccountNeverOverdrawsAndReportsItsTotal() throws Exception {
+        service.createAccount(new AccountCreateRQ(HOT_ACCOUNT, BigDecimal.ZERO));
+        service.createAccount(new AccountCreateRQ(OTHER_ACCOUNT, BigDecimal.ZERO));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    service.deposit(HOT_ACCOUNT, new DepositRQ(BigDecimal.valueOf(3)));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        assertEquals(0, BigDecimal.valueOf(1200).compareTo(service.getAccount(HOT_ACCOUNT).getBalance()));
+
+        // more is asked for than there is, so some debits must borrow across slots and some must be refused
+        AtomicInteger taken = new AtomicInteger();
+        futures.clear();
+        for (int t = 0; t < 8; t++) {
+            int seed = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 40; i++) {
+                    try {
+                        if ((seed + i) % 2 == 0) {
+                            service.withdraw(HOT_ACCOUNT, new WithdrawRQ(BigDecimal.valueOf(5)));
+                        } else {
+                            service.transfer(new TransferRQ(HOT_ACCOUNT, OTHER_ACCOUNT, BigDecimal.valueOf(5)));
+                        }
+                        taken.addAndGet(5);
+                    } catch (IllegalArgumentException e) {
+                        // insufficient balance once the account runs dry
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(1200, taken.get());
+        assertEquals(0, BigDecimal.ZERO.compareTo(service.getAccount(HOT_ACCOUNT).getBalance()));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM account_balance_slots WHERE balance < 0", Integer.class));
+    }
+
+    @Test
+    void accountSplitByAnotherInstanceIsSeenOnItsNextWrite() {
+        service.createAccount(new AccountCreateRQ(ELSEWHERE_ACCOUNT, BigDecimal.valueOf(10)));
+        service.createAccount(new AccountCreateRQ(OTHER_ACCOUNT, BigDecimal.ZERO));
+        // this instance has already touched the account while it was unsplit
+        service.deposit(ELSEWHERE_ACCOUNT, new DepositRQ(BigDecimal.valueOf(10)));
+
+        // another instance splits it and its credits land in the new slots
+        Long id = jdbcTemplate.queryForObject("SELECT id FROM accounts WHERE account_number = ?", Long.class,
+                ELSEWHERE_ACCOUNT);
+        jdbcTemplate.update("UPDATE accounts SET slots = 3 WHERE id = ?", id);
+        jdbcTemplate.update("INSERT INTO account_balance_slots (account_id, slot, balance) VALUES (?, 1, 30), (?, 2, 40)",
+                id, id);
+
+        assertEquals(0, BigDecimal.valueOf(90).compareTo(service.getAccount(ELSEWHERE_ACCOUNT).getBalance()));
+        assertEquals(0, BigDecimal.valueOf(40).compareTo(
+                service.withdraw(ELSEWHERE_ACCOUNT, new WithdrawRQ(BigDecimal.valueOf(50))).getBalance()));
+        List<TransferResultRS> results = service.transferBatch(List.of(
+                new TransferRQ(ELSEWHERE_ACCOUNT, OTHER_ACCOUNT, BigDecimal.valueOf(30)),
+                new TransferRQ(ELSEWHERE_ACCOUNT, OTHER_ACCOUNT, BigDecimal.valueOf(30))));
+        assertEquals(1, results.stream().filter(TransferResultRS::isSuccess).count());
+        assertEquals(0, BigDecimal.valueOf(10).compareTo(service.getAccount(ELSEWHERE_ACCOUNT).getBalance()));
+        assertEquals(0, BigDecimal.valueOf(30).compareTo(service.getAccount(OTHER_ACCOUNT).getBalance()));
+    }
+}
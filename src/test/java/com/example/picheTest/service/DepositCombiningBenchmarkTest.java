@@ -0,0 +1,120 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.AbstractIntegrationTest;
+import com.example.picheTest.config.DepositProperties;
+import com.example.picheTest.config.TransferProperties;
+import com.example.picheTest.metrics.AccountMetrics;
+import com.example.picheTest.repository.AccountJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many clients depositing into one settlement account, with and without combining.
+ */
+@Slf4j
+@Tag("benchmark")
+class DepositCombiningBenchmarkTest extends AbstractIntegrationTest {
+    private static final String HOT_ACCOUNT = "BENCH-HOT";
+    private static final int THREADS = 64;
+    private static final int DEPOSITS_PER_THREAD = 100;
+
+    @Autowired
+    private BalanceEngine balanceEngine;
+
+    @Autowired
+    private AccountJdbcRepository accountJdbcRepository;
+
+    @Autowired
+    private TransactionHistoryWriter historyWriter;
+
+    @Autowired
+    private AccountMetrics metrics;
+
+    @Autowired
+    private TransientRetry retry;
+
+    @Autowired
+    private TransferProperties transferProperties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private BalanceSlots balanceSlots;
+
+    @Autowired
+    private AccountIdCache idCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void combiningMultipliesHotAccountThroughput() throws Exception {
+        Result single = run(amount -> balanceEngine.deposit(HOT_ACCOUNT, amount));
+        cleanDatabase();
+
+        DepositProperties properties = new DepositProperties();
+        properties.setCombining(true);
+        DepositCombiner combiner = new DepositCombiner(accountJdbcRepository, historyWriter, metrics, retry, balanceSlots,
+                idCache, properties, transferProperties, transactionManager);
+        Result combined = run(amount -> combiner.deposit(HOT_ACCOUNT, amount));
+
+        log.info("one transaction per deposit: {} ops/s, {} failed; combined: {} ops/s, {} failed",
+                single.throughput(), single.failed(), combined.throughput(), combined.failed());
+        assertEquals(0, combined.failed(), "Combined deposits must all succeed");
+        assertTrue(combined.throughput() >= single.throughput(), "Combining should not be slower on a hot account");
+    }
+
+    private Result run(LongFunction<?> deposit) throws Exception {
+        jdbcTemplate.update("INSERT INTO accounts (account_number, balance) VALUES (?, 0)", HOT_ACCOUNT);
+
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long started = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < DEPOSITS_PER_THREAD; i++) {
+                    try {
+                        deposit.apply(100);
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - started;
+        executor.shutdown();
+
+        long succeeded = (long) THREADS * DEPOSITS_PER_THREAD - failed.get();
+        BigDecimal balance = jdbcTemplate.queryForObject(
+                "SELECT balance FROM accounts WHERE account_number = ?", BigDecimal.class, HOT_ACCOUNT);
+        assertEquals(0, BigDecimal.valueOf(succeeded).compareTo(balance), "Every acknowledged deposit must be applied once");
+        assertEquals(succeeded, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM transaction_history WHERE account_id_to = (SELECT id FROM accounts WHERE account_number = ?)",
+                Long.class, HOT_ACCOUNT));
+        return new Result(succeeded * 1_000_000_000L / elapsed, failed.get());
+    }
+
+    private record Result(long throughput, int failed) {
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.AbstractIntegrationTest;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Latency of inserting into the current history partition while older partitions grow. With one unpartitioned
+ * table the indexes deepen as history grows; here new rows only touch the current partition's indexes.
+ */
+@Slf4j
+@Tag("benchmark")
+class HistoryPartitionBenchmarkTest extends AbstractIntegrationTest {
+    private static final int MONTHS = 12;
+    private static final int[] HISTORY_ROWS = {0, 2_000_000, 8_000_000};
+    private static final int INSERTS = 5_000;
+
+    @Autowired
+    private HistoryPartitionMaintainer maintainer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void insertLatencyStaysFlat() {
+        for (int month = MONTHS; month > 0; month--) {
+            maintainer.createPartitions(LocalDate.now().minusMonths(month));
+        }
+        long accountId = jdbcTemplate.queryForObject(
+                "INSERT INTO accounts (account_number, balance) VALUES ('HIST-BENCH', 0) RETURNING id", Long.class);
+        int written = 0;
+        long firstP50 = 0;
+        long lastP50 = 0;
+        StringBuilder table = new StringBuilder();
+        for (int historyRows : HISTORY_ROWS) {
+            addPastHistory(accountId, historyRows - written);
+            written = historyRows;
+            jdbcTemplate.execute("ANALYZE transaction_history");
+
+            long[] nanos = new long[INSERTS];
+            for (int i = 0; i < INSERTS; i++) {
+                long started = System.nanoTime();
+                jdbcTemplate.update("""
+                        INSERT INTO transaction_history (account_id_from, account_id_to, amount, transaction_type, created_at)
+                        VALUES (NULL, ?, 1.00, 'DEPOSIT', now())""", accountId);
+                nanos[i] = System.nanoTime() - started;
+            }
+            Arrays.sort(nanos);
+            long p50 = nanos[INSERTS / 2] / 1000;
+            long p99 = nanos[INSERTS * 99 / 100] / 1000;
+            if (historyRows == 0) {
+                firstP50 = p50;
+            }
+            lastP50 = p50;
+            table.append(String.format("%n  %,d rows of history: p50 %d us, p99 %d us", historyRows, p50, p99));
+        }
+        log.info("Single-row history inserts into the current partition:{}", table);
+        assertTrue(lastP50 < firstP50 * 2 + 100, "Insert latency grows with history: " + table);
+    }
+
+    /**
+     * Deposits spread evenly over the past partitions.
+     */
+    private void addPastHistory(long accountId, int rows) {
+        if (rows == 0) {
+            return;
+        }
+        jdbcTemplate.update("""
+                INSERT INTO transaction_history (account_id_from, account_id_to, amount, transaction_type, created_at)
+                SELECT NULL, ?, 1.00, 'DEPOSIT',
+                       date_trunc('month', now()) - make_interval(days => 1 + (n % (? * 28)))
+                FROM generate_series(1, ?) n""", accountId, MONTHS, rows);
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.AbstractIntegrationTest;
+import com.example.picheTest.config.IdempotencyProperties;
+import com.example.picheTest.error.RequestInProgressException;
+import com.example.picheTest.model.Money;
+import com.example.picheTest.model.request.AccountCreateRQ;
+import com.example.picheTest.model.request.DepositRQ;
+import com.example.picheTest.model.request.TransferRQ;
+import com.example.picheTest.model.request.WithdrawRQ;
+import com.example.picheTest.repository.IdempotencyKeyRepository;
+import com.example.picheTest.repository.entity.Account;
+import com.example.picheTest.sharding.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class IdempotencyKeysTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private AccountService service;
+
+    @Autowired
+    private IdempotencyKeyRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransientRetry retry;
+
+    @Autowired
+    private ShardRouter shards;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AccountIdCache idCache;
+
+    @Test
+    void repeatedDepositIsAppliedOnce() {
+        service.createAccount(new AccountCreateRQ("IDEM-1", new BigDecimal("10.00")));
+
+        Account first = service.deposit("IDEM-1", new DepositRQ(new BigDecimal("5.00")), "deposit-1");
+        Account repeated = service.deposit("IDEM-1", new DepositRQ(new BigDecimal("5.00")), "deposit-1");
+
+        assertEquals(0, new BigDecimal("15.00").compareTo(first.getBalance()));
+        assertEquals(first.getBalance(), repeated.getBalance());
+        assertEquals(0, new BigDecimal("15.00").compareTo(service.getAccount("IDEM-1").getBalance()));
+
+        // another instance, or this one after a restart, answers from the table
+        IdempotencyKeys restarted = new IdempotencyKeys(repository, objectMapper, retry, shards,
+                new IdempotencyProperties(), new SimpleMeterRegistry(), transactionManager);
+        long fingerprint = IdempotencyKeys.fingerprint("deposit", "IDEM-1", Money.ofDecimal(new BigDecimal("5.00")));
+        Account stored = restarted.execute("deposit-1", fingerprint, Account.class,
+                () -> fail("Replayed request must not run again"));
+        assertEquals(first.getId(), stored.getId());
+        assertEquals(0, first.getBalance().compareTo(stored.getBalance()));
+    }
+
+    @Test
+    void failedAttemptStoresNothing() {
+        service.createAccount(new AccountCreateRQ("IDEM-2", new BigDecimal("1.00")));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.withdraw("IDEM-2", new WithdrawRQ(new BigDecimal("2.00")), "withdraw-1"));
+        service.deposit("IDEM-2", new DepositRQ(new BigDecimal("1.00")));
+        Account account = service.withdraw("IDEM-2", new WithdrawRQ(new BigDecimal("2.00")), "withdraw-1");
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(account.getBalance()));
+    }
+
+    @Test
+    void keyReusedForAnotherRequestIsRefused() {
+        service.createAccount(new AccountCreateRQ("IDEM-3", new BigDecimal("10.00")));
+        service.deposit("IDEM-3", new DepositRQ(new BigDecimal("1.00")), "reused");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.deposit("IDEM-3", new DepositRQ(new BigDecimal("2.00")), "reused"));
+        assertEquals(0, new BigDecimal("11.00").compareTo(service.getAccount("IDEM-3").getBalance()));
+    }
+
+    @Test
+    void concurrentDuplicatesWaitForTheFirstAttempt() throws Exception {
+        service.createAccount(new AccountCreateRQ("IDEM-FROM", new BigDecimal("100.00")));
+        service.createAccount(new AccountCreateRQ("IDEM-TO", new BigDecimal("0.00")));
+        TransferRQ transfer = new TransferRQ("IDEM-FROM", "IDEM-TO", new BigDecimal("30.00"));
+
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return service.transfer(transfer, "transfer-1");
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        }
+
+        assertEquals(0, new BigDecimal("70.00").compareTo(service.getAccount("IDEM-FROM").getBalance()));
+        assertEquals(0, new BigDecimal("30.00").compareTo(service.getAccount("IDEM-TO").getBalance()));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM idempotency_keys", Integer.class));
+    }
+
+    @Test
+    void duplicateThatOutwaitsTheFirstAttemptIsToldToRetry() throws Exception {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setWaitTimeout(Duration.ofMillis(100));
+        IdempotencyKeys keys = new IdempotencyKeys(repository, objectMapper, retry, shards, properties,
+                new SimpleMeterRegistry(), transactionManager);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<Boolean> first = executor.submit(() -> keys.execute("slow", 1, Boolean.class, () -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return keys.inTransaction("slow", 1, () -> true);
+            }));
+            running.await();
+            RequestInProgressException refused = assertThrows(RequestInProgressException.class,
+                    () -> keys.execute("slow", 1, Boolean.class, () -> fail("Duplicate must not run")));
+            assertEquals(1, refused.getRetryAfterSeconds());
+            release.countDown();
+            assertTrue(first.get());
+        }
+    }
+
+    @Test
+    void concurrentKeyedMovementsOfOneAccountAreAllKept() throws Exception {
+        service.createAccount(new AccountCreateRQ("IDEM-HOT", new BigDecimal("100.00")));
+
+        int threads = 16;
+        int perThread = 10;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        // a cache miss takes the read-modify-write path
+                        idCache.invalidate("IDEM-HOT");
+                        if (thread % 2 == 0) {
+                            service.deposit("IDEM-HOT", new DepositRQ(new BigDecimal("2.00")), "hot-" + thread + "-" + i);
+                        } else {
+                            service.withdraw("IDEM-HOT", new WithdrawRQ(new BigDecimal("1.00")), "hot-" + thread + "-" + i);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+        }
+
+        // 8 threads deposit 10 x 2.00 and 8 withdraw 10 x 1.00
+        assertEquals(0, new BigDecimal("180.00").compareTo(service.getAccount("IDEM-HOT").getBalance()));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.AbstractIntegrationTest;
+import com.example.picheTest.model.StatementFormat;
+import com.example.picheTest.model.request.AccountCreateRQ;
+import com.example.picheTest.repository.entity.Account;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatementExportTest extends AbstractIntegrationTest {
+    private static final int ROWS = 500_000;
+    private static final long HEAP_BUDGET = 32L * 1024 * 1024;
+
+    @Autowired
+    private AccountService service;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void largeStatementStreamsInConstantHeap() throws Exception {
+        Account account = service.createAccount(new AccountCreateRQ("STATEMENT-1", BigDecimal.ZERO));
+        insertDeposits(account.getId(), ROWS);
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+        HeapSamplingOutputStream out = new HeapSamplingOutputStream(memory);
+
+        service.exportStatement(account.getId(), null, null, StatementFormat.CSV, out);
+
+        // header, the opening deposit and the inserted rows
+        assertEquals(ROWS + 2, out.lines);
+        assertTrue(out.peakHeap - baseline < HEAP_BUDGET,
+                "Heap grew by " + (out.peakHeap - baseline) / 1024 / 1024 + " MB while exporting " + ROWS + " rows");
+    }
+
+    @Test
+    void statementIsServedGzipped() throws Exception {
+        Account account = service.createAccount(new AccountCreateRQ("STATEMENT-2", BigDecimal.ZERO));
+        insertDeposits(account.getId(), 1000);
+
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(
+                        "http://localhost:%d/accounts/STATEMENT-2/statement?format=ndjson".formatted(port)))
+                .header("Accept-Encoding", "gzip")
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+        String body;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String[] lines = body.split("\n");
+        assertEquals(1001, lines.length);
+        assertTrue(lines[1].contains("\"transactionType\":\"DEPOSIT\""));
+    }
+
+    private void insertDeposits(long accountId, int rows) {
+        jdbcTemplate.update("""
+                INSERT INTO transaction_history (account_id_to, amount, transaction_type, created_at)
+                SELECT ?, 1.00, 'DEPOSIT', now() + i * interval '1 millisecond' FROM generate_series(1, ?) i""",
+                accountId, rows);
+    }
+
+    /**
+     * Counts lines and samples the heap, after a collection, every few megabytes written.
+     */
+    private static final class HeapSamplingOutputStream extends OutputStream {
+        private static final int SAMPLE_BYTES = 4 * 1024 * 1024;
+
+        private final MemoryMXBean memory;
+        private long lines;
+        private long written;
+        private long peakHeap;
+
+        private HeapSamplingOutputStream(MemoryMXBean memory) {
+            this.memory = memory;
+        }
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                lines++;
+            }
+            if (++written % SAMPLE_BYTES == 0) {
+                System.gc();
+                peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.picheTest.service;
+
+import com.example.picheTest.AbstractIntegrationTest;
+import com.example.picheTest.metrics.AccountMetrics;
+import com.example.picheTest.model.request.TransferRQ;
+import com.example.picheTest.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hammers a small set of accounts with random concurrent transfers through both engines, reports throughput
+ * and checks that the total balance is unchanged afterwards.
+ */
+@Slf4j
+@Tag("benchmark")
+class TransferEngineBenchmarkTest extends AbstractIntegrationTest {
+    private static final int ACCOUNTS = 16;
+    private static final int THREADS = 16;
+    private static final int TRANSFERS_PER_THREAD = 200;
+    private static final BigDecimal OPENING_BALANCE = BigDecimal.valueOf(10_000);
+
+    @Autowired
+    private AccountRepository repository;
+
+    @Autowired
+    private TransactionHistoryWriter historyWriter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransientRetry retry;
+
+    @Autowired
+    private AccountMetrics metrics;
+
+    @Autowired
+    private BalanceSlots balanceSlots;
+
+    @Autowired
+    private AccountIdCache idCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void atomicEngineOutperformsSerializableAndConservesMoney() throws Exception {
+        Result serializable = run(new SerializableTransferEngine(repository, historyWriter, metrics, retry, transactionManager));
+        cleanDatabase();
+        Result atomic = run(new AtomicTransferEngine(repository, historyWriter, retry, metrics, balanceSlots, idCache,
+                transactionManager));
+
+        log.info("serializable: {} ops/s, {} failed; atomic: {} ops/s, {} failed",
+                serializable.throughput(), serializable.failed(), atomic.throughput(), atomic.failed());
+        assertEquals(0, atomic.failed(), "Atomic engine must absorb every transient conflict");
+        assertTrue(atomic.throughput() >= serializable.throughput(), "Atomic engine should not be slower than the serializable one");
+    }
+
+    private Result run(TransferEngine engine) throws Exception {
+        for (int i = 0; i < ACCOUNTS; i++) {
+            jdbcTemplate.update("INSERT INTO accounts (account_number, balance) VALUES (?, ?)", accountNumber(i), OPENING_BALANCE);
+        }
+        BigDecimal totalBefore = totalBalance();
+
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long started = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    int from = random.nextInt(ACCOUNTS);
+                    int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                    try {
+                        engine.transfer(new TransferRQ(accountNumber(from), accountNumber(to), BigDecimal.ONE));
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - started;
+        executor.shutdown();
+
+        assertEquals(0, totalBefore.compareTo(totalBalance()), "Money must be conserved");
+        long succeeded = (long) THREADS * TRANSFERS_PER_THREAD - failed.get();
+        return new Result(succeeded * 1_000_000_000L / elapsed, failed.get());
+    }
+
+    private BigDecimal totalBalance() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(balance), 0) FROM accounts", BigDecimal.class);
+    }
+
+    private static String accountNumber(int i) {
+        return "BENCH-%04d".formatted(i);
+    }
+
+    private record Result(long throughput, int failed) {
+    }
+}
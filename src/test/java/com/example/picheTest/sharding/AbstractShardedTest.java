@@ -0,0 +1,57 @@
+package com.example.picheTest.sharding;
+
+import com.example.picheTest.AbstractIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Four shards: the shared container as shard 0 and three more, each with the full schema.
+ */
+@TestPropertySource(properties = "account.sharding.enabled=true")
+abstract class AbstractShardedTest extends AbstractIntegrationTest {
+    protected static final int SHARDS = 4;
+    private static final PostgreSQLContainer<?>[] others = new PostgreSQLContainer<?>[SHARDS - 1];
+
+    static {
+        for (int i = 0; i < others.length; i++) {
+            others[i] = new PostgreSQLContainer<>(DockerImageName.parse(PostgreSQLContainer.IMAGE + ":15.3-bullseye"))
+                    .withDatabaseName("shard" + (i + 1))
+                    .withPassword("postgres")
+                    .withUsername("postgres");
+            others[i].start();
+            jdbc(i + 1).execute(new String(readAsBytes("db/schema.sql")));
+        }
+    }
+
+    @DynamicPropertySource
+    static void shardConfig(DynamicPropertyRegistry registry) {
+        for (int i = 0; i < others.length; i++) {
+            PostgreSQLContainer<?> shard = others[i];
+            registry.add("account.sharding.shards[" + i + "].url", shard::getJdbcUrl);
+            registry.add("account.sharding.shards[" + i + "].username", shard::getUsername);
+            registry.add("account.sharding.shards[" + i + "].password", shard::getPassword);
+        }
+    }
+
+    @AfterEach
+    public void cleanShards() {
+        for (int shard = 1; shard < SHARDS; shard++) {
+            jdbc(shard).execute(new String(readAsBytes("db/clean.sql")));
+        }
+    }
+
+    /**
+     * Direct access to one shard, bypassing the routing.
+     */
+    protected static JdbcTemplate jdbc(int shard) {
+        PostgreSQLContainer<?> container = shard == 0 ? postgreSQLContainer : others[shard - 1];
+        return new JdbcTemplate(new DriverManagerDataSource(container.getJdbcUrl(), container.getUsername(),
+                container.getPassword()));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.picheTest.sharding;
+
+import com.example.picheTest.model.request.AccountCreateRQ;
+import com.example.picheTest.model.request.TransferRQ;
+import com.example.picheTest.service.AccountService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Transfer throughput when the same load is spread over 1, 2 and 4 shards: accounts only exist on the first
+ * {@code n} shards, and every transfer stays within one shard. A last round measures transfers that all cross
+ * shards. All containers share this machine's cores, so the scaling shown is a lower bound.
+ */
+@Slf4j
+@Tag("benchmark")
+class ShardingBenchmarkTest extends AbstractShardedTest {
+    private static final int ACCOUNTS_PER_SHARD = 200;
+    private static final int THREADS = 32;
+    private static final int TRANSFERS = 20_000;
+
+    @Autowired
+    private AccountService service;
+
+    @Autowired
+    private ShardRouter shards;
+
+    @Test
+    void throughputScalesWithShards() throws Exception {
+        List<List<String>> accounts = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            accounts.add(new ArrayList<>());
+        }
+        for (int i = 0; accounts.stream().anyMatch(onShard -> onShard.size() < ACCOUNTS_PER_SHARD); i++) {
+            String accountNumber = "SHARD-BENCH-" + i;
+            List<String> onShard = accounts.get(shards.shardOf(accountNumber));
+            if (onShard.size() < ACCOUNTS_PER_SHARD) {
+                service.createAccount(new AccountCreateRQ(accountNumber, new BigDecimal("1000000.00")));
+                onShard.add(accountNumber);
+            }
+        }
+
+        StringBuilder table = new StringBuilder();
+        for (int used = 1; used <= SHARDS; used *= 2) {
+            int shardCount = used;
+            double perSecond = run(() -> {
+                List<String> onShard = accounts.get(ThreadLocalRandom.current().nextInt(shardCount));
+                return pair(onShard, onShard);
+            });
+            table.append(String.format("%n  %d shard(s), same-shard transfers: %.0f transfers/s", used, perSecond));
+        }
+        double crossing = run(() -> {
+            int from = ThreadLocalRandom.current().nextInt(SHARDS);
+            int to = (from + 1 + ThreadLocalRandom.current().nextInt(SHARDS - 1)) % SHARDS;
+            return pair(accounts.get(from), accounts.get(to));
+        });
+        table.append(String.format("%n  %d shards, cross-shard transfers: %.0f transfers/s", SHARDS, crossing));
+        log.info("{} transfers from {} threads:{}", TRANSFERS, THREADS, table);
+
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertEquals(0, jdbc(shard).queryForObject(
+                    "SELECT count(*) FROM shard_transfers WHERE status <> 'COMPLETED'", Integer.class));
+        }
+    }
+
+    private double run(Supplier<TransferRQ> transfers) throws Exception {
+        long started = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < TRANSFERS / THREADS; i++) {
+                        service.transfer(transfers.get());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return TRANSFERS * 1e9 / (System.nanoTime() - started);
+    }
+
+    private static TransferRQ pair(List<String> from, List<String> to) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String fromAccount = from.get(random.nextInt(from.size()));
+        String toAccount;
+        do {
+            toAccount = to.get(random.nextInt(to.size()));
+        } while (toAccount.equals(fromAccount));
+        return new TransferRQ(fromAccount, toAccount, new BigDecimal("0.01"));
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.picheTest.sharding;
+
+import com.example.picheTest.model.request.AccountCreateRQ;
+import com.example.picheTest.model.request.TransferRQ;
+import com.example.picheTest.repository.ShardTransferRepository;
+import com.example.picheTest.repository.entity.Account;
+import com.example.picheTest.service.AccountService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ShardingTest extends AbstractShardedTest {
+
+    @Autowired
+    private AccountService service;
+
+    @Autowired
+    private ShardRouter shards;
+
+    @Autowired
+    private CrossShardTransfers crossShardTransfers;
+
+    @Test
+    void accountsLiveOnTheirShardAndAreListedAcrossAll() {
+        List<Account> created = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            created.add(create("SHARD-" + i, "10.00"));
+        }
+        for (Account account : created) {
+            int shard = shards.shardOf(account.getAccountNumber());
+            assertEquals(shard, ShardRouter.shardOfId(account.getId()));
+            assertEquals(1, jdbc(shard).queryForObject("SELECT count(*) FROM accounts WHERE account_number = ?",
+                    Integer.class, account.getAccountNumber()));
+        }
+
+        List<Account> firstPage = service.getAccounts(null, 25);
+        List<Account> secondPage = service.getAccounts(firstPage.get(firstPage.size() - 1).getId(), 25);
+        List<Long> listed = new ArrayList<>();
+        firstPage.forEach(account -> listed.add(account.getId()));
+        secondPage.forEach(account -> listed.add(account.getId()));
+        assertEquals(created.stream().map(Account::getId).sorted().toList(), listed);
+    }
+
+    @Test
+    void crossShardTransferCompletes() {
+        Account from = create("SHARD-FROM", "100.00");
+        Account to = createOnOtherShard("SHARD-TO", from, "0.00");
+
+        service.transfer(new TransferRQ(from.getAccountNumber(), to.getAccountNumber(), new BigDecimal("40.00")));
+
+        assertEquals(0, new BigDecimal("60.00").compareTo(service.getAccount(from.getAccountNumber()).getBalance()));
+        assertEquals(0, new BigDecimal("40.00").compareTo(service.getAccount(to.getAccountNumber()).getBalance()));
+        assertEquals(ShardTransferRepository.COMPLETED, jdbc(shards.shardOf(from.getAccountNumber()))
+                .queryForObject("SELECT status FROM shard_transfers", String.class));
+    }
+
+    @Test
+    void crossShardTransferWithoutFundsChangesNothing() {
+        Account from = create("SHARD-POOR", "5.00");
+        Account to = createOnOtherShard("SHARD-RICH", from, "0.00");
+
+        assertThrows(IllegalArgumentException.class, () -> service.transfer(
+                new TransferRQ(from.getAccountNumber(), to.getAccountNumber(), new BigDecimal("6.00"))));
+
+        assertEquals(0, new BigDecimal("5.00").compareTo(service.getAccount(from.getAccountNumber()).getBalance()));
+        assertEquals(0, new BigDecimal("0.00").compareTo(service.getAccount(to.getAccountNumber()).getBalance()));
+        assertEquals(0, jdbc(shards.shardOf(from.getAccountNumber()))
+                .queryForObject("SELECT count(*) FROM shard_transfers", Integer.class));
+    }
+
+    @Test
+    void recoveryCreditsAnInterruptedTransferOnce() {
+        Account from = create("SHARD-CRASH-FROM", "100.00");
+        Account to = createOnOtherShard("SHARD-CRASH-TO", from, "0.00");
+        int fromShard = shards.shardOf(from.getAccountNumber());
+        int toShard = shards.shardOf(to.getAccountNumber());
+        // what the debit step commits before the instance dies
+        jdbc(fromShard).update("UPDATE accounts SET balance = balance - 25 WHERE id = ?", from.getId());
+        jdbc(fromShard).update("""
+                INSERT INTO shard_transfers (id, from_account_id, to_account_id, to_shard, amount, status, created_at, updated_at)
+                VALUES (?, ?, ?, ?, 25, 'DEBITED', now() - interval '1 hour', now() - interval '1 hour')""",
+                UUID.randomUUID(), from.getId(), to.getId(), toShard);
+
+        assertEquals(1, crossShardTransfers.recover(fromShard, LocalDateTime.now()));
+        assertEquals(0, crossShardTransfers.recover(fromShard, LocalDateTime.now()));
+
+        assertEquals(0, new BigDecimal("75.00").compareTo(service.getAccount(from.getAccountNumber()).getBalance()));
+        assertEquals(0, new BigDecimal("25.00").compareTo(service.getAccount(to.getAccountNumber()).getBalance()));
+        assertEquals(1, jdbc(toShard).queryForObject("SELECT count(*) FROM shard_transfer_credits", Integer.class));
+    }
+
+    private Account create(String accountNumber, String balance) {
+        return service.createAccount(new AccountCreateRQ(accountNumber, new BigDecimal(balance)));
+    }
+
+    private Account createOnOtherShard(String prefix, Account other, String balance) {
+        int otherShard = shards.shardOf(other.getAccountNumber());
+        for (int i = 0; ; i++) {
+            if (shards.shardOf(prefix + "-" + i) != otherShard) {
+                return create(prefix + "-" + i, balance);
+            }
+        }
+    }
+}
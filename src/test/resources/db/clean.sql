@@ -1 +1,11 @@
-DELETE FROM accounts;
\ No newline at end of file
+DELETE FROM accounts;
+DELETE FROM account_balance_slots;
+DELETE FROM balance_checkpoints;
+DELETE FROM reconciliation_mismatches;
+DELETE FROM reconciliation_chunks;
+DELETE FROM reconciliation_runs;
+DELETE FROM archived_balances;
+DELETE FROM history_archives;
+DELETE FROM shard_transfers;
+DELETE FROM shard_transfer_credits;
+DELETE FROM idempotency_keys;